@@ -0,0 +1,68 @@
+package ai;
+
+/**
+ * The Activation enum lists the activation functions a Layer can apply to its weighted sums.
+ *
+ * Element-wise activations are applied to each sum as it is produced, inside the matrix
+ * multiply loop. SOFTMAX depends on the whole output vector, so it is applied in place once
+ * all sums are known. None of them allocate.
+ */
+public enum Activation {
+    IDENTITY,  // f(x) = x
+    RELU,      // f(x) = max(0, x)
+    TANH,      // f(x) = tanh(x)
+    SIGMOID,   // f(x) = 1 / (1 + e^-x)
+    SOFTMAX;   // Normalized exponentials over the whole output vector
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Applies an element-wise activation to one weighted sum.
+     *
+     * @param x the weighted sum plus bias
+     * @return the activated value; SOFTMAX returns x unchanged, to be normalized by finish()
+     */
+    public float apply(float x) {
+        switch (this) {
+            case RELU:
+                return x > 0f ? x : 0f;
+            case TANH:
+                return (float) Math.tanh(x);
+            case SIGMOID:
+                return 1f / (1f + (float) Math.exp(-x));
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * Finishes activating a vector whose elements went through apply(). Only SOFTMAX does any work.
+     *
+     * @param values the array holding the vector
+     * @param offset index of the vector's first element
+     * @param length number of elements in the vector
+     */
+    public void finish(float[] values, int offset, int length) {
+        if (this != SOFTMAX) {
+            return;
+        }
+        // Subtract the max for numerical stability, so exp() cannot overflow
+        int end = offset + length;
+        float max = values[offset];
+        for (int i = offset + 1; i < end; i++) {
+            max = Math.max(max, values[i]);
+        }
+        float sum = 0f;
+        for (int i = offset; i < end; i++) {
+            float e = (float) Math.exp(values[i] - max);
+            values[i] = e;
+            sum += e;
+        }
+        float scale = 1f / sum;
+        for (int i = offset; i < end; i++) {
+            values[i] *= scale;
+        }
+    }
+}
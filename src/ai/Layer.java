@@ -1,142 +1,304 @@
 package ai;
 
+import engine.GameState;
+
 import java.util.Random;
-import java.util.function.Function;
 
+/**
+ * The Layer class is a fully connected neural network layer: outputs = activation(W * inputs + b).
+ *
+ * The weights are one contiguous row-major float array, with row o holding the weights into
+ * output o, so the forward pass streams through memory in order. Bias and element-wise
+ * activation are fused into the multiply loop, and results go into a preallocated output
+ * buffer or a caller-supplied one, so inference allocates nothing.
+ */
 public class Layer {
-    private double[] inputs;
-    private double[][] weights;
-    private double[] biases;
-    private Function<double[], double[]> activationFunction;
-    private double[] outputs;
+    private static final int BLOCK_FLOATS = 4096;  // Weights per cache block in forwardBatch(), 16KB
+
+    private final int inputSize;          // Number of inputs
+    private final int outputSize;         // Number of outputs
+    private final float[] weights;        // outputSize rows of inputSize weights, row-major
+    private final float[] biases;         // One bias per output
+    private final Activation activation;  // Applied to every weighted sum
+    private final float[] outputs;        // Results of the last forward(float[]) call
 
-    public Layer(int inputSize, int outputSize, Function<double[], double[]> activationFunction) {
-        this.weights = new double[outputSize][inputSize];
-        this.biases = new double[outputSize];
-        this.activationFunction = activationFunction;
-        initializeWeightsAndBiases();
+    /**
+     * Constructs a Layer with the classic random initialization.
+     *
+     * @param inputSize the number of inputs
+     * @param outputSize the number of outputs
+     * @param activation the activation applied to each output
+     */
+    public Layer(int inputSize, int outputSize, Activation activation) {
+        this(inputSize, outputSize, activation, new Random());
     }
 
-    private void initializeWeightsAndBiases() {
-        Random rand = new Random(); // Random generator for integer values
-        for (int i = 0; i < weights.length; i++) {
-            for (int j = 0; j < weights[i].length; j++) {
-                // Assign random integer weights in the range [-5, 5]
-                weights[i][j] = rand.nextInt(3) - 1; // Range -5 to 5
-            }
-            biases[i] = 1; // Set all biases to 1
+    /**
+     * Constructs a Layer with random weights from a given generator.
+     *
+     * @param inputSize the number of inputs
+     * @param outputSize the number of outputs
+     * @param activation the activation applied to each output
+     * @param random the generator the initial weights are drawn from
+     */
+    public Layer(int inputSize, int outputSize, Activation activation, Random random) {
+        if (inputSize < 1 || outputSize < 1) {
+            throw new IllegalArgumentException("Layer sizes must be positive: " + inputSize + " -> " + outputSize);
         }
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.weights = new float[outputSize * inputSize];
+        this.biases = new float[outputSize];
+        this.activation = activation;
+        this.outputs = new float[outputSize];
+        initializeWeightsAndBiases(random);
     }
 
+    /**
+     * Constructs a Layer around existing parameters, such as weights loaded from a file.
+     *
+     * @param inputSize the number of inputs
+     * @param outputSize the number of outputs
+     * @param activation the activation applied to each output
+     * @param weights outputSize * inputSize row-major weights, used without copying
+     * @param biases outputSize biases, used without copying
+     */
+    public Layer(int inputSize, int outputSize, Activation activation, float[] weights, float[] biases) {
+        if (inputSize < 1 || outputSize < 1) {
+            throw new IllegalArgumentException("Layer sizes must be positive: " + inputSize + " -> " + outputSize);
+        }
+        if (weights.length != outputSize * inputSize || biases.length != outputSize) {
+            throw new IllegalArgumentException("Parameter arrays do not match a " + inputSize + " -> " + outputSize + " layer");
+        }
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.weights = weights;
+        this.biases = biases;
+        this.activation = activation;
+        this.outputs = new float[outputSize];
+    }
 
-    public void forward(double[] inputs) {
-        this.inputs = inputs;
-        double[] weightedSums = new double[biases.length];
+    /**
+    /* Private methods follow
+    /**/
 
+    private void initializeWeightsAndBiases(Random random) {
         for (int i = 0; i < weights.length; i++) {
-            double sum = 0.0;
-            for (int j = 0; j < inputs.length; j++) {
-                sum += weights[i][j] * inputs[j];
+            weights[i] = random.nextInt(3) - 1;  // Integer weights in the range [-1, 1]
+        }
+        for (int o = 0; o < outputSize; o++) {
+            biases[o] = 1f;  // Set all biases to 1
+        }
+    }
+
+    /**
+     * Computes outputs firstRow to endRow - 1 of one sample, before any softmax.
+     */
+    private void forwardRows(float[] input, int inputOffset, float[] output, int outputOffset,
+                             int firstRow, int endRow) {
+        int unrolled = inputSize & ~3;
+        for (int o = firstRow; o < endRow; o++) {
+            int row = o * inputSize;
+            // Four independent partial sums, so the adds are not one long dependency chain
+            float s0 = 0f;
+            float s1 = 0f;
+            float s2 = 0f;
+            float s3 = 0f;
+            int i = 0;
+            for (; i < unrolled; i += 4) {
+                s0 += weights[row + i] * input[inputOffset + i];
+                s1 += weights[row + i + 1] * input[inputOffset + i + 1];
+                s2 += weights[row + i + 2] * input[inputOffset + i + 2];
+                s3 += weights[row + i + 3] * input[inputOffset + i + 3];
+            }
+            for (; i < inputSize; i++) {
+                s0 += weights[row + i] * input[inputOffset + i];
             }
-            sum += biases[i]; // Add bias to the weighted sum
-            weightedSums[i] = sum;
+            output[outputOffset + o] = activation.apply(biases[o] + ((s0 + s1) + (s2 + s3)));
         }
+    }
 
-        // Apply the activation function
-        outputs = activationFunction.apply(weightedSums);
+    /**
+     * Computes outputs firstRow to endRow - 1 of four consecutive samples, before any softmax.
+     */
+    private void forwardRows4(float[] inputs, int inputOffset, float[] out, int outOffset,
+                              int firstRow, int endRow) {
+        int x0 = inputOffset;
+        int x1 = x0 + inputSize;
+        int x2 = x1 + inputSize;
+        int x3 = x2 + inputSize;
+        int y0 = outOffset;
+        int y1 = y0 + outputSize;
+        int y2 = y1 + outputSize;
+        int y3 = y2 + outputSize;
+        for (int o = firstRow; o < endRow; o++) {
+            int row = o * inputSize;
+            float s0 = 0f;
+            float s1 = 0f;
+            float s2 = 0f;
+            float s3 = 0f;
+            for (int i = 0; i < inputSize; i++) {
+                float w = weights[row + i];
+                s0 += w * inputs[x0 + i];
+                s1 += w * inputs[x1 + i];
+                s2 += w * inputs[x2 + i];
+                s3 += w * inputs[x3 + i];
+            }
+            float bias = biases[o];
+            out[y0 + o] = activation.apply(bias + s0);
+            out[y1 + o] = activation.apply(bias + s1);
+            out[y2 + o] = activation.apply(bias + s2);
+            out[y3 + o] = activation.apply(bias + s3);
+        }
     }
 
-    public double[] getOutputs() {
-        return outputs;
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Runs the layer on one input vector, writing into a caller-supplied buffer.
+     *
+     * @param input the array holding the input vector
+     * @param inputOffset index of the input vector's first element
+     * @param output the array to write the output vector to
+     * @param outputOffset index the output vector starts at
+     *
+     * The input and output ranges must not overlap. Nothing is allocated.
+     */
+    public void forward(float[] input, int inputOffset, float[] output, int outputOffset) {
+        forwardRows(input, inputOffset, output, outputOffset, 0, outputSize);
+        activation.finish(output, outputOffset, outputSize);
     }
 
-    // Activation functions
-    public static Function<double[], double[]> relu = x -> {
-        double[] result = new double[x.length];
-        for (int i = 0; i < x.length; i++) {
-            result[i] = Math.max(0, x[i]); // ReLU: max(0, x)
+    /**
+     * Runs the layer on a batch of input vectors in one call.
+     *
+     * @param inputs batchSize input vectors of getInputSize() floats each, back to back
+     * @param batchSize the number of input vectors
+     * @param out receives batchSize output vectors of getOutputSize() floats each, back to back
+     *
+     * The weights are processed in blocks small enough to stay in the L1 cache while every
+     * sample of the batch streams past them, and each weight row is applied to four samples
+     * at once so one load of a weight feeds four multiply-adds. The results match calling
+     * forward() on each sample, up to float rounding. Nothing is allocated.
+     */
+    public void forwardBatch(float[] inputs, int batchSize, float[] out) {
+        int rowsPerBlock = Math.max(1, BLOCK_FLOATS / inputSize);
+        for (int firstRow = 0; firstRow < outputSize; firstRow += rowsPerBlock) {
+            int endRow = Math.min(outputSize, firstRow + rowsPerBlock);
+            int b = 0;
+            for (; b + 4 <= batchSize; b += 4) {
+                forwardRows4(inputs, b * inputSize, out, b * outputSize, firstRow, endRow);
+            }
+            for (; b < batchSize; b++) {
+                forwardRows(inputs, b * inputSize, out, b * outputSize, firstRow, endRow);
+            }
         }
-        return result;
-    };
-
-    public static Function<double[], double[]> softmax = x -> {
-        // Find max value for numerical stability (to prevent overflow in exponentiation)
-        double max = x[0];
-        for (int i = 1; i < x.length; i++) {
-            if (x[i] > max) {
-                max = x[i];
+        if (activation == Activation.SOFTMAX) {
+            for (int b = 0; b < batchSize; b++) {
+                activation.finish(out, b * outputSize, outputSize);
             }
         }
+    }
 
-        // Compute exponentials and sum
-        double[] expValues = new double[x.length];
-        double sum = 0.0;
-        for (int i = 0; i < x.length; i++) {
-            expValues[i] = Math.exp(x[i] - max); // Subtract max for numerical stability
-            sum += expValues[i];
-        }
+    /**
+     * Runs the layer on one input vector, writing into the layer's own output buffer.
+     *
+     * @param input the input vector, of length at least getInputSize()
+     * @return the layer's output buffer, overwritten by the next call
+     */
+    public float[] forward(float[] input) {
+        forward(input, 0, outputs, 0);
+        return outputs;
+    }
 
-        // Normalize the exponentials to get probabilities
-        for (int i = 0; i < expValues.length; i++) {
-            expValues[i] /= sum;
-        }
+    /**
+     * Gets the outputs of the last forward(float[]) call.
+     *
+     * @return the layer's output buffer
+     */
+    public float[] getOutputs() {
+        return outputs;
+    }
 
-        return expValues;
-    };
-    
-    public static void main(String[] args) {
-        // Initialize random number generator
-        Random random = new Random();
+    /**
+     * Gets the weights, for training or serialization. Changes write through to the layer.
+     *
+     * @return the row-major weights; element o * getInputSize() + i connects input i to output o
+     */
+    public float[] getWeights() {
+        return weights;
+    }
 
-        // Generate 5 random values for the environment (0 for wall, 1 for snake body, 2 for clear, 3 for apple)
-        int[] environment = new int[5];
-        for (int i = 0; i < environment.length; i++) {
-            environment[i] = random.nextInt(4); // Random values between 0 and 3
-        }
+    /**
+     * Gets the biases, for training or serialization. Changes write through to the layer.
+     *
+     * @return one bias per output
+     */
+    public float[] getBiases() {
+        return biases;
+    }
 
-        // Prepare input for the 15 neurons: 3 sets of 5 values (walls, snake, apple)
-        double[] inputData = new double[15];
-        
-        for (int i = 0; i < 5; i++) {
-            // Set the first 5 neurons to represent walls
-            inputData[i] = (environment[i] == 0) ? 1.0 : 0.0; // If it's a wall, set it to 1, otherwise 0
+    /**
+     * Gets the number of inputs.
+     *
+     * @return the input size
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
 
-            // Set the next 5 neurons to represent snake body
-            inputData[i + 5] = (environment[i] == 1) ? 1.0 : 0.0; // If it's snake body, set it to 1, otherwise 0
+    /**
+     * Gets the number of outputs.
+     *
+     * @return the output size
+     */
+    public int getOutputSize() {
+        return outputSize;
+    }
 
-            // Set the final 5 neurons to represent apple
-            inputData[i + 10] = (environment[i] == 3) ? 1.0 : 0.0; // If it's an apple, set it to 1, otherwise 0
-        }
+    /**
+     * Gets the activation applied to each output.
+     *
+     * @return the activation
+     */
+    public Activation getActivation() {
+        return activation;
+    }
+
+    public static void main(String[] args) {
+        // Observe the opening position of a real headless game
+        GameState state = new GameState(20, 20, new Random().nextLong());
+        float[] inputData = new ObservationEncoder().encode(state);  // 15 ray features: walls, snake body, apple
 
-        // Print out the environment for debugging
-        System.out.println("Generated environment: ");
-        for (int i = 0; i < environment.length; i++) {
-            System.out.println("Square " + i + ": " + environment[i] + " (0=Wall, 1=Snake Body, 2=Clear, 3=Apple)");
+        // Print out the observation for debugging
+        System.out.println("Head at (" + state.getHeadX() + ", " + state.getHeadY() + "), apple at ("
+                + state.getAppleX() + ", " + state.getAppleY() + ")");
+        String[] rays = {"left", "front-left", "front", "front-right", "right"};
+        for (int i = 0; i < ObservationEncoder.RAYS; i++) {
+            System.out.println("Ray " + rays[i] + ": wall " + inputData[i] + ", body " + inputData[i + 5]
+                    + " (1 / distance, 0 if none), apple " + inputData[i + 10] + " (1 if on the ray, otherwise 0)");
         }
 
         // Construct layers
-        Layer inputLayer = new Layer(15, 9, Layer.relu); // Input to Hidden Layer 1 (15 -> 9)
-        Layer hiddenLayer1 = new Layer(9, 6, Layer.relu); // Hidden Layer 1 to Hidden Layer 2 (9 -> 6)
-        Layer hiddenLayer2 = new Layer(6, 3, Layer.softmax); // Hidden Layer 2 to Output Layer (6 -> 3)
-
-        // Forward pass through the layers
-        inputLayer.forward(inputData);
-        double[] hiddenLayer1Outputs = inputLayer.getOutputs(); // Outputs of first hidden layer
-
-        hiddenLayer1.forward(hiddenLayer1Outputs);
-        double[] hiddenLayer2Outputs = hiddenLayer1.getOutputs(); // Outputs of second hidden layer
+        Layer inputLayer = new Layer(15, 9, Activation.RELU); // Input to Hidden Layer 1 (15 -> 9)
+        Layer hiddenLayer1 = new Layer(9, 6, Activation.RELU); // Hidden Layer 1 to Hidden Layer 2 (9 -> 6)
+        Layer hiddenLayer2 = new Layer(6, 3, Activation.SOFTMAX); // Hidden Layer 2 to Output Layer (6 -> 3)
 
-        hiddenLayer2.forward(hiddenLayer2Outputs);
-        double[] outputLayerOutputs = hiddenLayer2.getOutputs(); // Final output
+        // Forward pass through the layers, each writing into its own preallocated buffer
+        float[] hiddenLayer1Outputs = inputLayer.forward(inputData); // Outputs of first hidden layer
+        float[] hiddenLayer2Outputs = hiddenLayer1.forward(hiddenLayer1Outputs); // Outputs of second hidden layer
+        float[] outputLayerOutputs = hiddenLayer2.forward(hiddenLayer2Outputs); // Final output
 
         // Output the results (softmax probabilities)
         System.out.println("Output Layer Probabilities:");
-        for (double output : outputLayerOutputs) {
+        for (float output : outputLayerOutputs) {
             System.out.println(output);
         }
-        
+
         // Find and display the largest output
-        double maxOutput = outputLayerOutputs[0];
+        float maxOutput = outputLayerOutputs[0];
         int maxIndex = 0;
         for (int i = 1; i < outputLayerOutputs.length; i++) {
             if (outputLayerOutputs[i] > maxOutput) {
@@ -146,4 +308,5 @@ public class Layer {
         }
 
         System.out.println("The largest output is at index " + maxIndex + " with a value of " + maxOutput);
-    }}
+    }
+}
@@ -0,0 +1,333 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The Network class chains fully connected layers into a feed-forward network and saves and
+ * loads their weights.
+ *
+ * The network owns the scratch buffers passed between layers, so forward passes allocate
+ * nothing; batch buffers grow only when a larger batch than before is evaluated.
+ *
+ * Weights are stored in a compact little-endian binary file:
+ * <pre>
+ *     magic(4) version(2) reserved(2) layerCount(4)
+ *     layerCount x [ inputSize(4) outputSize(4) activation(4) ]
+ *     layerCount x [ weights(4 * inputSize * outputSize) biases(4 * outputSize) ]
+ * </pre>
+ * Files are read and written through memory mappings, and the floats are copied in bulk
+ * straight into the layers' arrays, so loading needs no parsing.
+ */
+public class Network {
+    public static final int MAGIC = 0x4E4B4E53;  // "SNKN" in little-endian byte order
+    public static final short VERSION = 1;       // Layout version written to every header
+    private static final int HEADER_BYTES = 12;  // magic(4) version(2) reserved(2) layerCount(4)
+    private static final int LAYER_HEADER_BYTES = 12;  // inputSize(4) outputSize(4) activation(4)
+    private static final Activation[] ACTIVATIONS = Activation.values();
+
+    private final Layer[] layers;        // Layers in evaluation order
+    private final float[][] scratch;     // Two buffers that hidden outputs alternate between
+    private float[][] batchScratch;      // The same for forwardBatch(), sized for the largest batch so far
+    private int batchCapacity;           // Samples batchScratch can hold
+
+    /**
+     * Constructs a Network from layers whose sizes chain together.
+     *
+     * @param layers the layers, first to last
+     * @throws IllegalArgumentException if there are no layers or a layer's input size is not
+     *                                  the previous layer's output size
+     */
+    public Network(Layer... layers) {
+        if (layers.length == 0) {
+            throw new IllegalArgumentException("A network needs at least one layer");
+        }
+        int widest = 0;
+        for (int l = 0; l < layers.length; l++) {
+            if (l > 0 && layers[l].getInputSize() != layers[l - 1].getOutputSize()) {
+                throw new IllegalArgumentException("Layer " + l + " takes " + layers[l].getInputSize()
+                        + " inputs but layer " + (l - 1) + " gives " + layers[l - 1].getOutputSize());
+            }
+            if (l < layers.length - 1) {
+                widest = Math.max(widest, layers[l].getOutputSize());
+            }
+        }
+        this.layers = layers.clone();
+        this.scratch = new float[][] {new float[widest], new float[widest]};
+        this.batchScratch = new float[][] {new float[0], new float[0]};
+    }
+
+    /**
+     * Constructs a randomly initialized Network.
+     *
+     * @param sizes the width of every level, from the inputs to the outputs
+     * @param hidden the activation of every layer but the last
+     * @param output the activation of the last layer
+     * @param random the generator the initial weights are drawn from
+     */
+    public Network(int[] sizes, Activation hidden, Activation output, Random random) {
+        this(createLayers(sizes, hidden, output, random));
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static Layer[] createLayers(int[] sizes, Activation hidden, Activation output, Random random) {
+        if (sizes.length < 2) {
+            throw new IllegalArgumentException("A network needs an input and an output size");
+        }
+        Layer[] layers = new Layer[sizes.length - 1];
+        for (int l = 0; l < layers.length; l++) {
+            layers[l] = new Layer(sizes[l], sizes[l + 1], l == layers.length - 1 ? output : hidden, random);
+        }
+        return layers;
+    }
+
+    private static long fileBytes(int layerCount, long parameters) {
+        return HEADER_BYTES + (long) LAYER_HEADER_BYTES * layerCount + (long) Float.BYTES * parameters;
+    }
+
+    private void ensureBatchCapacity(int batchSize) {
+        if (batchSize > batchCapacity) {
+            int length = batchSize * scratch[0].length;
+            batchScratch = new float[][] {new float[length], new float[length]};
+            batchCapacity = batchSize;
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Evaluates the network on one input vector, writing into a caller-supplied buffer.
+     *
+     * @param input the array holding the input vector
+     * @param inputOffset index of the input vector's first element
+     * @param output the array to write the output vector to
+     * @param outputOffset index the output vector starts at
+     */
+    public void forward(float[] input, int inputOffset, float[] output, int outputOffset) {
+        float[] source = input;
+        int sourceOffset = inputOffset;
+        for (int l = 0; l < layers.length; l++) {
+            boolean last = l == layers.length - 1;
+            float[] target = last ? output : scratch[l & 1];
+            int targetOffset = last ? outputOffset : 0;
+            layers[l].forward(source, sourceOffset, target, targetOffset);
+            source = target;
+            sourceOffset = targetOffset;
+        }
+    }
+
+    /**
+     * Evaluates the network on one input vector, writing into the last layer's own buffer.
+     *
+     * @param input the input vector, of length at least getInputSize()
+     * @return the last layer's output buffer, overwritten by the next call
+     */
+    public float[] forward(float[] input) {
+        Layer last = layers[layers.length - 1];
+        forward(input, 0, last.getOutputs(), 0);
+        return last.getOutputs();
+    }
+
+    /**
+     * Evaluates the network on a batch of input vectors with Layer.forwardBatch().
+     *
+     * @param inputs batchSize input vectors of getInputSize() floats each, back to back
+     * @param batchSize the number of input vectors
+     * @param out receives batchSize output vectors of getOutputSize() floats each, back to back
+     */
+    public void forwardBatch(float[] inputs, int batchSize, float[] out) {
+        ensureBatchCapacity(batchSize);
+        float[] source = inputs;
+        for (int l = 0; l < layers.length; l++) {
+            float[] target = l == layers.length - 1 ? out : batchScratch[l & 1];
+            layers[l].forwardBatch(source, batchSize, target);
+            source = target;
+        }
+    }
+
+    /**
+     * Writes the network's layout and weights to a file, replacing any existing file.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        long bytes = fileBytes(layers.length, getParameterCount());
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Network too large for a single mapping: " + bytes + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putShort((short) 0);  // Reserved
+            buffer.putInt(layers.length);
+            for (Layer layer : layers) {
+                buffer.putInt(layer.getInputSize());
+                buffer.putInt(layer.getOutputSize());
+                buffer.putInt(layer.getActivation().ordinal());
+            }
+            FloatBuffer floats = buffer.asFloatBuffer();
+            for (Layer layer : layers) {
+                floats.put(layer.getWeights());
+                floats.put(layer.getBiases());
+            }
+        }
+    }
+
+    /**
+     * Reads a network written by save().
+     *
+     * @param path the file to read
+     * @return a new network with the file's layout and weights
+     * @throws IOException if the file cannot be read, is truncated, or is not a network file
+     */
+    public static Network load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a network file: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a network file");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported network version " + version);
+            }
+            buffer.getShort();  // Reserved
+            int layerCount = buffer.getInt();
+            if (layerCount < 1 || size < fileBytes(layerCount, 0)) {
+                throw new IOException("Truncated network header");
+            }
+
+            int[] inputSizes = new int[layerCount];
+            int[] outputSizes = new int[layerCount];
+            Activation[] activations = new Activation[layerCount];
+            long parameters = 0;
+            for (int l = 0; l < layerCount; l++) {
+                inputSizes[l] = buffer.getInt();
+                outputSizes[l] = buffer.getInt();
+                int activation = buffer.getInt();
+                if (inputSizes[l] < 1 || outputSizes[l] < 1 || activation < 0 || activation >= ACTIVATIONS.length) {
+                    throw new IOException("Corrupt header of layer " + l);
+                }
+                activations[l] = ACTIVATIONS[activation];
+                parameters += ((long) inputSizes[l] + 1) * outputSizes[l];
+            }
+            if (size != fileBytes(layerCount, parameters)) {
+                throw new IOException("Network file is " + size + " bytes, expected " + fileBytes(layerCount, parameters));
+            }
+
+            FloatBuffer floats = buffer.asFloatBuffer();
+            Layer[] layers = new Layer[layerCount];
+            for (int l = 0; l < layerCount; l++) {
+                float[] weights = new float[inputSizes[l] * outputSizes[l]];
+                float[] biases = new float[outputSizes[l]];
+                floats.get(weights);
+                floats.get(biases);
+                layers[l] = new Layer(inputSizes[l], outputSizes[l], activations[l], weights, biases);
+            }
+            try {
+                return new Network(layers);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt network layout: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Copies every weight and bias into a flat array, layer by layer, weights before biases.
+     *
+     * @param target the array to copy to
+     * @param offset index of the first parameter in target
+     */
+    public void copyParametersTo(float[] target, int offset) {
+        for (Layer layer : layers) {
+            System.arraycopy(layer.getWeights(), 0, target, offset, layer.getWeights().length);
+            offset += layer.getWeights().length;
+            System.arraycopy(layer.getBiases(), 0, target, offset, layer.getBiases().length);
+            offset += layer.getBiases().length;
+        }
+    }
+
+    /**
+     * Replaces every weight and bias from a flat array laid out as by copyParametersTo().
+     *
+     * @param source the array to copy from
+     * @param offset index of the first parameter in source
+     */
+    public void copyParametersFrom(float[] source, int offset) {
+        for (Layer layer : layers) {
+            System.arraycopy(source, offset, layer.getWeights(), 0, layer.getWeights().length);
+            offset += layer.getWeights().length;
+            System.arraycopy(source, offset, layer.getBiases(), 0, layer.getBiases().length);
+            offset += layer.getBiases().length;
+        }
+    }
+
+    /**
+     * Gets a layer.
+     *
+     * @param index the layer's position, from 0 for the first
+     * @return the layer
+     */
+    public Layer getLayer(int index) {
+        return layers[index];
+    }
+
+    /**
+     * Gets the number of layers.
+     *
+     * @return the layer count
+     */
+    public int getLayerCount() {
+        return layers.length;
+    }
+
+    /**
+     * Gets the number of inputs of the first layer.
+     *
+     * @return the input size
+     */
+    public int getInputSize() {
+        return layers[0].getInputSize();
+    }
+
+    /**
+     * Gets the number of outputs of the last layer.
+     *
+     * @return the output size
+     */
+    public int getOutputSize() {
+        return layers[layers.length - 1].getOutputSize();
+    }
+
+    /**
+     * Gets the total number of weights and biases.
+     *
+     * @return the parameter count
+     */
+    public long getParameterCount() {
+        long parameters = 0;
+        for (Layer layer : layers) {
+            parameters += (long) layer.getWeights().length + layer.getBiases().length;
+        }
+        return parameters;
+    }
+}
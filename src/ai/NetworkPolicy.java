@@ -0,0 +1,74 @@
+package ai;
+
+import engine.GameState;
+import engine.Policy;
+import snake.Direction;
+
+/**
+ * The NetworkPolicy class drives the snake with a Network that sees the board relative to the
+ * snake's heading and picks one of three moves: turn left, go straight or turn right.
+ *
+ * The network reads the 15 ray features of an ObservationEncoder: inverse distances to the
+ * wall and the body, and whether the apple is in sight, along five rays around the head.
+ * Inputs go into a reused buffer, so choosing a move allocates nothing.
+ */
+public class NetworkPolicy implements Policy {
+    public static final int INPUTS = ObservationEncoder.FEATURES;  // Wall and body distances and apple sightings along five rays
+    public static final int OUTPUTS = 3;   // Turn left, go straight, turn right
+
+    private final Network network;                  // Scores the three moves
+    private final float[] inputs = new float[INPUTS];  // Observation of the current tick
+
+    /**
+     * Constructs a NetworkPolicy.
+     *
+     * @param network a network with 15 inputs and 3 outputs
+     * @throws IllegalArgumentException if the network has the wrong shape
+     */
+    public NetworkPolicy(Network network) {
+        if (network.getInputSize() != INPUTS || network.getOutputSize() != OUTPUTS) {
+            throw new IllegalArgumentException("Expected a " + INPUTS + " -> " + OUTPUTS + " network, got "
+                    + network.getInputSize() + " -> " + network.getOutputSize());
+        }
+        this.network = network;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Chooses the move the network scores highest.
+     *
+     * @param state the game to move in
+     * @return the direction to move in
+     */
+    @Override
+    public Direction.Dir chooseDirection(GameState state) {
+        ObservationEncoder.encode(state, inputs, 0);
+        float[] scores = network.forward(inputs);
+        int best = 1;
+        for (int move = 0; move < OUTPUTS; move++) {
+            if (scores[move] > scores[best]) {
+                best = move;
+            }
+        }
+        switch (best) {
+            case 0:
+                return state.getCurrentDirection().left();
+            case 2:
+                return state.getCurrentDirection().right();
+            default:
+                return state.getCurrentDirection();
+        }
+    }
+
+    /**
+     * Gets the network driving this policy.
+     *
+     * @return the network
+     */
+    public Network getNetwork() {
+        return network;
+    }
+}
@@ -0,0 +1,189 @@
+package ai;
+
+import engine.GameState;
+import engine.LockstepBatch;
+import engine.OccupancyGrid;
+import snake.Direction;
+
+/**
+ * The ObservationEncoder class turns a game into the 15 network inputs NetworkPolicy reads,
+ * as seen from the snake's head and relative to its heading.
+ *
+ * Five rays leave the head: left, front-left, front, front-right and right, where the
+ * diagonal rays step one column and one row at a time. Each ray gives three features, where
+ * distances are inverted so that 1 means adjacent and 0 means absent:
+ * <pre>
+ *     inputs 0-4    1 / steps to the wall along each ray
+ *     inputs 5-9    1 / steps to the first body cell along each ray, or 0 if there is none
+ *     inputs 10-14  1 if the apple lies on the ray, otherwise 0
+ * </pre>
+ * Wall distances and apple sightings are computed directly from the head position; only the
+ * body search walks the occupancy grid, and it stops at the first body cell.
+ * Features are written into caller-supplied arrays, so encoding allocates nothing, and a
+ * whole LockstepBatch or array of games can be encoded in one pass into a batch input
+ * buffer for Network.forwardBatch().
+ */
+public class ObservationEncoder {
+    public static final int RAYS = 5;                 // Left, front-left, front, front-right, right
+    public static final int FEATURES = 3 * RAYS;      // Wall, body and apple features per ray
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int[][] RAY_X = new int[DIRECTIONS.length][];  // Ray column steps, by heading ordinal
+    private static final int[][] RAY_Y = new int[DIRECTIONS.length][];  // Ray row steps, by heading ordinal
+    private static final Occupancy<OccupancyGrid> GRID = (grid, game, x, y) -> grid.isOccupied(x, y);  // Body test of a GameState
+    private static final Occupancy<LockstepBatch> BATCH = (batch, game, x, y) -> batch.isOccupied(game, x, y);  // Body test of a batch game
+
+    static {
+        for (Direction.Dir heading : DIRECTIONS) {
+            int fx = heading.dx();
+            int fy = heading.dy();
+            int lx = heading.left().dx();
+            int ly = heading.left().dy();
+            RAY_X[heading.ordinal()] = new int[] {lx, fx + lx, fx, fx - lx, -lx};
+            RAY_Y[heading.ordinal()] = new int[] {ly, fy + ly, fy, fy - ly, -ly};
+        }
+    }
+
+    private final float[] features = new float[FEATURES];  // Result of encode(GameState)
+
+    /**
+     * Tells whether a cell of a game holds the snake's body, for the board types encode() reads.
+     * Implementations capture nothing, so passing one allocates nothing.
+     */
+    private interface Occupancy<T> {
+        boolean isOccupied(T board, int game, int x, int y);
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Converts a distance in steps into a feature, with 0 standing for no hit.
+     */
+    private static float inverse(int steps) {
+        return steps == 0 ? 0f : 1f / steps;
+    }
+
+    /**
+     * Counts the steps from a position to the first one off the board along a ray.
+     */
+    private static int wallSteps(int x, int y, int dx, int dy, int cols, int rows) {
+        int steps = Integer.MAX_VALUE;
+        if (dx != 0) {
+            steps = dx > 0 ? cols - x : x + 1;
+        }
+        if (dy != 0) {
+            steps = Math.min(steps, dy > 0 ? rows - y : y + 1);
+        }
+        return steps;
+    }
+
+    /**
+     * Checks whether a cell lies on a ray, beyond its starting position.
+     */
+    private static boolean onRay(int x, int y, int dx, int dy, int cellX, int cellY) {
+        int ox = cellX - x;
+        int oy = cellY - y;
+        int steps = Math.max(Math.abs(ox), Math.abs(oy));
+        return steps > 0 && ox == dx * steps && oy == dy * steps;
+    }
+
+    /**
+     * Writes the wall, body and apple features of the five rays around a head.
+     *
+     * @param appleX the apple's column, ignored if hasApple is false
+     * @param appleY the apple's row, ignored if hasApple is false
+     * @param occupancy the body test for the board, given the board and the game
+     */
+    private static <T> void encodeRays(int headX, int headY, int heading, int cols, int rows,
+                                       boolean hasApple, int appleX, int appleY,
+                                       Occupancy<T> occupancy, T board, int game, float[] out, int offset) {
+        for (int r = 0; r < RAYS; r++) {
+            int dx = RAY_X[heading][r];
+            int dy = RAY_Y[heading][r];
+            int wall = wallSteps(headX, headY, dx, dy, cols, rows);
+            int body = 0;
+            for (int steps = 1; steps < wall; steps++) {
+                if (occupancy.isOccupied(board, game, headX + dx * steps, headY + dy * steps)) {
+                    body = steps;
+                    break;
+                }
+            }
+            out[offset + r] = inverse(wall);
+            out[offset + RAYS + r] = inverse(body);
+            out[offset + 2 * RAYS + r] = hasApple && onRay(headX, headY, dx, dy, appleX, appleY) ? 1f : 0f;
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Encodes a game into a caller-supplied buffer.
+     *
+     * @param state the game to observe
+     * @param out the array to write FEATURES floats to
+     * @param offset index of the first feature in out
+     */
+    public static void encode(GameState state, float[] out, int offset) {
+        encodeRays(state.getHeadX(), state.getHeadY(), state.getCurrentDirection().ordinal(),
+                state.getCols(), state.getRows(), state.hasApple(), state.getAppleX(), state.getAppleY(),
+                GRID, state.getOccupancy(), 0, out, offset);
+    }
+
+    /**
+     * Encodes one game of a lockstep batch into a caller-supplied buffer.
+     *
+     * @param batch the batch holding the game
+     * @param game the index of the game to observe
+     * @param out the array to write FEATURES floats to
+     * @param offset index of the first feature in out
+     */
+    public static void encode(LockstepBatch batch, int game, float[] out, int offset) {
+        int cols = batch.getCols();
+        int appleCell = batch.getAppleCell(game);
+        encodeRays(batch.getHeadX(game), batch.getHeadY(game), batch.getDirection(game),
+                cols, batch.getRows(), appleCell >= 0, appleCell % cols, appleCell / cols,
+                BATCH, batch, game, out, offset);
+    }
+
+    /**
+     * Encodes every game of a lockstep batch, back to back, in game order.
+     *
+     * @param batch the batch to observe
+     * @param out the array to write getGames() * FEATURES floats to
+     *
+     * Finished games are encoded too, from their last position, so that the rows of out
+     * always line up with the games of the batch.
+     */
+    public static void encodeBatch(LockstepBatch batch, float[] out) {
+        for (int game = 0; game < batch.getGames(); game++) {
+            encode(batch, game, out, game * FEATURES);
+        }
+    }
+
+    /**
+     * Encodes several games, back to back, in array order.
+     *
+     * @param states the games to observe
+     * @param count the number of games to encode, from the start of states
+     * @param out the array to write count * FEATURES floats to
+     */
+    public static void encodeBatch(GameState[] states, int count, float[] out) {
+        for (int i = 0; i < count; i++) {
+            encode(states[i], out, i * FEATURES);
+        }
+    }
+
+    /**
+     * Encodes a game into this encoder's own buffer.
+     *
+     * @param state the game to observe
+     * @return the encoder's buffer of FEATURES floats, overwritten by the next call
+     */
+    public float[] encode(GameState state) {
+        encode(state, features, 0);
+        return features;
+    }
+}
@@ -0,0 +1,328 @@
+package ai;
+
+import engine.BatchSimulator;
+import engine.GameState;
+import engine.SplitMix64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Trainer class evolves networks for NetworkPolicy with a genetic algorithm on the
+ * headless simulator.
+ *
+ * Every genome is the flat parameter array of one network, and the whole population lives in
+ * one float array, genome after genome. Each generation the genomes are evaluated in parallel:
+ * worker threads claim genomes from a shared counter, load them into their own network and
+ * play a few games with it, so evaluation allocates nothing. The best genomes then survive
+ * unchanged, and the rest of the next generation is bred by tournament selection, uniform
+ * crossover and Gaussian mutation, written straight into a second population array that is
+ * swapped in afterwards.
+ *
+ * All genomes of a generation play the same game seeds, so they are compared on equal terms.
+ * A training run is repeatable for a given seed, whatever the number of threads.
+ */
+public class Trainer implements AutoCloseable {
+    public static final int[] DEFAULT_SIZES = {NetworkPolicy.INPUTS, 9, 6, NetworkPolicy.OUTPUTS};
+    private static final int TOURNAMENT_SIZE = 3;     // Genomes drawn per parent selection
+    private static final float MUTATION_RATE = 0.1f;  // Chance of each parameter being mutated
+    private static final float MUTATION_SIGMA = 0.3f; // Standard deviation of a mutation
+    private static final float INITIAL_SIGMA = 0.5f;  // Standard deviation of the initial parameters
+    private static final double TICK_REWARD = 0.001;  // Fitness per tick survived, so early genomes that only avoid walls can be told apart
+
+    private final int[] sizes;             // Width of every level of the networks
+    private final int populationSize;      // Genomes per generation
+    private final int eliteCount;          // Best genomes copied unchanged into the next generation
+    private final int gamesPerEvaluation;  // Games each genome plays per generation
+    private final long starvationTicks;    // Ticks without eating before a game ends
+    private final long seed;               // Seed of the whole run
+    private final int genomeLength;        // Parameters per genome
+    private final Worker[] workers;        // One per thread, each with its own network and game
+    private final ForkJoinPool pool;       // Runs the workers
+    private final SplitMix64 random;       // Drives selection, crossover and mutation
+    private final double[] fitness;        // Fitness of each genome of the current generation
+    private final int[] ranking;           // Genome indices, best first
+    private float[] population;            // The current generation, genome after genome
+    private float[] offspring;             // The next generation, while it is bred
+    private final float[] bestGenome;      // Best genome ever evaluated
+    private double bestFitnessEver = Double.NEGATIVE_INFINITY;  // Fitness of bestGenome
+    private long generation;               // Generations completed
+    private volatile TrainingProgress progress;  // Snapshot of the last generation, for other threads
+    private volatile boolean stopRequested;      // Asks train() to return after the current generation
+
+    /**
+     * Plays games with one genome at a time, on one worker thread.
+     */
+    private final class Worker {
+        private final Network network = new Network(sizes, Activation.RELU, Activation.IDENTITY, new Random(0L));
+        private final NetworkPolicy policy = new NetworkPolicy(network);
+        private final GameState state;
+
+        Worker(int cols, int rows) {
+            this.state = new GameState(cols, rows, seed);
+        }
+
+        /**
+         * Evaluates genomes claimed from the shared counter until none are left.
+         */
+        void evaluate(long generationSeed, AtomicInteger nextGenome) {
+            int genome;
+            while ((genome = nextGenome.getAndIncrement()) < populationSize) {
+                network.copyParametersFrom(population, genome * genomeLength);
+                double total = 0;
+                for (int game = 0; game < gamesPerEvaluation; game++) {
+                    state.reset(SplitMix64.mix(generationSeed + game));
+                    BatchSimulator.playGame(state, policy, starvationTicks);
+                    total += (state.getLength() - 1) + TICK_REWARD * state.getTick();
+                }
+                fitness[genome] = total / gamesPerEvaluation;
+            }
+        }
+    }
+
+    /**
+     * Constructs a Trainer for networks of the default shape, 15 -> 9 -> 6 -> 3.
+     *
+     * @param cols the number of columns of the training board
+     * @param rows the number of rows of the training board
+     * @param populationSize the number of genomes per generation
+     * @param gamesPerEvaluation the number of games each genome plays per generation
+     * @param threads the number of worker threads
+     * @param seed the seed of the whole run
+     */
+    public Trainer(int cols, int rows, int populationSize, int gamesPerEvaluation, int threads, long seed) {
+        this(DEFAULT_SIZES, cols, rows, populationSize, gamesPerEvaluation, threads, seed);
+    }
+
+    /**
+     * Constructs a Trainer.
+     *
+     * @param sizes the width of every level of the networks, starting with 15 inputs and ending with 3 outputs
+     * @param cols the number of columns of the training board
+     * @param rows the number of rows of the training board
+     * @param populationSize the number of genomes per generation, at least 2
+     * @param gamesPerEvaluation the number of games each genome plays per generation, at least 1
+     * @param threads the number of worker threads, at least 1
+     * @param seed the seed of the whole run
+     * @throws IllegalArgumentException if a count is out of range
+     */
+    public Trainer(int[] sizes, int cols, int rows, int populationSize, int gamesPerEvaluation, int threads, long seed) {
+        if (populationSize < 2 || gamesPerEvaluation < 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid training setup: population " + populationSize
+                    + ", games " + gamesPerEvaluation + ", threads " + threads);
+        }
+        this.sizes = sizes.clone();
+        this.populationSize = populationSize;
+        this.eliteCount = Math.max(1, populationSize / 20);
+        this.gamesPerEvaluation = gamesPerEvaluation;
+        this.starvationTicks = 2L * cols * rows;
+        this.seed = seed;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(cols, rows);
+        }
+        this.genomeLength = (int) workers[0].network.getParameterCount();
+        this.pool = new ForkJoinPool(threads);
+        this.random = new SplitMix64(seed);
+        this.fitness = new double[populationSize];
+        this.ranking = new int[populationSize];
+        this.population = new float[populationSize * genomeLength];
+        this.offspring = new float[populationSize * genomeLength];
+        this.bestGenome = new float[genomeLength];
+        for (int i = 0; i < population.length; i++) {
+            population[i] = gaussian() * INITIAL_SIGMA;
+        }
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Draws a normally distributed float with the Box-Muller transform.
+     */
+    private float gaussian() {
+        float u = 1f - random.nextFloat();  // In (0, 1], so the logarithm is finite
+        float v = random.nextFloat();
+        return (float) (Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v));
+    }
+
+    /**
+     * Evaluates every genome of the current generation in parallel.
+     */
+    private void evaluatePopulation(long generationSeed) {
+        AtomicInteger nextGenome = new AtomicInteger();
+        List<Future<?>> running = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            running.add(pool.submit(() -> worker.evaluate(generationSeed, nextGenome)));
+        }
+        try {
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating a generation", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A training worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Sorts the genome indices by fitness, best first. Populations are small, so an insertion
+     * sort on primitives is enough and allocates nothing.
+     */
+    private void rankPopulation() {
+        for (int i = 0; i < populationSize; i++) {
+            int genome = i;
+            int j = i;
+            while (j > 0 && fitness[ranking[j - 1]] < fitness[genome]) {
+                ranking[j] = ranking[j - 1];
+                j--;
+            }
+            ranking[j] = genome;
+        }
+    }
+
+    /**
+     * Picks the fittest of a few random genomes.
+     */
+    private int tournament() {
+        int best = random.nextInt(populationSize);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int challenger = random.nextInt(populationSize);
+            if (fitness[challenger] > fitness[best]) {
+                best = challenger;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Breeds the next generation into the offspring array, then swaps it in.
+     */
+    private void breed() {
+        for (int e = 0; e < eliteCount; e++) {
+            System.arraycopy(population, ranking[e] * genomeLength, offspring, e * genomeLength, genomeLength);
+        }
+        for (int child = eliteCount; child < populationSize; child++) {
+            int first = tournament() * genomeLength;
+            int second = tournament() * genomeLength;
+            int target = child * genomeLength;
+            long bits = 0;
+            for (int i = 0; i < genomeLength; i++) {
+                if ((i & 63) == 0) {
+                    bits = random.nextLong();  // One random bit per gene picks its parent
+                }
+                float gene = (bits & 1L) == 0 ? population[first + i] : population[second + i];
+                bits >>>= 1;
+                if (random.nextFloat() < MUTATION_RATE) {
+                    gene += gaussian() * MUTATION_SIGMA;
+                }
+                offspring[target + i] = gene;
+            }
+        }
+        float[] previous = population;
+        population = offspring;
+        offspring = previous;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Evaluates the current generation and breeds the next one.
+     *
+     * @return a snapshot of the generation just evaluated
+     */
+    public TrainingProgress runGeneration() {
+        long start = System.nanoTime();
+        evaluatePopulation(SplitMix64.mix(seed ^ (generation + 1) * 0x9E3779B97F4A7C15L));
+        long elapsed = System.nanoTime() - start;
+
+        rankPopulation();
+        double mean = 0;
+        for (double value : fitness) {
+            mean += value;
+        }
+        mean /= populationSize;
+        double best = fitness[ranking[0]];
+        synchronized (bestGenome) {
+            if (best > bestFitnessEver) {
+                bestFitnessEver = best;
+                System.arraycopy(population, ranking[0] * genomeLength, bestGenome, 0, genomeLength);
+            }
+        }
+        breed();
+
+        generation++;
+        TrainingProgress snapshot = new TrainingProgress(generation, generation * populationSize, best, mean,
+                bestFitnessEver, populationSize * 1e9 / Math.max(1L, elapsed));
+        progress = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Runs generations until the limit is reached or requestStop() is called.
+     *
+     * @param generations the maximum number of generations to run
+     */
+    public void train(long generations) {
+        stopRequested = false;
+        for (long i = 0; i < generations && !stopRequested; i++) {
+            runGeneration();
+        }
+    }
+
+    /**
+     * Asks a running train() call to return after the current generation. Safe to call from any thread.
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Gets a snapshot of the last generation. Safe to call from any thread.
+     *
+     * @return the latest progress, or null before the first generation completes
+     */
+    public TrainingProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Builds a network holding the best genome found so far. Safe to call from any thread.
+     *
+     * @return a new network with the best parameters
+     */
+    public Network getBestNetwork() {
+        Network network = new Network(sizes, Activation.RELU, Activation.IDENTITY, new Random(0L));
+        synchronized (bestGenome) {
+            network.copyParametersFrom(bestGenome, 0);
+        }
+        return network;
+    }
+
+    /**
+     * Gets the number of parameters of each network.
+     *
+     * @return the genome length
+     */
+    public int getGenomeLength() {
+        return genomeLength;
+    }
+
+    /**
+     * Shuts the worker threads down.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
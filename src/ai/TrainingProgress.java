@@ -0,0 +1,99 @@
+package ai;
+
+/**
+ * The TrainingProgress class is an immutable snapshot of a Trainer after one generation. The
+ * trainer publishes a new one per generation, so the UI can poll it from any thread without
+ * locking or touching the population.
+ */
+public class TrainingProgress {
+    private final long generation;          // Generations completed
+    private final long evaluations;         // Networks evaluated so far
+    private final double bestFitness;       // Best fitness of the last generation
+    private final double meanFitness;       // Mean fitness of the last generation
+    private final double bestFitnessEver;   // Best fitness of any generation
+    private final double evaluationsPerSecond;  // Evaluation throughput of the last generation
+
+    /**
+     * Constructs a TrainingProgress snapshot.
+     *
+     * @param generation the number of generations completed
+     * @param evaluations the number of networks evaluated so far
+     * @param bestFitness the best fitness of the last generation
+     * @param meanFitness the mean fitness of the last generation
+     * @param bestFitnessEver the best fitness of any generation
+     * @param evaluationsPerSecond networks evaluated per second in the last generation
+     */
+    public TrainingProgress(long generation, long evaluations, double bestFitness, double meanFitness,
+                            double bestFitnessEver, double evaluationsPerSecond) {
+        this.generation = generation;
+        this.evaluations = evaluations;
+        this.bestFitness = bestFitness;
+        this.meanFitness = meanFitness;
+        this.bestFitnessEver = bestFitnessEver;
+        this.evaluationsPerSecond = evaluationsPerSecond;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the number of generations completed.
+     *
+     * @return the generation count
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the number of networks evaluated so far.
+     *
+     * @return the evaluation count
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Gets the best fitness of the last generation.
+     *
+     * @return the best fitness
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * Gets the mean fitness of the last generation.
+     *
+     * @return the mean fitness
+     */
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    /**
+     * Gets the best fitness of any generation so far.
+     *
+     * @return the best fitness ever
+     */
+    public double getBestFitnessEver() {
+        return bestFitnessEver;
+    }
+
+    /**
+     * Gets the evaluation throughput of the last generation.
+     *
+     * @return networks evaluated per second
+     */
+    public double getEvaluationsPerSecond() {
+        return evaluationsPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("generation %d: best %.2f, mean %.2f, best ever %.2f, %.0f evaluations/s",
+                generation, bestFitness, meanFitness, bestFitnessEver, evaluationsPerSecond);
+    }
+}
@@ -22,6 +22,20 @@ public class Apple {
         this.y = y;
     }
 
+    /**
+     * Moves the apple to a new position on the grid.
+     * 
+     * @param x the x-coordinate (column) where the apple is placed
+     * @param y the y-coordinate (row) where the apple is placed
+     * 
+     * This method lets the game reuse one apple for its whole lifetime instead of
+     * creating a new one every time an apple is eaten.
+     */
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
     /**
      * Retrieves the x-coordinate (column) of the apple's position.
      * 
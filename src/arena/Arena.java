@@ -1,32 +1,23 @@
 package arena;
 
-import snake.SnakeLinkedList;
+import engine.GameState;
 import snake.SnakeNode;
 import snake.Direction;
-import apple.Apple;
 
-import javafx.beans.binding.Bindings;
+import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.layout.GridPane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
 
 /**
- * Represents the game arena for the Snake game. The arena is an 8x8 grid
- * where the snake moves, apples are placed, and the game logic is processed.
+ * Represents the game arena for the Snake game. The arena is a grid, 8x8 unless configured
+ * otherwise, where the snake moves and apples are placed.
+ *
+ * The game itself is simulated by a headless GameState; the arena displays it through a
+ * BoardView that observes the state, and forwards the game controls to it.
  */
 public class Arena {
-    private final int rows = 8;  // Number of rows in the arena grid
-    private final int cols = 8;  // Number of columns in the arena grid
-    private final int totalCells = rows * cols;  // Total number of cells in the grid
-    private final Map<String, Rectangle> tileMap = new HashMap<>();  // Stores grid tiles for easy access
-    private GridPane grid;  // The grid structure for the game arena
-    private SnakeLinkedList snake;  // Snake object managing the snake's movement
-    private Apple apple;  // The current apple object in the game
+    public static final int DEFAULT_SIZE = 8;  // Number of rows and columns unless configured otherwise
+    private final GameState state;  // The headless game being displayed
+    private final BoardView view;  // Renders the game into the scene
 
     /**
      * Constructs an Arena object and initializes the grid and the game components.
@@ -36,137 +27,35 @@ public class Arena {
      * This constructor initializes the snake and apple and sets up the visual grid for the game.
      */
     public Arena(Scene scene) {
-        grid = new GridPane();
-        resetGame();  // Initialize the snake and apple when the game starts
-        initializeGrid(scene);  // Create the grid based on the scene
-    }
-
-    /**
-    /* Private methods follow
-    /**/
-
-    /**
-     * Initializes the grid for the arena, creating a grid of tiles and binding them
-     * to the scene's size.
-     *
-     * @param scene the scene of the game, used for binding grid elements to window size
-     *
-     * This method generates the grid, adjusting each tile's size relative to the scene,
-     * and assigns colors for the empty grid tiles.
-     */
-    private void initializeGrid(Scene scene) {
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Rectangle tile = new Rectangle();
-
-                // Bind the tile size to the smaller dimension of the scene
-                tile.widthProperty().bind(Bindings.min(scene.widthProperty().multiply(0.7).divide(cols),
-                                                       scene.heightProperty().multiply(0.7).divide(rows)));
-                tile.heightProperty().bind(tile.widthProperty());
-                tile.setFill(Color.DARKGRAY);
-
-                // Store each tile with its grid position as key (e.g., "0,0" -> tile at (0,0))
-                tileMap.put(r + "," + c, tile);
-                grid.add(tile, c, r);
-            }
-        }
-
-        updateSnakeDisplay();  // Initial display of the snake
-        updateAppleDisplay();  // Initial display of the apple
-    }
-
-    /**
-     * Updates the visual display of the snake on the grid by coloring the grid cells occupied by the snake.
-     *
-     * The grid is first cleared, then the snake's body is displayed in green.
-     */
-    private void updateSnakeDisplay() {
-        clearGrid();  // Reset the grid before updating
-        SnakeNode current = snake.getHead();
-
-        // Traverse through the snake linked list and update the grid
-        while (current != null) {
-            String position = current.getY() + "," + current.getX();
-            Rectangle tile = tileMap.get(position);
-            if (tile != null) {
-                tile.setFill(Color.LIMEGREEN);  // Snake body color
-            }
-            current = current.getNext();
-        }
+        this(scene, DEFAULT_SIZE, DEFAULT_SIZE, System.nanoTime(), RenderMode.GRID);
     }
 
     /**
-     * Updates the visual display of the apple on the grid by coloring the grid cell occupied by the apple.
+     * Constructs an Arena object of a given size whose games are reproducible from a seed.
      *
-     * The grid cell where the apple is located is displayed in red.
-     */
-    private void updateAppleDisplay() {
-        String position = apple.getY() + "," + apple.getX();
-        Rectangle tile = tileMap.get(position);
-        if (tile != null) {
-            tile.setFill(Color.RED);  // Apple color
-        }
-    }
-
-    /**
-     * Clears the entire grid, resetting all tiles to their default color.
+     * @param scene the scene of the game, used to size the board to the window
+     * @param cols the number of columns in the arena grid
+     * @param rows the number of rows in the arena grid
+     * @param seed the seed from which every game's apple placement is derived
+     * @param mode how the board is drawn
      *
-     * This method is used to refresh the grid before updating the snake and apple positions.
+     * Each call to resetGame() draws the next game seed from this seed, so the same seed and the
+     * same inputs always produce the same sequence of apples.
      */
-    private void clearGrid() {
-        for (Rectangle tile : tileMap.values()) {
-            tile.setFill(Color.DARKGRAY);  // Reset to the default grid color
+    public Arena(Scene scene, int cols, int rows, long seed, RenderMode mode) {
+        state = new GameState(cols, rows, seed);  // Initialize the snake and apple when the game starts
+        switch (mode) {
+            case CANVAS:
+                view = new CanvasBoardView(state, scene.widthProperty(), scene.heightProperty());
+                break;
+            case IMAGE:
+                view = new ImageBoardView(state, scene.widthProperty(), scene.heightProperty());
+                break;
+            default:
+                view = new GridBoardView(state, scene.widthProperty(), scene.heightProperty());
+                break;
         }
-    }
-
-    /**
-     * Checks if the snake's head has collided with the apple (i.e., they share the same grid position).
-     *
-     * @return true if the snake's head is on the same position as the apple, otherwise false
-     *
-     * This method is used to determine if the snake has eaten the apple.
-     */
-    private boolean checkAppleCollision() {
-        SnakeNode head = snake.getHead();
-        return head.getX() == apple.getX() && head.getY() == apple.getY();
-    }
-
-    /**
-     * Generates a new apple in a random position that is not occupied by the snake.
-     *
-     * The apple's position is generated randomly within the grid, and this method ensures the apple
-     * does not appear on the snake's body.
-     */
-    private void generateApple() {
-        Random random = new Random();
-        int x, y;
-
-        do {
-            x = random.nextInt(cols);
-            y = random.nextInt(rows);
-        } while (isSnakeAtPosition(x, y));  // Ensure the apple isn't placed on the snake
-
-        apple = new Apple(x, y);
-    }
-
-    /**
-     * Checks if the snake is occupying a specific position in the grid.
-     *
-     * @param x the x-coordinate (column) of the grid position
-     * @param y the y-coordinate (row) of the grid position
-     * @return true if the snake is occupying the given position, otherwise false
-     *
-     * This method is used to ensure apples do not spawn on the snake's body.
-     */
-    private boolean isSnakeAtPosition(int x, int y) {
-        SnakeNode current = snake.getHead();
-        while (current != null) {
-            if (current.getX() == x && current.getY() == y) {
-                return true;
-            }
-            current = current.getNext();
-        }
-        return false;
+        state.addObserver(view);  // Repaint whenever the game changes
     }
 
     /**
@@ -176,13 +65,11 @@ public class Arena {
     /**
      * Resets the game by re-initializing the snake and apple.
      *
-     * This method places the snake back at the center of the grid and generates a new apple.
+     * This method places the snake back at the center of the grid, reseeds apple placement with
+     * the next game seed and generates a new apple.
      */
     public void resetGame() {
-        snake = new SnakeLinkedList(cols / 2, rows / 2);  // Reset the snake at the center
-        generateApple();  // Generate a new apple
-        updateSnakeDisplay();
-        updateAppleDisplay();
+        state.reset();
     }
 
     /**
@@ -192,30 +79,30 @@ public class Arena {
      * if the player has won by filling the entire arena with the snake.
      */
     public void update() {
-        snake.move();
-        if (checkAppleCollision()) {
-            snake.grow();
-
-            // Check if the snake has filled the entire arena (win condition)
-            if (snake.getLength() == totalCells) {
-                return;  // Trigger win condition or handle it externally
-            }
+        state.update();
+    }
 
-            generateApple();  // Generate a new apple if the player hasn't won yet
-        }
-        updateSnakeDisplay();
-        updateAppleDisplay();
+    /**
+     * Draws the latest state of the game.
+     *
+     * @param alpha how far the simulation is into the next tick, from 0 to 1, for interpolation
+     *
+     * This method must be called on the JavaFX thread while holding the lock of getState(),
+     * so that no tick runs while the board is drawn.
+     */
+    public void render(double alpha) {
+        view.render(alpha);
     }
 
     /**
      * Gets the head node of the snake.
      *
-     * @return the head SnakeNode of the snake
+     * @return a SnakeNode holding the position of the snake's head
      *
      * This method is useful for checking the snake's position and handling movement or collisions.
      */
     public SnakeNode getSnakeHead() {
-        return snake.getHead();
+        return new SnakeNode(state.getHeadX(), state.getHeadY());
     }
 
     /**
@@ -226,7 +113,7 @@ public class Arena {
      * This method is used to query the snake's current movement direction.
      */
     public Direction.Dir getCurrentDirection() {
-        return snake.getCurrentDirection();
+        return state.getCurrentDirection();
     }
 
     /**
@@ -237,7 +124,7 @@ public class Arena {
      * This method is used to modify the snake's movement direction during gameplay.
      */
     public void changeSnakeDirection(Direction.Dir direction) {
-        snake.changeDirection(direction);
+        state.changeDirection(direction);
     }
 
     /**
@@ -246,23 +133,10 @@ public class Arena {
      * @return true if a collision occurred, otherwise false
      *
      * This method checks both wall collisions (snake hitting the edges of the grid) and self-collisions
-     * (snake running into its own body).
+     * (snake running into its own body). Both checks are constant time.
      */
     public boolean checkCollisions() {
-        SnakeNode head = snake.getHead();
-        // Wall collision
-        if (head.getX() < 0 || head.getX() >= cols || head.getY() < 0 || head.getY() >= rows) {
-            return true;
-        }
-        // Self-collision
-        SnakeNode current = head.getNext();
-        while (current != null) {
-            if (head.getX() == current.getX() && head.getY() == current.getY()) {
-                return true;
-            }
-            current = current.getNext();
-        }
-        return false;
+        return state.checkCollisions();
     }
 
     /**
@@ -273,18 +147,41 @@ public class Arena {
      * This method determines if the game has been won by checking if the snake has reached the maximum length.
      */
     public boolean checkWinCondition() {
-        return snake.getLength() == totalCells;  // Win if the snake occupies all cells
+        return state.checkWinCondition();
     }
 
     /**
-     * Retrieves the visual GridPane of the arena for display purposes.
+     * Retrieves the seed of the game currently being played.
      *
-     * @return the GridPane representing the game arena
+     * @return the seed that apple placement was reset with at the start of this game
      *
-     * This method returns the arena's grid, which can be used to add to a scene or modify further.
+     * Together with the player's inputs, this seed is enough to reproduce the game exactly.
      */
-    public GridPane getGrid() {
-        return grid;
+    public long getGameSeed() {
+        return state.getGameSeed();
+    }
+
+    /**
+     * Retrieves the headless game state behind the arena.
+     *
+     * @return the GameState being displayed
+     *
+     * This method gives controllers and agents direct access to the simulation.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Retrieves the node that displays the arena.
+     *
+     * @return the JavaFX node the board is drawn in
+     *
+     * This method returns the arena's view, which can be added to a scene; depending on the
+     * render mode it is a grid of tiles or a single canvas.
+     */
+    public Node getView() {
+        return view.getNode();
     }
 
     /**
@@ -295,7 +192,28 @@ public class Arena {
      * This method provides easy access to the current position of the snake's head for collision detection or movement.
      */
     public int[] getHeadPosition() {
-        SnakeNode head = snake.getHead();
-        return new int[]{head.getX(), head.getY()};
+        return new int[]{state.getHeadX(), state.getHeadY()};
+    }
+
+    /**
+     * Retrieves the x-coordinate of the snake's head.
+     *
+     * @return the x-coordinate (column) of the snake's head
+     *
+     * Unlike getSnakeHead() and getHeadPosition(), this method does not allocate and is safe to call every tick.
+     */
+    public int getHeadX() {
+        return state.getHeadX();
+    }
+
+    /**
+     * Retrieves the y-coordinate of the snake's head.
+     *
+     * @return the y-coordinate (row) of the snake's head
+     *
+     * Unlike getSnakeHead() and getHeadPosition(), this method does not allocate and is safe to call every tick.
+     */
+    public int getHeadY() {
+        return state.getHeadY();
     }
 }
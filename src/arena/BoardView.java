@@ -0,0 +1,167 @@
+package arena;
+
+import engine.GameObserver;
+import engine.GameState;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * The BoardView class is the base of the JavaFX renderers for a GameState. It observes the game,
+ * collects the cells each tick changes and repaints only those on the next frame; subclasses
+ * decide how a single cell is drawn.
+ */
+public abstract class BoardView implements GameObserver {
+    protected static final Color EMPTY_COLOR = Color.DARKGRAY;   // Default grid color
+    protected static final Color SNAKE_COLOR = Color.LIMEGREEN;  // Snake body color
+    protected static final Color APPLE_COLOR = Color.RED;        // Apple color
+
+    protected final GameState state;  // The game being displayed
+    protected final int cols;         // Number of columns on the board
+    protected final int rows;         // Number of rows on the board
+    private final DirtyCells dirtyCells;  // Cells changed since the last repaint
+
+    /**
+     * Constructs a BoardView for a game.
+     *
+     * @param state the game to display
+     */
+    protected BoardView(GameState state) {
+        this.state = state;
+        this.cols = state.getCols();
+        this.rows = state.getRows();
+        this.dirtyCells = new DirtyCells(cols * rows);
+    }
+
+    /**
+    /* Protected methods follow
+    /**/
+
+    /**
+     * Draws a single cell in the given color.
+     *
+     * @param cell the cell index (y * cols + x)
+     * @param color the color to draw the cell in
+     */
+    protected abstract void fillCell(int cell, Color color);
+
+    /**
+     * Works out the color a cell should be drawn in from the current game.
+     *
+     * @param cell the cell index
+     * @return green for the snake, red for the apple, and the default color otherwise
+     */
+    protected Color colorOf(int cell) {
+        if (state.getOccupancy().isOccupied(cell)) {
+            return SNAKE_COLOR;
+        }
+        return cell == state.getAppleCell() ? APPLE_COLOR : EMPTY_COLOR;
+    }
+
+    /**
+     * Repaints every cell of the board.
+     */
+    protected void repaintAll() {
+        int totalCells = cols * rows;
+        for (int cell = 0; cell < totalCells; cell++) {
+            fillCell(cell, colorOf(cell));
+        }
+    }
+
+    /**
+     * Marks a cell to be repainted on the next frame.
+     *
+     * @param cell the cell index, or -1
+     */
+    protected void markDirty(int cell) {
+        dirtyCells.mark(cell);
+    }
+
+    /**
+     * Marks the whole board to be repainted on the next frame.
+     */
+    protected void markAllDirty() {
+        dirtyCells.markAll();
+    }
+
+    /**
+     * Draws the snake part of the way into its next cell. Views that cannot draw partial
+     * cells leave this empty.
+     *
+     * @param alpha how far the simulation is into the next tick, from 0 to 1
+     */
+    protected void drawInterpolation(double alpha) {
+    }
+
+    /**
+     * Repaints the cells that changed since the last repaint.
+     *
+     * Only the dirty cells are touched, so the cost of a frame grows with the cells that
+     * changed, not with the size of the board. A full repaint is done only when one was
+     * requested, after a reset or a resize.
+     */
+    protected void repaint() {
+        if (dirtyCells.isFullRepaint()) {
+            repaintAll();
+        } else {
+            for (int i = 0; i < dirtyCells.size(); i++) {
+                int cell = dirtyCells.get(i);
+                fillCell(cell, colorOf(cell));
+            }
+        }
+        dirtyCells.clear();
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the JavaFX node that displays the board.
+     *
+     * @return the node to place in the scene
+     */
+    public abstract Node getNode();
+
+    /**
+     * Draws a frame: repaints the cells changed since the last frame, then the interpolated head.
+     *
+     * @param alpha how far the simulation is into the next tick, from 0 to 1
+     *
+     * This method must be called on the JavaFX thread while no tick is running, so the view
+     * sees a consistent game.
+     */
+    public void render(double alpha) {
+        repaint();
+        drawInterpolation(alpha);
+    }
+
+    /**
+     * Marks the whole board to be repainted after the game has been reset.
+     *
+     * @param state the game that was reset
+     */
+    @Override
+    public void gameReset(GameState state) {
+        dirtyCells.markAll();
+    }
+
+    /**
+     * Marks the cells changed by the last tick to be repainted: the new head, the vacated tail,
+     * and the old and new apple.
+     *
+     * @param state the game that was stepped
+     *
+     * This method only records the changes, so it is cheap to call on the simulation thread
+     * however many ticks run between two frames.
+     */
+    @Override
+    public void gameStepped(GameState state) {
+        if (!state.isWallCollision()) {
+            dirtyCells.mark(state.getOccupancy().cellOf(state.getHeadX(), state.getHeadY()));
+        }
+        dirtyCells.mark(state.getVacatedCell());
+        dirtyCells.mark(state.getPreviousAppleCell());
+        dirtyCells.mark(state.getAppleCell());
+    }
+}
@@ -0,0 +1,128 @@
+package arena;
+
+import engine.GameState;
+import snake.Direction;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.binding.DoubleExpression;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * The CanvasBoardView class draws the board onto a single Canvas instead of one node per cell.
+ * A single listener on the window size recomputes the tile size and redraws the board, so startup
+ * and resizing stay cheap on large boards.
+ */
+public class CanvasBoardView extends BoardView {
+    private final Canvas canvas = new Canvas();  // The surface the whole board is drawn on
+    private final GraphicsContext graphics;      // Drawing context of the canvas
+    private double tileSize;                     // Current side length of a tile in pixels
+    private boolean resized;                     // Set when the canvas needs a full repaint after a resize
+
+    /**
+     * Constructs a CanvasBoardView sized to the window.
+     *
+     * @param state the game to display
+     * @param width the width the board is sized against, normally the scene's width
+     * @param height the height the board is sized against, normally the scene's height
+     */
+    public CanvasBoardView(GameState state, DoubleExpression width, DoubleExpression height) {
+        super(state);
+        graphics = canvas.getGraphicsContext2D();
+
+        // One listener for both dimensions, matching the 70% sizing of the tile grid
+        InvalidationListener resize = observable -> resize(width.get(), height.get());
+        width.addListener(resize);
+        height.addListener(resize);
+        resize(width.get(), height.get());
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Resizes the canvas to fit the window and schedules a redraw of the whole board.
+     *
+     * @param width the width of the window
+     * @param height the height of the window
+     */
+    private void resize(double width, double height) {
+        tileSize = Math.min(width * 0.7 / cols, height * 0.7 / rows);
+        canvas.setWidth(tileSize * cols);
+        canvas.setHeight(tileSize * rows);
+        resized = true;  // Redrawn on the next frame, when the game is not being stepped
+    }
+
+    /**
+    /* Protected methods follow
+    /**/
+
+    /**
+     * Fills the square of a cell on the canvas.
+     *
+     * @param cell the cell index
+     * @param color the color to fill the square with
+     */
+    @Override
+    protected void fillCell(int cell, Color color) {
+        graphics.setFill(color);
+        graphics.fillRect((cell % cols) * tileSize, (cell / cols) * tileSize, tileSize, tileSize);
+    }
+
+    /**
+     * Draws the head part of the way into the cell it is moving to.
+     *
+     * @param alpha how far the simulation is into the next tick, from 0 to 1
+     *
+     * The partly drawn cell is marked dirty so the next frame paints over it.
+     */
+    @Override
+    protected void drawInterpolation(double alpha) {
+        if (alpha <= 0.0 || state.isOver()) {
+            return;
+        }
+        Direction.Dir direction = state.getCurrentDirection();
+        int x = state.getHeadX() + direction.dx();
+        int y = state.getHeadY() + direction.dy();
+        if (state.getOccupancy().isInside(x, y) && !state.getOccupancy().isOccupied(x, y)) {
+            double reach = tileSize * alpha;
+            double left = direction == Direction.Dir.LEFT ? (x + 1) * tileSize - reach : x * tileSize;
+            double top = direction == Direction.Dir.UP ? (y + 1) * tileSize - reach : y * tileSize;
+            boolean horizontal = direction == Direction.Dir.LEFT || direction == Direction.Dir.RIGHT;
+            graphics.setFill(SNAKE_COLOR);
+            graphics.fillRect(left, top, horizontal ? reach : tileSize, horizontal ? tileSize : reach);
+            markDirty(state.getOccupancy().cellOf(x, y));
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Draws a frame, repainting the whole board first if the window was resized.
+     *
+     * @param alpha how far the simulation is into the next tick, from 0 to 1
+     */
+    @Override
+    public void render(double alpha) {
+        if (resized) {
+            resized = false;
+            markAllDirty();
+        }
+        super.render(alpha);
+    }
+
+    /**
+     * Gets the canvas the board is drawn on.
+     *
+     * @return the canvas
+     */
+    @Override
+    public Node getNode() {
+        return canvas;
+    }
+}
@@ -0,0 +1,92 @@
+package arena;
+
+/**
+ * The DirtyCells class collects the board cells that changed since the last repaint,
+ * without duplicates and without allocating. The list has room for every cell of the board,
+ * so however many ticks run between two frames only the changed cells are repainted; the
+ * whole board is repainted only when asked for with markAll().
+ */
+public class DirtyCells {
+    private final int[] cells;   // Cells marked dirty since the last drain, in marking order
+    private final long[] marks;  // One bit per board cell, set while the cell is listed
+    private int count;           // Number of listed cells
+    private boolean everything;  // Set when the whole board needs repainting
+
+    /**
+     * Constructs an empty DirtyCells set.
+     *
+     * @param cellCount the number of cells on the board
+     */
+    public DirtyCells(int cellCount) {
+        cells = new int[cellCount];
+        marks = new long[(cellCount + 63) >>> 6];
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Marks a cell as needing a repaint. Negative cells are ignored.
+     *
+     * @param cell the cell index, or -1
+     */
+    public void mark(int cell) {
+        if (cell < 0 || everything) {
+            return;
+        }
+        long bit = 1L << cell;
+        if ((marks[cell >>> 6] & bit) != 0) {
+            return;
+        }
+        marks[cell >>> 6] |= bit;
+        cells[count++] = cell;
+    }
+
+    /**
+     * Requests a repaint of the whole board.
+     */
+    public void markAll() {
+        everything = true;
+    }
+
+    /**
+     * Checks whether the whole board needs repainting.
+     *
+     * @return true if markAll() was called since the last clear()
+     */
+    public boolean isFullRepaint() {
+        return everything;
+    }
+
+    /**
+     * Gets the number of listed cells.
+     *
+     * @return the number of dirty cells to repaint
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets a listed cell.
+     *
+     * @param index the position in the list, from 0 to size() - 1
+     * @return the cell index
+     */
+    public int get(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Empties the set after a repaint.
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            marks[cell >>> 6] &= ~(1L << cell);
+        }
+        count = 0;
+        everything = false;
+    }
+}
@@ -0,0 +1,94 @@
+package arena;
+
+import engine.GameState;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.DoubleExpression;
+import javafx.scene.Node;
+import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * The GridBoardView class draws the board as a GridPane with one Rectangle per cell,
+ * each bound to the size of the window.
+ */
+public class GridBoardView extends BoardView {
+    private final Rectangle[] tiles;  // Grid tiles indexed by cell (y * cols + x)
+    private final GridPane grid = new GridPane();  // The grid structure for the game arena
+
+    /**
+     * Constructs a GridBoardView and creates its tiles.
+     *
+     * @param state the game to display
+     * @param width the width the board is sized against, normally the scene's width
+     * @param height the height the board is sized against, normally the scene's height
+     */
+    public GridBoardView(GameState state, DoubleExpression width, DoubleExpression height) {
+        super(state);
+        tiles = new Rectangle[cols * rows];
+        initializeGrid(width, height);
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Initializes the grid, creating a grid of tiles and binding them to the window's size.
+     *
+     * @param width the width the tiles are bound to
+     * @param height the height the tiles are bound to
+     *
+     * This method generates the grid, adjusting each tile's size relative to the window,
+     * and paints the current state of the game.
+     */
+    private void initializeGrid(DoubleExpression width, DoubleExpression height) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Rectangle tile = new Rectangle();
+
+                // Bind the tile size to the smaller dimension of the window
+                tile.widthProperty().bind(Bindings.min(width.multiply(0.7).divide(cols),
+                                                       height.multiply(0.7).divide(rows)));
+                tile.heightProperty().bind(tile.widthProperty());
+                tile.setFill(EMPTY_COLOR);
+
+                // Store each tile at its cell index, so lookups need no key objects
+                tiles[r * cols + c] = tile;
+                grid.add(tile, c, r);
+            }
+        }
+
+        repaintAll();  // Initial display of the snake and apple
+    }
+
+    /**
+    /* Protected methods follow
+    /**/
+
+    /**
+     * Sets the fill of the tile for a cell.
+     *
+     * @param cell the cell index
+     * @param color the color to fill the tile with
+     */
+    @Override
+    protected void fillCell(int cell, Color color) {
+        tiles[cell].setFill(color);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the GridPane holding the tiles.
+     *
+     * @return the grid of tiles
+     */
+    @Override
+    public Node getNode() {
+        return grid;
+    }
+}
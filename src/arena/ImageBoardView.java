@@ -0,0 +1,71 @@
+package arena;
+
+import engine.GameState;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.DoubleExpression;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * The ImageBoardView class draws the board into a WritableImage with one pixel per cell,
+ * scaled up to the window by an ImageView. It needs no node and no drawing command per cell,
+ * so it handles boards of thousands of cells on a side.
+ */
+public class ImageBoardView extends BoardView {
+    private final WritableImage image;  // One pixel per cell
+    private final PixelWriter pixels;   // Writer for the image's pixels
+    private final ImageView imageView;  // Scales the image to the window
+
+    /**
+     * Constructs an ImageBoardView sized to the window.
+     *
+     * @param state the game to display
+     * @param width the width the board is sized against, normally the scene's width
+     * @param height the height the board is sized against, normally the scene's height
+     */
+    public ImageBoardView(GameState state, DoubleExpression width, DoubleExpression height) {
+        super(state);
+        image = new WritableImage(cols, rows);
+        pixels = image.getPixelWriter();
+        imageView = new ImageView(image);
+        imageView.setSmooth(false);  // Keep cell edges sharp when scaled up
+        imageView.setPreserveRatio(true);
+
+        // Fit the image into the same 70% of the window the other views use
+        imageView.fitWidthProperty().bind(Bindings.min(width.multiply(0.7), height.multiply(0.7).multiply(cols).divide(rows)));
+        repaintAll();
+    }
+
+    /**
+    /* Protected methods follow
+    /**/
+
+    /**
+     * Sets the pixel of a cell.
+     *
+     * @param cell the cell index
+     * @param color the color of the cell
+     */
+    @Override
+    protected void fillCell(int cell, Color color) {
+        pixels.setColor(cell % cols, cell / cols, color);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the ImageView showing the board.
+     *
+     * @return the image view
+     */
+    @Override
+    public Node getNode() {
+        return imageView;
+    }
+}
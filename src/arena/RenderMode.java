@@ -0,0 +1,37 @@
+package arena;
+
+/**
+ * The RenderMode enum selects how the arena draws the board.
+ */
+public enum RenderMode {
+    GRID,    // One Rectangle node per cell in a GridPane
+    CANVAS,  // The whole board drawn onto a single Canvas
+    IMAGE;   // One pixel per cell in a WritableImage, scaled to the window
+
+    private static final int MAX_GRID_CELLS = 64 * 64;  // Largest board drawn with one node per cell by default
+
+    /**
+     * Looks up a render mode by name, ignoring case.
+     *
+     * @param name the name of the mode, such as "grid", "canvas" or "image", or null
+     * @return the matching mode, or GRID if the name is null
+     */
+    public static RenderMode fromName(String name) {
+        return name == null ? GRID : valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * Looks up a render mode by name, choosing one that suits the board size if no name is given.
+     *
+     * @param name the name of the mode, or null
+     * @param cols the number of columns on the board
+     * @param rows the number of rows on the board
+     * @return the named mode, or GRID for small boards and IMAGE for large ones
+     */
+    public static RenderMode fromName(String name, int cols, int rows) {
+        if (name != null) {
+            return fromName(name);
+        }
+        return (long) cols * rows <= MAX_GRID_CELLS ? GRID : IMAGE;
+    }
+}
@@ -1,13 +1,24 @@
 package arena;
 
+import ai.TrainingProgress;
+import controller.CommandLog;
 import controller.GameController;
+import controller.GameLoop;
+import controller.GameMetrics;
+import controller.Histogram;
+import engine.HamiltonianPolicy;
+import engine.MctsPolicy;
+import engine.PathfindingPolicy;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.beans.binding.Bindings;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -15,12 +26,19 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import javax.management.JMException;
+
+import java.nio.file.Paths;
+import java.util.Map;
 
 /**
  * The Window class is responsible for setting up the main game window for the Snake game.
  * It extends JavaFX's Application class and arranges various panes for the game's user interface.
  */
 public class Window extends Application {
+    private MctsPolicy searchPilot;  // The MCTS autopilot, whose worker threads are shut down with the window, or null
 
     /**
     /* Private methods follow
@@ -44,11 +62,48 @@ public class Window extends Application {
         // Set the window size to 700x600
         Scene scene = new Scene(root, 700, 600, Color.web("#1a1a1a"));  // Dark background
 
-        // Create the arena (16x16 grid of tiles)
-        Arena arena = new Arena(scene);
+        // Create the arena from the command line, e.g. --board=256x256 --seed=42 --render=canvas --tps=60 --input-depth=4 --replay=games.snkr --autopilot=path|cycle|mcts --metrics=5
+        Map<String, String> options = getParameters().getNamed();
+        int[] board = parseBoardSize(options.get("board"));
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : System.nanoTime();
+        RenderMode renderMode = RenderMode.fromName(options.get("render"), board[0], board[1]);
+        Arena arena = new Arena(scene, board[0], board[1], seed, renderMode);
         
-        // Create a game controller
-        GameController controller = new GameController(arena);
+        // Create a game controller ticking at the requested rate
+        int inputDepth = options.containsKey("input-depth") ? Integer.parseInt(options.get("input-depth")) : CommandLog.DEFAULT_DEPTH;
+        double ticksPerSecond = parseTickRate(options.get("tps"));
+        GameController controller = new GameController(arena, ticksPerSecond, inputDepth);
+        if (options.containsKey("replay")) {
+            controller.setReplayFile(Paths.get(options.get("replay")));  // Append every finished game to this archive
+        }
+        if ("path".equals(options.get("autopilot"))) {
+            controller.setAutopilot(new PathfindingPolicy(board[0], board[1]));  // Steer towards the apple with A*
+        } else if ("cycle".equals(options.get("autopilot"))) {
+            controller.setAutopilot(new HamiltonianPolicy(board[0], board[1]));  // Follow a Hamiltonian cycle, with shortcuts, to a win
+        } else if ("mcts".equals(options.get("autopilot"))) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);  // Leave a core for the UI
+            long budget = MctsPolicy.DEFAULT_MOVE_BUDGET_NANOS;
+            if (ticksPerSecond > 0) {
+                budget = Math.max(1L, Math.min(budget, Math.round(0.5e9 / ticksPerSecond)));  // Search at most half a tick
+            }
+            searchPilot = new MctsPolicy(board[0], board[1], threads, budget, seed);
+            controller.setAutopilot(searchPilot);
+        } else if (options.containsKey("autopilot")) {
+            throw new IllegalArgumentException("Unknown autopilot: " + options.get("autopilot"));
+        }
+
+        // Expose the metrics over JMX, where they can be switched on, and print them every few seconds if asked to
+        GameMetrics metrics = controller.getMetrics();
+        try {
+            metrics.register();
+        } catch (JMException e) {
+            System.err.println("Could not register metrics with JMX: " + e.getMessage());
+        }
+        if (options.containsKey("metrics")) {
+            metrics.setPeriodMillis(Math.round(Double.parseDouble(options.get("metrics")) * 1000));
+            metrics.addListener(System.out::println);
+            metrics.setEnabled(true);
+        }
 
         // Define colors
         String darkGrey = "#1a1a1a";  // Very dark grey
@@ -101,6 +156,19 @@ public class Window extends Application {
         pauseButton.setOnMousePressed(e -> pauseButton.setStyle(buttonClickStyle));
         pauseButton.setOnMouseReleased(e -> pauseButton.setStyle(buttonHoverStyle));
         bottomPane.getChildren().add(pauseButton);
+
+        // Show the measured simulation and display rates and input latency next to the pause button
+        Label statsLabel = new Label();
+        statsLabel.setStyle(whiteText);
+        statsLabel.setPadding(new Insets(0, 0, 0, 20));
+        Timeline statsTimeline = new Timeline(new KeyFrame(Duration.millis(500), e -> {
+            Histogram.Summary latency = controller.getInputLatency().getSummary();
+            statsLabel.setText(String.format("%.0f ticks/s   %.0f frames/s   input p50 %.1f ms  p99 %.1f ms",
+                    controller.getTicksPerSecond(), controller.getFramesPerSecond(), latency.getP50() / 1e6, latency.getP99() / 1e6));
+        }));
+        statsTimeline.setCycleCount(Timeline.INDEFINITE);
+        statsTimeline.play();
+        bottomPane.getChildren().add(statsLabel);
         bottomPane.setPrefHeight(80);  // Give the bottom pane a higher priority height
         bottomPane.setStyle("-fx-background-color: " + darkGrey + ";");  // Dark grey background
 
@@ -122,12 +190,29 @@ public class Window extends Application {
         rightPane.setPadding(new Insets(10));
         rightPane.setAlignment(Pos.CENTER);  // Center-align the buttons
         Button trainButton = new Button("Train AI");
-        //trainButton.setOnAction(e -> controller.startTraining());
+        trainButton.setOnAction(e -> controller.startTraining());  // Starts training, or stops it if running
         trainButton.setOnMouseEntered(e -> trainButton.setStyle(buttonHoverStyle));
         trainButton.setOnMouseExited(e -> trainButton.setStyle(buttonStyle));
         trainButton.setOnMousePressed(e -> trainButton.setStyle(buttonClickStyle));
         trainButton.setOnMouseReleased(e -> trainButton.setStyle(buttonHoverStyle));
         rightPane.getChildren().add(trainButton);
+
+        // Poll the trainer's progress snapshot; the training itself runs on its own threads
+        Label trainingLabel = new Label();
+        trainingLabel.setStyle(whiteText);
+        trainingLabel.setWrapText(true);
+        trainingLabel.setPadding(new Insets(10, 0, 0, 0));
+        Timeline trainingTimeline = new Timeline(new KeyFrame(Duration.millis(500), e -> {
+            TrainingProgress progress = controller.getTrainingProgress();
+            if (progress != null) {
+                trainingLabel.setText(String.format("Generation %d%nbest %.1f%nmean %.1f%n%.0f evals/s",
+                        progress.getGeneration(), progress.getBestFitness(), progress.getMeanFitness(),
+                        progress.getEvaluationsPerSecond()));
+            }
+        }));
+        trainingTimeline.setCycleCount(Timeline.INDEFINITE);
+        trainingTimeline.play();
+        rightPane.getChildren().add(trainingLabel);
         rightPane.setPrefWidth(120);  // Give the right pane a higher priority width
         rightPane.setStyle("-fx-background-color: " + darkGrey + ";");  // Dark grey background
 
@@ -135,7 +220,7 @@ public class Window extends Application {
         // Create a StackPane to contain the arena grid and ensure it's centered
         StackPane centerPane = new StackPane();
         centerPane.setPadding(new Insets(10));  // Padding around the grid
-        centerPane.getChildren().add(arena.getGrid());
+        centerPane.getChildren().add(arena.getView());
         centerPane.setStyle("-fx-background-color: " + darkGrey + ";");  // Dark grey background
 
         // Bind the size of the grid to 70% of the available window space and ensure it's square
@@ -160,10 +245,52 @@ public class Window extends Application {
         primaryStage.show();  // Show the window
     }
 
+    /**
+     * Parses a board size given as "COLSxROWS", such as "64x48", or a single side length.
+     *
+     * @param value the size from the command line, or null
+     * @return the number of columns and rows, defaulting to the standard 8x8 arena
+     */
+    private static int[] parseBoardSize(String value) {
+        if (value == null) {
+            return new int[]{Arena.DEFAULT_SIZE, Arena.DEFAULT_SIZE};
+        }
+        String[] parts = value.toLowerCase().split("x");
+        int cols = Integer.parseInt(parts[0].trim());
+        int rows = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : cols;
+        return new int[]{cols, rows};
+    }
+
+    /**
+     * Parses the simulation rate given as ticks per second, or "max" to tick as fast as possible.
+     *
+     * @param value the rate from the command line, or null
+     * @return the ticks per second, defaulting to the classic speed of one move every 300ms
+     */
+    private static double parseTickRate(String value) {
+        if (value == null) {
+            return GameController.DEFAULT_TICKS_PER_SECOND;
+        }
+        if (value.equalsIgnoreCase("max")) {
+            return GameLoop.UNTHROTTLED;
+        }
+        return Double.parseDouble(value.trim());
+    }
+
     /**
     /* Public methods follow
     /**/
 
+    /**
+     * Shuts down the MCTS autopilot's worker threads, if there is one, when the application exits.
+     */
+    @Override
+    public void stop() {
+        if (searchPilot != null) {
+            searchPilot.close();
+        }
+    }
+
     /**
      * The main entry point for the Snake game, launching the JavaFX application.
      *
@@ -0,0 +1,112 @@
+package bench;
+
+import arena.BoardView;
+import arena.GridBoardView;
+import engine.GameState;
+import engine.OccupancyGrid;
+import snake.Direction;
+
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks that stepping a game and repainting it allocates nothing per frame in steady state.
+ * It measures the bytes allocated by the current thread over many frames and exits with a
+ * non-zero status if any were allocated.
+ *
+ * Run with: java bench.AllocationProbe [headless|grid]
+ * The grid mode drives a GridBoardView and needs a display for the JavaFX toolkit.
+ */
+public class AllocationProbe {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int WARMUP_FRAMES = 200_000;
+    private static final int MEASURED_FRAMES = 100_000;
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Picks a direction that keeps the snake on the board and off its body where possible.
+     */
+    private static Direction.Dir safeDirection(GameState state, int frame) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            Direction.Dir dir = DIRECTIONS[(frame + i) % DIRECTIONS.length];
+            int x = state.getHeadX() + dir.dx();
+            int y = state.getHeadY() + dir.dy();
+            if (occupancy.isInside(x, y) && !occupancy.isOccupied(x, y)) {
+                return dir;
+            }
+        }
+        return state.getCurrentDirection();
+    }
+
+    private static void runFrames(GameState state, BoardView view, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            state.changeDirection(safeDirection(state, frame));
+            state.update();
+            if (state.isOver()) {
+                state.reset();
+            }
+            if (view != null) {
+                view.render(0.0);
+            }
+        }
+    }
+
+    /**
+     * Runs the game for a while, then returns the bytes allocated per frame while measuring.
+     */
+    private static double bytesPerFrame(GameState state, BoardView view) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        runFrames(state, view, WARMUP_FRAMES);
+        long before = threads.getThreadAllocatedBytes(thread);
+        runFrames(state, view, MEASURED_FRAMES);
+        long after = threads.getThreadAllocatedBytes(thread);
+        return (double) (after - before) / MEASURED_FRAMES;
+    }
+
+    private static boolean report(String name, double bytes) {
+        System.out.printf("%-9s %.4f bytes/frame%n", name, bytes);
+        return bytes == 0.0;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "headless";
+        AtomicBoolean passed = new AtomicBoolean();
+
+        if (mode.equals("grid")) {
+            CountDownLatch done = new CountDownLatch(1);
+            Platform.startup(() -> {
+                try {
+                    GameState state = new GameState(64, 64, 7L);
+                    BoardView view = new GridBoardView(state, new SimpleDoubleProperty(700), new SimpleDoubleProperty(600));
+                    state.addObserver(view);
+                    passed.set(report("grid", bytesPerFrame(state, view)));
+                } finally {
+                    done.countDown();
+                    Platform.exit();
+                }
+            });
+            done.await();
+        } else {
+            passed.set(report("headless", bytesPerFrame(new GameState(64, 64, 7L), null)));
+        }
+
+        if (!passed.get()) {
+            System.out.println("FAILED: frames allocate in steady state");
+            System.exit(1);
+        }
+    }
+}
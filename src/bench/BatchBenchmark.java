@@ -0,0 +1,52 @@
+package bench;
+
+import engine.BatchResult;
+import engine.BatchSimulator;
+import engine.GreedyPolicy;
+
+/**
+ * Measures how batch simulation throughput scales with the number of threads. Plays the same
+ * batch of greedy games with 1, 2, 4, ... threads up to the number of cores, and reports games
+ * per second and the speedup over one thread. Every run plays the same games, so the summaries
+ * must match.
+ *
+ * Run with: java bench.BatchBenchmark [cols] [rows] [games] [max threads]
+ */
+public class BatchBenchmark {
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long games = args.length > 2 ? Long.parseLong(args[2]) : 200_000;
+        int cores = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // Warm up the simulation code before timing
+        try (BatchSimulator warmup = new BatchSimulator(cols, rows, cores)) {
+            warmup.run(games / 4, 1L, GreedyPolicy::new);
+        }
+
+        double baseline = 0.0;
+        String firstSummary = null;
+        for (int threads = 1; threads <= cores; threads = threads * 2 > cores && threads < cores ? cores : threads * 2) {
+            try (BatchSimulator simulator = new BatchSimulator(cols, rows, threads)) {
+                BatchResult result = simulator.run(games, 42L, GreedyPolicy::new);
+                if (threads == 1) {
+                    baseline = result.getGamesPerSecond();
+                    firstSummary = result.toString();
+                    System.out.println(firstSummary);
+                } else if (!result.toString().equals(firstSummary)) {
+                    System.out.println("FAILED: results depend on the thread count: " + result);
+                    System.exit(1);
+                }
+                System.out.printf("%3d threads  %12.0f games/s  %10.1f M ticks/s  speedup %5.2fx%n",
+                        threads, result.getGamesPerSecond(),
+                        result.getTotalTicks() / 1e6 / (result.getElapsedNanos() / 1e9),
+                        result.getGamesPerSecond() / baseline);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import engine.GameState;
+import engine.HamiltonianPolicy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Plays one game per board size with the Hamiltonian-cycle solver, with and without shortcuts,
+ * and reports the ticks it took to win and the CPU time per tick, policy and simulation
+ * together. Large boards take on the order of cells squared ticks to fill, so every game stops
+ * at a tick cap and reports how full the board got instead.
+ *
+ * Run with: java bench.HamiltonianBenchmark [tick cap] [smallest side] [largest side]
+ */
+public class HamiltonianBenchmark {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Plays a game to the end or to the tick cap and prints how it went.
+     */
+    private static void play(int side, boolean shortcuts, long tickCap) {
+        GameState state = new GameState(side, side, 7L);
+        HamiltonianPolicy policy = new HamiltonianPolicy(side, side, shortcuts);
+        policy.reset(state);
+        long start = THREADS.getCurrentThreadCpuTime();
+        while (!state.isOver() && state.getTick() < tickCap) {
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+        }
+        long cpu = THREADS.getCurrentThreadCpuTime() - start;
+
+        String result = state.checkWinCondition() ? "won in " + state.getTick() + " ticks"
+                : state.checkCollisions() ? "DIED at tick " + state.getTick()
+                : String.format("capped at %d ticks, %.1f%% full", state.getTick(),
+                        100.0 * state.getLength() / state.getTotalCells());
+        System.out.printf("%5dx%-5d %-9s %-40s %6.1f ns/tick%n", side, side,
+                shortcuts ? "shortcut" : "cycle", result, (double) cpu / Math.max(1L, state.getTick()));
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        long tickCap = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        int smallest = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int largest = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+
+        play(smallest, true, tickCap);  // Warm up
+        for (int side = smallest; side <= largest; side *= 2) {
+            play(side, false, tickCap);
+            play(side, true, tickCap);
+        }
+    }
+}
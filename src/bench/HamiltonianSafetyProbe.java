@@ -0,0 +1,59 @@
+package bench;
+
+import engine.GameState;
+import engine.HamiltonianPolicy;
+
+/**
+ * Checks that the Hamiltonian-cycle solver wins every game on small boards, where a careless
+ * shortcut is most likely to trap the snake. It plays many seeded games with shortcuts on
+ * every board from 2x2 to 8x8 that has a Hamiltonian cycle, and exits with a non-zero status
+ * if any game is lost.
+ *
+ * Run with: java bench.HamiltonianSafetyProbe [games per board] [largest side]
+ */
+public class HamiltonianSafetyProbe {
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int largest = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        long lost = 0;
+        for (int cols = 2; cols <= largest; cols++) {
+            for (int rows = 2; rows <= largest; rows++) {
+                if (cols % 2 != 0 && rows % 2 != 0) {
+                    continue;  // No Hamiltonian cycle
+                }
+                HamiltonianPolicy policy = new HamiltonianPolicy(cols, rows);
+                GameState state = new GameState(cols, rows, 1L);
+                long boardLost = 0;
+                long ticks = 0;
+                for (long seed = 0; seed < games; seed++) {
+                    state.reset(seed);
+                    policy.reset(state);
+                    while (!state.isOver()) {
+                        state.changeDirection(policy.chooseDirection(state));
+                        state.update();
+                    }
+                    ticks += state.getTick();
+                    if (!state.checkWinCondition()) {
+                        boardLost++;
+                        System.out.printf("%dx%d seed %d: lost at length %d after %d ticks%n",
+                                cols, rows, seed, state.getLength(), state.getTick());
+                    }
+                }
+                System.out.printf("%dx%-2d %d games, %d lost, %.1f ticks per game%n",
+                        cols, rows, games, boardLost, (double) ticks / games);
+                lost += boardLost;
+            }
+        }
+
+        if (lost != 0) {
+            System.out.println("FAILED: " + lost + " games lost");
+            System.exit(1);
+        }
+    }
+}
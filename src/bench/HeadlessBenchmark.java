@@ -0,0 +1,87 @@
+package bench;
+
+import engine.GameState;
+import engine.OccupancyGrid;
+import snake.Direction;
+
+/**
+ * Measures how many games and ticks per millisecond the headless GameState can simulate
+ * on a single thread, with no JavaFX toolkit loaded.
+ *
+ * Run with: java bench.HeadlessBenchmark [cols] [rows] [seconds]
+ */
+public class HeadlessBenchmark {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Picks a direction that moves towards the apple and avoids walls and the body where possible.
+     */
+    private static Direction.Dir greedyDirection(GameState state) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        int headX = state.getHeadX();
+        int headY = state.getHeadY();
+        Direction.Dir best = state.getCurrentDirection();
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction.Dir dir : DIRECTIONS) {
+            int x = headX + dir.dx();
+            int y = headY + dir.dy();
+            if (!occupancy.isInside(x, y) || occupancy.isOccupied(x, y)) {
+                continue;
+            }
+            int distance = Math.abs(x - state.getAppleX()) + Math.abs(y - state.getAppleY());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = dir;
+            }
+        }
+        return best;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        GameState state = new GameState(cols, rows, 1234L);
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            state.changeDirection(greedyDirection(state));
+            state.update();
+            if (state.isOver()) state.reset();
+        }
+
+        long games = 0;
+        long ticks = 0;
+        long lengthSum = 0;
+        state.reset();
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long now;
+        do {
+            // Check the clock once per batch of ticks to keep timing overhead out of the loop
+            for (int i = 0; i < 4096; i++) {
+                state.changeDirection(greedyDirection(state));
+                state.update();
+                ticks++;
+                if (state.isOver()) {
+                    games++;
+                    lengthSum += state.getLength();
+                    state.reset();
+                }
+            }
+            now = System.nanoTime();
+        } while (now < end);
+
+        double millis = (now - start) / 1e6;
+        System.out.printf("Board %dx%d: %.1f games/ms, %.0f ticks/ms, mean final length %.1f%n",
+                cols, rows, games / millis, ticks / millis, games == 0 ? 0.0 : (double) lengthSum / games);
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import controller.CommandLog;
+import controller.GameLoop;
+import controller.Histogram;
+import snake.Direction;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures input-to-tick latency: how long a direction command waits in the lock-free input
+ * buffer before a simulation tick applies it. A producer thread stands in for the JavaFX event
+ * thread and presses keys at random intervals while a GameLoop consumes them at several tick rates.
+ *
+ * Run with: java bench.InputLatencyBenchmark [seconds per rate] [input depth]
+ */
+public class InputLatencyBenchmark {
+    private static final double[] TICK_RATES = {10, 60, 240, 1000};
+    private static final Direction.Dir[] TURNS = {Direction.Dir.UP, Direction.Dir.LEFT, Direction.Dir.DOWN, Direction.Dir.RIGHT};
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static void measure(double ticksPerSecond, int seconds, int depth) throws InterruptedException {
+        CommandLog commandLog = new CommandLog(depth);
+        Direction.Dir[] current = {Direction.Dir.RIGHT};
+        long[] tick = {0};
+        GameLoop loop = new GameLoop(() -> current[0] = commandLog.getNextValidCommand(current[0], tick[0]++), ticksPerSecond);
+        loop.start();
+
+        // Press keys in a turning sequence, so no command is discarded as a reversal
+        Random random = new Random(1L);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        int presses = 0;
+        int dropped = 0;
+        while (System.nanoTime() < end) {
+            if (!commandLog.enqueueCommand(TURNS[presses % TURNS.length])) {
+                dropped++;
+            }
+            presses++;
+            LockSupport.parkNanos(1_000_000L + random.nextInt(20_000_000));
+        }
+        loop.stop();
+        Thread.sleep(50);  // Let the last tick finish
+
+        Histogram.Summary latency = commandLog.getInputLatency().getSummary();
+        System.out.printf("%6.0f ticks/s  %5d presses  %4d dropped  %s%n",
+                ticksPerSecond, presses, dropped, latency.format(1e6, "ms"));
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : CommandLog.DEFAULT_DEPTH;
+        System.out.println("Input depth " + depth);
+        for (double ticksPerSecond : TICK_RATES) {
+            measure(ticksPerSecond, seconds, depth);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package bench;
+
+import ai.Activation;
+import ai.Layer;
+
+import java.util.Random;
+
+/**
+ * Compares evaluating a Layer one sample at a time with forward() against evaluating whole
+ * batches with forwardBatch(), at batch sizes 1, 32, 256 and 4096. Each case does about the
+ * same number of multiply-adds, and the benchmark checks both paths give the same outputs.
+ *
+ * Run with: java bench.LayerBatchBenchmark [inputs] [outputs] [million multiply-adds per case]
+ */
+public class LayerBatchBenchmark {
+    private static final int[] BATCH_SIZES = {1, 32, 256, 4096};
+    private static final float TOLERANCE = 1e-3f;
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static void perSample(Layer layer, float[] inputs, int batchSize, float[] out) {
+        int in = layer.getInputSize();
+        int outSize = layer.getOutputSize();
+        for (int b = 0; b < batchSize; b++) {
+            layer.forward(inputs, b * in, out, b * outSize);
+        }
+    }
+
+    /**
+     * Runs one path over enough batches to do the requested work and returns samples per second.
+     */
+    private static double samplesPerSecond(Layer layer, float[] inputs, int batchSize, float[] out,
+                                           long batches, boolean batched) {
+        long start = System.nanoTime();
+        for (long n = 0; n < batches; n++) {
+            inputs[(int) (n % inputs.length)] += 1f;
+            if (batched) {
+                layer.forwardBatch(inputs, batchSize, out);
+            } else {
+                perSample(layer, inputs, batchSize, out);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return batches * batchSize * 1e9 / elapsed;
+    }
+
+    private static float maxDifference(Layer layer, float[] inputs, int batchSize) {
+        float[] expected = new float[batchSize * layer.getOutputSize()];
+        float[] actual = new float[expected.length];
+        perSample(layer, inputs, batchSize, expected);
+        layer.forwardBatch(inputs, batchSize, actual);
+        float max = 0f;
+        for (int i = 0; i < expected.length; i++) {
+            max = Math.max(max, Math.abs(expected[i] - actual[i]) / Math.max(1f, Math.abs(expected[i])));
+        }
+        return max;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int inputs = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int outputs = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long work = (args.length > 2 ? Long.parseLong(args[2]) : 200L) * 1_000_000L;
+
+        Random random = new Random(3L);
+        Layer layer = new Layer(inputs, outputs, Activation.RELU, random);
+        float[] weights = layer.getWeights();
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        System.out.printf("Layer %d -> %d, %d M multiply-adds per case%n", inputs, outputs, work / 1_000_000L);
+
+        for (int batchSize : BATCH_SIZES) {
+            float[] batch = new float[batchSize * inputs];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = random.nextFloat();
+            }
+            float[] out = new float[batchSize * outputs];
+            long batches = Math.max(1L, work / ((long) batchSize * inputs * outputs));
+
+            float difference = maxDifference(layer, batch, batchSize);
+            if (difference > TOLERANCE) {
+                System.out.println("FAILED: batched outputs differ from per-sample outputs by " + difference);
+                System.exit(1);
+            }
+
+            samplesPerSecond(layer, batch, batchSize, out, batches, false);  // Warm up both paths
+            samplesPerSecond(layer, batch, batchSize, out, batches, true);
+            double single = samplesPerSecond(layer, batch, batchSize, out, batches, false);
+            double batched = samplesPerSecond(layer, batch, batchSize, out, batches, true);
+            System.out.printf("batch %5d   per-sample %,12.0f samples/s   batched %,12.0f samples/s   speedup %.2fx%n",
+                    batchSize, single, batched, batched / single);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package bench;
+
+import ai.Activation;
+import ai.Layer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares the flattened, allocation-free Layer forward pass against the previous
+ * implementation, which kept weights in a double[][] and allocated fresh arrays for the
+ * weighted sums and every activation. Both run the same networks with the same weights and
+ * the benchmark reports nanoseconds and bytes allocated per forward pass.
+ *
+ * Run with: java bench.LayerBenchmark [iterations]
+ */
+public class LayerBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The previous Layer implementation, kept here as the baseline.
+     */
+    private static final class LegacyLayer {
+        private final double[][] weights;
+        private final double[] biases;
+        private final Function<double[], double[]> activationFunction;
+        private double[] outputs;
+
+        static final Function<double[], double[]> RELU = x -> {
+            double[] result = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                result[i] = Math.max(0, x[i]);
+            }
+            return result;
+        };
+
+        static final Function<double[], double[]> SOFTMAX = x -> {
+            double max = x[0];
+            for (int i = 1; i < x.length; i++) {
+                if (x[i] > max) {
+                    max = x[i];
+                }
+            }
+            double[] expValues = new double[x.length];
+            double sum = 0.0;
+            for (int i = 0; i < x.length; i++) {
+                expValues[i] = Math.exp(x[i] - max);
+                sum += expValues[i];
+            }
+            for (int i = 0; i < expValues.length; i++) {
+                expValues[i] /= sum;
+            }
+            return expValues;
+        };
+
+        LegacyLayer(Layer layer) {
+            int in = layer.getInputSize();
+            int out = layer.getOutputSize();
+            this.weights = new double[out][in];
+            this.biases = new double[out];
+            for (int o = 0; o < out; o++) {
+                for (int i = 0; i < in; i++) {
+                    weights[o][i] = layer.getWeights()[o * in + i];
+                }
+                biases[o] = layer.getBiases()[o];
+            }
+            this.activationFunction = layer.getActivation() == Activation.SOFTMAX ? SOFTMAX : RELU;
+        }
+
+        void forward(double[] inputs) {
+            double[] weightedSums = new double[biases.length];
+            for (int i = 0; i < weights.length; i++) {
+                double sum = 0.0;
+                for (int j = 0; j < inputs.length; j++) {
+                    sum += weights[i][j] * inputs[j];
+                }
+                sum += biases[i];
+                weightedSums[i] = sum;
+            }
+            outputs = activationFunction.apply(weightedSums);
+        }
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static Layer[] network(int[] sizes, Random random) {
+        Layer[] layers = new Layer[sizes.length - 1];
+        for (int l = 0; l < layers.length; l++) {
+            Activation activation = l == layers.length - 1 ? Activation.SOFTMAX : Activation.RELU;
+            layers[l] = new Layer(sizes[l], sizes[l + 1], activation, random);
+        }
+        return layers;
+    }
+
+    private static float runFlat(Layer[] layers, float[] input, int iterations) {
+        float checksum = 0f;
+        for (int n = 0; n < iterations; n++) {
+            input[n & 7] = n & 1;
+            float[] x = input;
+            for (Layer layer : layers) {
+                x = layer.forward(x);
+            }
+            checksum += x[0];
+        }
+        return checksum;
+    }
+
+    private static double runLegacy(LegacyLayer[] layers, double[] input, int iterations) {
+        double checksum = 0.0;
+        for (int n = 0; n < iterations; n++) {
+            input[n & 7] = n & 1;
+            double[] x = input;
+            for (LegacyLayer layer : layers) {
+                layer.forward(x);
+                x = layer.outputs;
+            }
+            checksum += x[0];
+        }
+        return checksum;
+    }
+
+    private static void compare(String name, int[] sizes, int iterations) {
+        Layer[] flat = network(sizes, new Random(11L));
+        LegacyLayer[] legacy = new LegacyLayer[flat.length];
+        for (int l = 0; l < flat.length; l++) {
+            legacy[l] = new LegacyLayer(flat[l]);
+        }
+        float[] flatInput = new float[sizes[0]];
+        double[] legacyInput = new double[sizes[0]];
+        long thread = Thread.currentThread().getId();
+
+        double sink = 0.0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += runFlat(flat, flatInput, iterations);
+            sink += runLegacy(legacy, legacyInput, iterations);
+        }
+
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        sink += runLegacy(legacy, legacyInput, iterations);
+        double legacyNanos = (double) (System.nanoTime() - start) / iterations;
+        double legacyBytes = (double) (THREADS.getThreadAllocatedBytes(thread) - bytes) / iterations;
+
+        bytes = THREADS.getThreadAllocatedBytes(thread);
+        start = System.nanoTime();
+        sink += runFlat(flat, flatInput, iterations);
+        double flatNanos = (double) (System.nanoTime() - start) / iterations;
+        double flatBytes = (double) (THREADS.getThreadAllocatedBytes(thread) - bytes) / iterations;
+
+        System.out.printf("%-16s legacy %9.1f ns %7.1f B   flat %9.1f ns %7.1f B   speedup %.2fx   (checksum %.1f)%n",
+                name, legacyNanos, legacyBytes, flatNanos, flatBytes, legacyNanos / flatNanos, sink);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        compare("15-9-6-3", new int[] {15, 9, 6, 3}, iterations);
+        compare("64-32-3", new int[] {64, 32, 3}, iterations);
+        compare("256-256-3", new int[] {256, 256, 3}, Math.max(1, iterations / 50));
+    }
+}
@@ -0,0 +1,185 @@
+package bench;
+
+import engine.GameState;
+import engine.LockstepBatch;
+import engine.SplitMix64;
+import snake.Direction;
+
+/**
+ * Compares stepping K games in a structure-of-arrays LockstepBatch against stepping K
+ * independent GameState objects. Both sides play the same games with the same cheap policy
+ * (keep going unless the next cell is blocked, then take a precomputed turn) and restart
+ * finished games with the same seeds, and the benchmark checks every game ends in the same
+ * state on both sides. Each tick first chooses every game's move and then steps every game,
+ * and the steps are timed on their own as well, since the policy costs the same on both sides.
+ *
+ * Run with: java bench.LockstepBenchmark [K] [cols] [rows] [ticks]
+ */
+public class LockstepBenchmark {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final long STARVATION_TICKS = Long.MAX_VALUE;  // Random walks die long before starving
+
+    /**
+    /* Private methods follow
+    /**/
+
+
+    /**
+     * Precomputes a turn for every game and tick, used when the way ahead is blocked.
+     */
+    private static byte[] turns(int games, int ticks) {
+        SplitMix64 random = new SplitMix64(5L);
+        byte[] turns = new byte[games * ticks];
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] = (byte) random.nextInt(4);
+        }
+        return turns;
+    }
+
+    /**
+     * Keeps going if the cell ahead is free, otherwise tries the precomputed turn and then the
+     * other directions in order. The blocked check is passed in so both engines share the logic.
+     */
+    private static int choose(int dir, int turn, boolean[] blocked) {
+        if (!blocked[dir]) {
+            return dir;
+        }
+        for (int i = 0; i < 4; i++) {
+            int candidate = (turn + i) & 3;
+            if (!blocked[candidate]) {
+                return candidate;
+            }
+        }
+        return dir;
+    }
+
+    private static long restartSeed(int game, long restart) {
+        return SplitMix64.mix(restart * 1_000_003L + game);
+    }
+
+    /**
+     * Plays the games as independent GameState objects.
+     *
+     * @param stepNanos receives the nanoseconds spent stepping the games, in element 0
+     * @return the total nanoseconds
+     */
+    private static long runObjects(GameState[] states, byte[] turns, int ticks, long[] restarts, long[] stepNanos) {
+        int games = states.length;
+        byte[] actions = new byte[games];
+        boolean[] blocked = new boolean[4];
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            int row = t * games;
+            for (int game = 0; game < games; game++) {
+                GameState state = states[game];
+                int x = state.getHeadX();
+                int y = state.getHeadY();
+                for (Direction.Dir dir : DIRECTIONS) {
+                    int nx = x + dir.dx();
+                    int ny = y + dir.dy();
+                    blocked[dir.ordinal()] = !state.getOccupancy().isInside(nx, ny) || state.getOccupancy().isOccupied(nx, ny);
+                }
+                actions[game] = (byte) choose(state.getCurrentDirection().ordinal(), turns[row + game], blocked);
+            }
+            long stepStart = System.nanoTime();
+            for (int game = 0; game < games; game++) {
+                GameState state = states[game];
+                state.changeDirection(DIRECTIONS[actions[game]]);
+                state.update();
+            }
+            stepNanos[0] += System.nanoTime() - stepStart;
+            for (int game = 0; game < games; game++) {
+                if (states[game].isOver()) {
+                    states[game].reset(restartSeed(game, ++restarts[game]));
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Plays the games in a LockstepBatch.
+     *
+     * @param stepNanos receives the nanoseconds spent in step(), in element 0
+     * @return the total nanoseconds
+     */
+    private static long runBatch(LockstepBatch batch, byte[] turns, int ticks, long[] restarts, long[] stepNanos) {
+        int games = batch.getGames();
+        byte[] actions = new byte[games];
+        boolean[] blocked = new boolean[4];
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            int row = t * games;
+            for (int game = 0; game < games; game++) {
+                int x = batch.getHeadX(game);
+                int y = batch.getHeadY(game);
+                for (Direction.Dir dir : DIRECTIONS) {
+                    int nx = x + dir.dx();
+                    int ny = y + dir.dy();
+                    blocked[dir.ordinal()] = !batch.isInside(nx, ny) || batch.isOccupied(game, nx, ny);
+                }
+                actions[game] = (byte) choose(batch.getDirection(game), turns[row + game], blocked);
+            }
+            long stepStart = System.nanoTime();
+            batch.step(actions);
+            stepNanos[0] += System.nanoTime() - stepStart;
+            for (int game = 0; game < games; game++) {
+                if (!batch.isAlive(game)) {
+                    batch.reset(game, restartSeed(game, ++restarts[game]));
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        byte[] turns = turns(games, ticks);
+
+        for (int round = 0; round < 5; round++) {  // The first rounds warm up the JIT
+            GameState[] states = new GameState[games];
+            for (int game = 0; game < games; game++) {
+                states[game] = new GameState(cols, rows, 0L);
+                states[game].reset(restartSeed(game, 0));
+            }
+            LockstepBatch batch = new LockstepBatch(games, cols, rows, 0L, STARVATION_TICKS);
+            for (int game = 0; game < games; game++) {
+                batch.reset(game, restartSeed(game, 0));
+            }
+
+            long[] restarts = new long[games];
+            long[] objectStepNanos = new long[1];
+            long[] batchStepNanos = new long[1];
+            long objectNanos = runObjects(states, turns, ticks, new long[games], objectStepNanos);
+            long batchNanos = runBatch(batch, turns, ticks, restarts, batchStepNanos);
+            long finished = 0;
+            for (long count : restarts) {
+                finished += count;
+            }
+
+            int mismatches = 0;
+            for (int game = 0; game < games; game++) {
+                if (states[game].getStateHash() != batch.getStateHash(game)) {
+                    mismatches++;
+                }
+            }
+            double steps = (double) games * ticks;
+            System.out.printf("K=%d %dx%d: GameState[] %7.1f M steps/s   LockstepBatch %7.1f M steps/s   %.2fx   "
+                    + "stepping alone %.1f vs %.1f ns/step %.2fx   (%.0f ticks per game)%n",
+                    games, cols, rows, steps / 1e6 / (objectNanos / 1e9), steps / 1e6 / (batchNanos / 1e9),
+                    (double) objectNanos / batchNanos, objectStepNanos[0] / steps, batchStepNanos[0] / steps,
+                    (double) objectStepNanos[0] / batchStepNanos[0], steps / Math.max(1, finished));
+            if (mismatches != 0) {
+                System.out.println("FAILED: " + mismatches + " games differ between the two engines");
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import engine.GameState;
+import engine.GreedyPolicy;
+import engine.MctsPolicy;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures what a search rollout pays to start from a snapshot, comparing a full
+ * GameState.copyFrom() with the journaled GameState.restoreFrom(), and plays games with the
+ * MCTS agent to report simulations per move, how far it gets and how many bytes each move
+ * allocates over all threads. It exits with a non-zero status if moves allocate.
+ *
+ * Run with: java bench.MctsBenchmark [cols] [rows] [ms per move] [threads] [moves]
+ */
+public class MctsBenchmark {
+    private static final int ROLLOUT_TICKS = 50;  // Ticks each snapshot rollout plays
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Times snapshot rollouts on a board, restoring with either method.
+     *
+     * @return nanoseconds per rollout
+     */
+    private static double timeRollouts(int side, boolean journaled, int rollouts) {
+        GameState root = new GameState(side, side, 3L);
+        GameState game = new GameState(side, side, 3L);
+        GreedyPolicy policy = new GreedyPolicy();
+        long start = System.nanoTime();
+        for (int i = 0; i < rollouts; i++) {
+            if (journaled) {
+                game.restoreFrom(root);
+            } else {
+                game.copyFrom(root);
+            }
+            for (int t = 0; t < ROLLOUT_TICKS && !game.isOver(); t++) {
+                game.changeDirection(policy.chooseDirection(game));
+                game.update();
+            }
+        }
+        return (System.nanoTime() - start) / (double) rollouts;
+    }
+
+    /**
+     * Sums the bytes allocated so far by the given threads, allocating nothing itself.
+     *
+     * @return the total, or -1 if the JVM cannot count allocations
+     */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads, long[] ids) {
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1L;
+        }
+        long total = 0;
+        for (long id : ids) {
+            total += Math.max(0L, threads.getThreadAllocatedBytes(id));  // -1 once a thread has died
+        }
+        return total;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long budget = (args.length > 2 ? Long.parseLong(args[2]) : 20L) * 1_000_000L;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int moves = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+
+        for (int side = 16; side <= 1024; side *= 4) {
+            int rollouts = 20_000;
+            timeRollouts(side, false, rollouts / 10);  // Warm up
+            timeRollouts(side, true, rollouts / 10);
+            System.out.printf("%4dx%-4d %d-tick rollout: copyFrom %.1f us, restoreFrom %.1f us%n", side, side,
+                    ROLLOUT_TICKS, timeRollouts(side, false, rollouts) / 1e3, timeRollouts(side, true, rollouts) / 1e3);
+        }
+
+        GameState state = new GameState(cols, rows, 11L);
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        try (MctsPolicy policy = new MctsPolicy(cols, rows, threads, budget, 5L)) {
+            long[] ids = counter.getAllThreadIds();  // Includes the policy's helper threads
+            long iterations = 0;
+            int games = 1;
+            int longest = 1;
+            for (int move = 0; move < moves; move++) {
+                long before = allocatedBytes(counter, ids);
+                state.changeDirection(policy.chooseDirection(state));
+                if (move >= moves / 5 && before >= 0) {  // The first moves warm up
+                    allocated += allocatedBytes(counter, ids) - before;
+                }
+                iterations += policy.getLastIterations();
+                state.update();
+                longest = Math.max(longest, state.getLength());
+                if (state.isOver()) {
+                    System.out.printf("game %d %s at length %d after %d ticks%n", games,
+                            state.checkWinCondition() ? "won" : "lost", state.getLength(), state.getTick());
+                    state.reset();
+                    games++;
+                }
+            }
+            System.out.printf("%dx%d, %d threads, %d ms per move: %.0f simulations per move, longest snake %d, "
+                    + "%d moves over %d games%n", cols, rows, threads, budget / 1_000_000L,
+                    (double) iterations / moves, longest, moves, games);
+        }
+        System.out.printf("allocated %d bytes over the last %d moves, on all threads%n", allocated, moves - moves / 5);
+        if (allocated > 0) {
+            System.out.println("FAILED: choosing moves allocates");
+            System.exit(1);
+        }
+    }
+}
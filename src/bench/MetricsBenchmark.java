@@ -0,0 +1,74 @@
+package bench;
+
+import controller.GameMetrics;
+import controller.MetricsSnapshot;
+import engine.GameState;
+import engine.GreedyPolicy;
+
+/**
+ * Measures what GameMetrics adds to a simulation tick: headless games are ticked with the same
+ * instrumentation as GameController, with metrics off and then on, and the last snapshot
+ * taken while on is printed.
+ *
+ * Run with: java bench.MetricsBenchmark [side] [ticks per run]
+ */
+public class MetricsBenchmark {
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Plays ticks instrumented like GameController.gameLoop().
+     *
+     * @return nanoseconds per tick
+     */
+    private static double run(GameState state, GreedyPolicy policy, GameMetrics metrics, int ticks) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            boolean measuring = metrics.isEnabled();
+            long start = measuring ? System.nanoTime() : 0L;
+            long allocated = measuring ? metrics.getThreadAllocatedBytes() : 0L;
+            if (measuring) {
+                metrics.recordQueueDepth(0);
+            }
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+            if (measuring && state.isGrowing()) {
+                metrics.recordApple();
+            }
+            if (measuring) {
+                metrics.recordTick(start, allocated);
+            }
+            if (state.isOver()) {
+                state.reset();
+            }
+        }
+        return (System.nanoTime() - begin) / (double) ticks;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        GameState state = new GameState(side, side, 9L);
+        GreedyPolicy policy = new GreedyPolicy();
+        GameMetrics metrics = new GameMetrics();
+        metrics.setPeriodMillis(60_000L);  // Only the snapshot taken below
+        run(state, policy, metrics, ticks);  // Warm up
+        for (int round = 0; round < 3; round++) {
+            metrics.setEnabled(false);
+            double off = run(state, policy, metrics, ticks);
+            metrics.setEnabled(true);
+            double on = run(state, policy, metrics, ticks);
+            System.out.printf("%dx%d: metrics off %.1f ns/tick, on %.1f ns/tick%n", side, side, off, on);
+        }
+        MetricsSnapshot snapshot = metrics.snapshot();
+        metrics.setEnabled(false);
+        System.out.println(snapshot);
+    }
+}
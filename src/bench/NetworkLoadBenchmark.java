@@ -0,0 +1,81 @@
+package bench;
+
+import ai.Activation;
+import ai.Network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Saves a network of about 10 million parameters and times loading it back, checking the
+ * loaded weights match the saved ones.
+ *
+ * Run with: java bench.NetworkLoadBenchmark [loads]
+ */
+public class NetworkLoadBenchmark {
+    private static final int[] SIZES = {2048, 2560, 2048, 3};
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static boolean sameWeights(Network a, Network b) {
+        if (a.getLayerCount() != b.getLayerCount()) {
+            return false;
+        }
+        for (int l = 0; l < a.getLayerCount(); l++) {
+            if (a.getLayer(l).getActivation() != b.getLayer(l).getActivation()
+                    || !Arrays.equals(a.getLayer(l).getWeights(), b.getLayer(l).getWeights())
+                    || !Arrays.equals(a.getLayer(l).getBiases(), b.getLayer(l).getBiases())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws IOException {
+        int loads = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Random random = new Random(17L);
+        Network network = new Network(SIZES, Activation.RELU, Activation.SOFTMAX, random);
+        for (int l = 0; l < network.getLayerCount(); l++) {
+            float[] weights = network.getLayer(l).getWeights();
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = random.nextFloat() - 0.5f;
+            }
+        }
+        Path file = Files.createTempFile("network", ".bin");
+        try {
+            long start = System.nanoTime();
+            network.save(file);
+            double saveMillis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%,d parameters, %,d bytes, saved in %.1f ms%n",
+                    network.getParameterCount(), Files.size(file), saveMillis);
+
+            Network loaded = null;
+            double best = Double.MAX_VALUE;
+            double total = 0;
+            for (int i = 0; i < loads; i++) {
+                start = System.nanoTime();
+                loaded = Network.load(file);
+                double millis = (System.nanoTime() - start) / 1e6;
+                best = Math.min(best, millis);
+                total += millis;
+            }
+            System.out.printf("load: best %.1f ms, mean %.1f ms over %d loads%n", best, total / loads, loads);
+
+            if (!sameWeights(network, loaded)) {
+                System.out.println("FAILED: loaded weights differ from saved weights");
+                System.exit(1);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
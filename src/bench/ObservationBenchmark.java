@@ -0,0 +1,92 @@
+package bench;
+
+import ai.ObservationEncoder;
+import engine.GameState;
+import engine.GreedyPolicy;
+import engine.LockstepBatch;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the cost of encoding observations for the networks, one game at a time and for a
+ * whole LockstepBatch, and checks that encoding allocates nothing.
+ *
+ * Run with: java bench.ObservationBenchmark [cols] [rows] [batch size]
+ */
+public class ObservationBenchmark {
+    private static final int ROUNDS = 2_000_000;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Plays a game with the greedy policy until the snake has some length, so rays hit its body.
+     */
+    private static GameState midGame(int cols, int rows) {
+        GameState state = new GameState(cols, rows, 9L);
+        GreedyPolicy policy = new GreedyPolicy();
+        while (state.getLength() < Math.min(cols, rows) * 2) {
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+            if (state.isOver()) {
+                state.reset();
+            }
+        }
+        return state;
+    }
+
+    private static float encodeGames(GameState state, float[] out, int rounds) {
+        float sum = 0f;
+        for (int i = 0; i < rounds; i++) {
+            ObservationEncoder.encode(state, out, 0);
+            sum += out[i % ObservationEncoder.FEATURES];
+        }
+        return sum;
+    }
+
+    private static float encodeBatches(LockstepBatch batch, float[] out, int rounds) {
+        float sum = 0f;
+        for (int i = 0; i < rounds; i++) {
+            ObservationEncoder.encodeBatch(batch, out);
+            sum += out[i % out.length];
+        }
+        return sum;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        long thread = Thread.currentThread().getId();
+
+        GameState state = midGame(cols, rows);
+        float[] features = new float[ObservationEncoder.FEATURES];
+        float sink = encodeGames(state, features, ROUNDS);
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        sink += encodeGames(state, features, ROUNDS);
+        double nanos = (double) (System.nanoTime() - start) / ROUNDS;
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+        System.out.printf("single game (%dx%d, length %d): %.1f ns/observation, %.4f bytes/observation%n",
+                cols, rows, state.getLength(), nanos, (double) allocated / ROUNDS);
+
+        LockstepBatch batch = new LockstepBatch(games, cols, rows, 9L, Long.MAX_VALUE);
+        float[] batchFeatures = new float[games * ObservationEncoder.FEATURES];
+        int batchRounds = Math.max(1, ROUNDS / games);
+        sink += encodeBatches(batch, batchFeatures, batchRounds);
+        bytes = THREADS.getThreadAllocatedBytes(thread);
+        start = System.nanoTime();
+        sink += encodeBatches(batch, batchFeatures, batchRounds);
+        nanos = (double) (System.nanoTime() - start) / ((long) batchRounds * games);
+        allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+        System.out.printf("lockstep batch of %d (opening positions): %.1f ns/observation, %.4f bytes/observation (checksum %.1f)%n",
+                games, nanos, (double) allocated / ((long) batchRounds * games), sink);
+    }
+}
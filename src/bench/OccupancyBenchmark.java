@@ -0,0 +1,142 @@
+package bench;
+
+import engine.OccupancyGrid;
+import snake.SnakeNode;
+
+import java.util.Random;
+
+/**
+ * Compares the collision and "is the snake here" queries of the old linked-list walk
+ * against the occupancy bitset, for snakes of 10, 1,000 and 100,000 segments.
+ *
+ * Run with: java bench.OccupancyBenchmark
+ */
+public class OccupancyBenchmark {
+    private static final int COLS = 400;          // 160,000 cells, enough room for the longest snake
+    private static final int ROWS = 400;
+    private static final int[] LENGTHS = {10, 1_000, 100_000};
+    private static final int QUERIES = 1 << 12;   // Random positions probed per measurement
+
+    private static long sink;                     // Keeps the JIT from discarding results
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Builds a snake of the given length laid out row by row in a serpentine, returning its head.
+     */
+    private static SnakeNode buildChain(int length, OccupancyGrid grid) {
+        SnakeNode head = null;
+        for (int i = 0; i < length; i++) {
+            int y = i / COLS;
+            int x = (y & 1) == 0 ? i % COLS : COLS - 1 - i % COLS;
+            SnakeNode node = new SnakeNode(x, y);
+            node.setNext(head);
+            head = node;
+            grid.set(grid.cellOf(x, y));
+        }
+        return head;
+    }
+
+    private static boolean walkContains(SnakeNode head, int x, int y) {
+        for (SnakeNode current = head; current != null; current = current.getNext()) {
+            if (current.getX() == x && current.getY() == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean walkSelfCollision(SnakeNode head) {
+        for (SnakeNode current = head.getNext(); current != null; current = current.getNext()) {
+            if (head.getX() == current.getX() && head.getY() == current.getY()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs one query kind repeatedly and returns the mean nanoseconds per query.
+     */
+    private static double measure(Runnable batch, int queriesPerBatch, long budgetNanos) {
+        long start = System.nanoTime();
+        long batches = 0;
+        long elapsed;
+        do {
+            batch.run();
+            batches++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budgetNanos);
+        return (double) elapsed / (batches * queriesPerBatch);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int[] xs = new int[QUERIES];
+        int[] ys = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = random.nextInt(COLS);
+            ys[i] = random.nextInt(ROWS);
+        }
+
+        System.out.printf("%-10s %-22s %14s%n", "length", "query", "ns/op");
+        for (int length : LENGTHS) {
+            OccupancyGrid grid = new OccupancyGrid(COLS, ROWS);
+            SnakeNode head = buildChain(length, grid);
+            // The walk is O(length), so probe fewer positions per batch for long snakes
+            int walkQueries = Math.max(1, QUERIES / Math.max(1, length / 100));
+
+            Runnable walkLookup = () -> {
+                long hits = 0;
+                for (int i = 0; i < walkQueries; i++) {
+                    if (walkContains(head, xs[i], ys[i])) hits++;
+                }
+                sink += hits;
+            };
+            Runnable bitsetLookup = () -> {
+                long hits = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    if (grid.isOccupied(xs[i], ys[i])) hits++;
+                }
+                sink += hits;
+            };
+            Runnable walkCollision = () -> {
+                long hits = 0;
+                for (int i = 0; i < walkQueries; i++) {
+                    if (walkSelfCollision(head)) hits++;
+                }
+                sink += hits;
+            };
+            Runnable bitsetCollision = () -> {
+                long hits = 0;
+                // The Arena check is one bit test on the head's cell after each move
+                for (int i = 0; i < QUERIES; i++) {
+                    if (grid.isOccupied(grid.cellOf(xs[i], ys[i]))) hits++;
+                }
+                sink += hits;
+            };
+
+            // Warm up, then measure
+            for (int round = 0; round < 2; round++) {
+                long budget = round == 0 ? 200_000_000L : 1_000_000_000L;
+                double a = measure(walkLookup, walkQueries, budget);
+                double b = measure(bitsetLookup, QUERIES, budget);
+                double c = measure(walkCollision, walkQueries, budget);
+                double d = measure(bitsetCollision, QUERIES, budget);
+                if (round == 1) {
+                    System.out.printf("%-10d %-22s %14.2f%n", length, "lookup (linked list)", a);
+                    System.out.printf("%-10d %-22s %14.2f%n", length, "lookup (bitset)", b);
+                    System.out.printf("%-10d %-22s %14.2f%n", length, "collision (linked list)", c);
+                    System.out.printf("%-10d %-22s %14.2f%n", length, "collision (bitset)", d);
+                }
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+}
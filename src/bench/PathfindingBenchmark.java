@@ -0,0 +1,98 @@
+package bench;
+
+import engine.BatchSimulator;
+import engine.GameOutcome;
+import engine.GameState;
+import engine.PathfindingPolicy;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Plays games with the pathfinding autopilot and reports how long each planning step takes,
+ * how the games end, and whether planning allocates.
+ *
+ * Run with: java bench.PathfindingBenchmark [cols] [rows] [ticks]
+ */
+public class PathfindingBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Plays for the given number of ticks, restarting finished games, and records the time
+     * of every planning step that the samples array has room for.
+     */
+    private static int play(GameState state, PathfindingPolicy policy, long ticks, long[] samples,
+                            long[] outcomes, long[] maxLength) {
+        int recorded = 0;
+        long starvation = 4L * state.getTotalCells();
+        long lastMeal = 0;
+        int length = state.getLength();
+        for (long t = 0; t < ticks; t++) {
+            long start = System.nanoTime();
+            state.changeDirection(policy.chooseDirection(state));
+            long elapsed = System.nanoTime() - start;
+            if (recorded < samples.length) {
+                samples[recorded++] = elapsed;
+            }
+            state.update();
+            if (state.getLength() != length) {
+                length = state.getLength();
+                lastMeal = state.getTick();
+                maxLength[0] = Math.max(maxLength[0], length);
+            }
+            GameOutcome outcome = state.isWallCollision() ? GameOutcome.WALL
+                    : state.isSelfCollision() ? GameOutcome.SELF
+                    : state.checkWinCondition() ? GameOutcome.WIN
+                    : state.getTick() - lastMeal >= starvation ? GameOutcome.STARVATION : null;
+            if (outcome != null) {
+                outcomes[outcome.ordinal()]++;
+                state.reset();
+                policy.reset(state);
+                length = state.getLength();
+                lastMeal = 0;
+            }
+        }
+        return recorded;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+        long ticks = args.length > 2 ? Long.parseLong(args[2]) : 300_000L;
+
+        GameState state = new GameState(cols, rows, 21L);
+        PathfindingPolicy policy = new PathfindingPolicy(cols, rows);
+        long[] outcomes = new long[GameOutcome.values().length];
+        long[] maxLength = new long[1];
+        play(state, policy, ticks / 3, new long[0], outcomes, maxLength);  // Warm up
+
+        long[] samples = new long[(int) Math.min(ticks, 10_000_000L)];
+        Arrays.fill(outcomes, 0);
+        long thread = Thread.currentThread().getId();
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long explored = policy.getExploredCells();
+        int recorded = play(state, policy, ticks, samples, outcomes, maxLength);
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - bytes;
+
+        Arrays.sort(samples, 0, recorded);
+        System.out.printf("%dx%d, %d ticks: plan p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                cols, rows, recorded, samples[recorded / 2] / 1e3, samples[(int) (recorded * 0.99)] / 1e3,
+                samples[(int) (recorded * 0.999)] / 1e3, samples[recorded - 1] / 1e3);
+        System.out.printf("cells explored per plan %.1f, bytes allocated per plan %.4f, longest snake %d%n",
+                (double) (policy.getExploredCells() - explored) / recorded, (double) allocated / recorded, maxLength[0]);
+        StringBuilder ends = new StringBuilder("games ended:");
+        for (GameOutcome outcome : GameOutcome.values()) {
+            ends.append(' ').append(outcome).append('=').append(outcomes[outcome.ordinal()]);
+        }
+        System.out.println(ends);
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import arena.BoardView;
+import arena.CanvasBoardView;
+import arena.GridBoardView;
+import arena.RenderMode;
+import engine.GameState;
+
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares startup and resize latency of the GridPane and Canvas render modes across board sizes.
+ * Startup covers building the view and laying it out once; a resize changes the window size and
+ * lays the view out again.
+ *
+ * Run with: java bench.RenderBenchmark (needs a display for the JavaFX toolkit)
+ */
+public class RenderBenchmark {
+    private static final int[] SIZES = {8, 32, 64, 128, 256};
+    private static final int RESIZES = 20;
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private static void measure(RenderMode mode, int size) {
+        GameState state = new GameState(size, size, 1L);
+        SimpleDoubleProperty width = new SimpleDoubleProperty(700);
+        SimpleDoubleProperty height = new SimpleDoubleProperty(600);
+        StackPane root = new StackPane();
+        new Scene(root, 700, 600);
+
+        long start = System.nanoTime();
+        BoardView view = mode == RenderMode.CANVAS
+                ? new CanvasBoardView(state, width, height)
+                : new GridBoardView(state, width, height);
+        root.getChildren().add(view.getNode());
+        view.render(0.0);
+        root.applyCss();
+        root.layout();
+        long startup = System.nanoTime() - start;
+
+        long resizeTotal = 0;
+        for (int i = 0; i < RESIZES; i++) {
+            long resizeStart = System.nanoTime();
+            width.set(i % 2 == 0 ? 900 : 700);
+            height.set(i % 2 == 0 ? 800 : 600);
+            view.render(0.0);
+            root.layout();
+            resizeTotal += System.nanoTime() - resizeStart;
+        }
+
+        System.out.printf("%-7s %5dx%-5d startup %10.2f ms   resize %10.3f ms%n",
+                mode, size, size, startup / 1e6, resizeTotal / 1e6 / RESIZES);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.startup(() -> {
+            try {
+                measure(RenderMode.GRID, 8);    // Warm up both paths
+                measure(RenderMode.CANVAS, 8);
+                for (int size : SIZES) {
+                    for (RenderMode mode : RenderMode.values()) {
+                        measure(mode, size);
+                    }
+                }
+            } finally {
+                done.countDown();
+                Platform.exit();
+            }
+        });
+        done.await();
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import replay.ReplayReader;
+import replay.ReplayWriter;
+import snake.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes a replay archive of synthetic games through ReplayWriter, scans it back through the
+ * memory-mapped ReplayReader, and checks every command round-trips. Reports the encoded size
+ * per command and the write and scan throughput.
+ *
+ * Run with: java bench.ReplayBenchmark [games] [commands per game] [file]
+ * Large counts (for example 20000 100000) produce a multi-GB archive to exercise windowed mapping.
+ */
+public class ReplayBenchmark {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Gets the gap to the next command: usually a few ticks, occasionally a long straight run.
+     */
+    private static int nextDelta(Random random) {
+        return random.nextInt(8) == 0 ? 1 + random.nextInt(500) : 1 + random.nextInt(12);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int commandsPerGame = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Path file = args.length > 2 ? Paths.get(args[2]) : Files.createTempFile("replay", ".snkr");
+        Files.deleteIfExists(file);
+
+        long start = System.nanoTime();
+        Random random = new Random(42L);
+        try (ReplayWriter writer = ReplayWriter.append(file)) {
+            for (int game = 0; game < games; game++) {
+                writer.beginGame(64, 64, game);
+                long tick = -1;
+                for (int i = 0; i < commandsPerGame; i++) {
+                    tick += nextDelta(random);
+                    writer.record(tick, DIRECTIONS[random.nextInt(4)]);
+                }
+                writer.endGame(tick + 1, tick * 31);
+            }
+        }
+        long writeNanos = System.nanoTime() - start;
+        long bytes = Files.size(file);
+        long commands = (long) games * commandsPerGame;
+
+        start = System.nanoTime();
+        random = new Random(42L);
+        long mismatches = 0;
+        int gamesRead = 0;
+        try (ReplayReader reader = new ReplayReader(file)) {
+            while (reader.nextGame()) {
+                long tick = -1;
+                while (reader.nextCommand()) {
+                    tick += nextDelta(random);
+                    if (reader.getTick() != tick || reader.getDirection() != DIRECTIONS[random.nextInt(4)]) {
+                        mismatches++;
+                    }
+                }
+                if (reader.getSeed() != gamesRead || reader.getFinalTick() != tick + 1 || reader.getFinalHash() != tick * 31) {
+                    mismatches++;
+                }
+                gamesRead++;
+            }
+        }
+        long verifyNanos = System.nanoTime() - start;
+
+        // Scan again without regenerating the expected commands, to time the reader alone
+        start = System.nanoTime();
+        long checksum = 0;
+        try (ReplayReader reader = new ReplayReader(file)) {
+            while (reader.nextGame()) {
+                while (reader.nextCommand()) {
+                    checksum += reader.getTick() + reader.getDirection().ordinal();
+                }
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+
+        System.out.printf("%d games, %d commands, %d bytes (%.2f bytes/command)%n",
+                gamesRead, commands, bytes, (double) bytes / commands);
+        System.out.printf("write+generate %8.1f MB/s   verify %8.1f MB/s   scan %8.1f MB/s (%.1f M commands/s, checksum %d)%n",
+                bytes / 1e6 / (writeNanos / 1e9), bytes / 1e6 / (verifyNanos / 1e9),
+                bytes / 1e6 / (readNanos / 1e9), commands / 1e6 / (readNanos / 1e9), checksum);
+        Files.deleteIfExists(file);
+        if (mismatches != 0 || gamesRead != games) {
+            System.out.println("FAILED: " + mismatches + " mismatched commands");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package bench;
+
+import engine.GameState;
+import engine.OccupancyGrid;
+import replay.ReplayEngine;
+import replay.ReplayReader;
+import replay.ReplayWriter;
+import snake.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Records games played by a greedy policy, then re-simulates them with the ReplayEngine.
+ * Checks every replay ends on the recorded tick with the recorded state hash, that seeking
+ * lands on the same state as replaying from tick 0, and reports replay speed in ticks per
+ * second, the average cost of a random seek and the most memory the snapshots of one game took.
+ *
+ * Run with: java bench.ReplayEngineBenchmark [cols] [rows] [games] [snapshot interval] [max snapshots]
+ */
+public class ReplayEngineBenchmark {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int SEEKS = 200;
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Picks a direction towards the apple that avoids walls and the body, with some random turns
+     * so the recorded games are not all alike.
+     */
+    private static Direction.Dir chooseDirection(GameState state, Random random) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        Direction.Dir best = state.getCurrentDirection();
+        int bestScore = Integer.MAX_VALUE;
+        for (Direction.Dir dir : DIRECTIONS) {
+            int x = state.getHeadX() + dir.dx();
+            int y = state.getHeadY() + dir.dy();
+            if (!occupancy.isInside(x, y) || occupancy.isOccupied(x, y)) {
+                continue;
+            }
+            int score = Math.abs(x - state.getAppleX()) + Math.abs(y - state.getAppleY()) + random.nextInt(4);
+            if (score < bestScore) {
+                bestScore = score;
+                best = dir;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays games and writes them to a replay file, recording only changes of direction.
+     *
+     * @return the total number of ticks played
+     */
+    private static long record(Path file, int cols, int rows, int games) throws IOException {
+        GameState state = new GameState(cols, rows, 7L);
+        Random random = new Random(7L);
+        long ticks = 0;
+        try (ReplayWriter writer = ReplayWriter.append(file)) {
+            for (int game = 0; game < games; game++) {
+                state.reset();
+                writer.beginGame(cols, rows, state.getGameSeed());
+                while (!state.isOver()) {
+                    Direction.Dir dir = chooseDirection(state, random);
+                    if (dir != state.getCurrentDirection()) {
+                        writer.record(state.getTick(), dir);
+                        state.changeDirection(dir);
+                    }
+                    state.update();
+                }
+                ticks += state.getTick();
+                writer.endGame(state.getTick(), state.getStateHash());
+            }
+        }
+        return ticks;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) throws IOException {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int interval = args.length > 3 ? Integer.parseInt(args[3]) : ReplayEngine.DEFAULT_SNAPSHOT_INTERVAL;
+        int maxSnapshots = args.length > 4 ? Integer.parseInt(args[4]) : ReplayEngine.DEFAULT_MAX_SNAPSHOTS;
+
+        Path file = Files.createTempFile("replay", ".snkr");
+        long recordedTicks = record(file, cols, rows, games);
+        ReplayEngine engine = new ReplayEngine(interval, maxSnapshots);
+        Random random = new Random(3L);
+        int failures = 0;
+        long verifyNanos = 0;
+        long seekNanos = 0;
+        long longestGame = 0;
+        int snapshotBytes = 0;
+        int snapshotCount = 0;
+
+        try (ReplayReader reader = new ReplayReader(file)) {
+            while (reader.nextGame()) {
+                engine.load(reader);
+                long start = System.nanoTime();
+                if (!engine.verify()) {
+                    failures++;
+                }
+                verifyNanos += System.nanoTime() - start;
+                longestGame = Math.max(longestGame, engine.getFinalTick());
+                if (engine.getSnapshotBytes() > snapshotBytes) {
+                    snapshotBytes = engine.getSnapshotBytes();
+                    snapshotCount = engine.getSnapshotCount();
+                }
+
+                // Seek to random ticks and compare with a fresh replay from tick 0
+                for (int i = 0; i < SEEKS / games + 1; i++) {
+                    long target = (long) (random.nextDouble() * engine.getFinalTick());
+                    start = System.nanoTime();
+                    engine.seek(target);
+                    seekNanos += System.nanoTime() - start;
+                    long seekHash = engine.getState().getStateHash();
+
+                    ReplayEngine fresh = new ReplayEngine(Integer.MAX_VALUE);
+                    try (ReplayReader again = new ReplayReader(file)) {
+                        again.nextGame();
+                        while (again.getSeed() != reader.getSeed()) {
+                            again.nextGame();
+                        }
+                        fresh.load(again);
+                    }
+                    fresh.seek(target);
+                    if (fresh.getState().getStateHash() != seekHash) {
+                        failures++;
+                    }
+                }
+            }
+        }
+        Files.deleteIfExists(file);
+
+        int seeks = games * (SEEKS / games + 1);
+        System.out.printf("%dx%d: %d games, %d ticks (longest %d)%n", cols, rows, games, recordedTicks, longestGame);
+        System.out.printf("replay %.2f M ticks/s   seek %.3f ms average (snapshot every %d ticks)%n",
+                recordedTicks / 1e6 / (verifyNanos / 1e9), seekNanos / 1e6 / seeks, interval);
+        System.out.printf("snapshots of one game: at most %d bytes in %d snapshots (at most %d kept)%n",
+                snapshotBytes, snapshotCount, maxSnapshots);
+        if (failures != 0) {
+            System.out.println("FAILED: " + failures + " replays did not match");
+            System.exit(1);
+        }
+    }
+}
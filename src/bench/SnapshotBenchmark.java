@@ -0,0 +1,97 @@
+package bench;
+
+import engine.GameState;
+import engine.HamiltonianPolicy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Grows a long snake with the Hamiltonian-cycle solver, then measures how large its compact
+ * snapshot is and how long writing and restoring it take, next to a full GameState copy.
+ * It then checks that restores are exact: a game restored from a snapshot and played on with
+ * the same solver must reach the same state hash as the game played on without interruption.
+ * It exits with a non-zero status if they differ.
+ *
+ * Run with: java bench.SnapshotBenchmark [side] [snake length] [iterations] [ticks to continue]
+ */
+public class SnapshotBenchmark {
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 128;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int continued = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+
+        GameState state = new GameState(side, side, 1L);
+        HamiltonianPolicy policy = new HamiltonianPolicy(side, side);
+        long start = System.nanoTime();
+        while (state.getLength() < length && !state.isOver()) {
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+        }
+        System.out.printf("%dx%d: grew a %d-segment snake in %d ticks (%.1f s)%n", side, side,
+                state.getLength(), state.getTick(), (System.nanoTime() - start) / 1e9);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(state.getMaxSnapshotBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        GameState restored = new GameState(side, side, 2L);
+        GameState copy = new GameState(side, side, 3L);
+        long writeNanos = 0;
+        long readNanos = 0;
+        long copyNanos = 0;
+        for (int round = 0; round < 2; round++) {  // The first round warms up
+            writeNanos = 0;
+            readNanos = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.clear();
+                state.writeSnapshot(buffer);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.flip();
+                restored.readSnapshot(buffer);
+                buffer.rewind();
+                buffer.position(state.getSnapshotBytes());
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                copy.copyFrom(state);
+            }
+            long t3 = System.nanoTime();
+            writeNanos = t1 - t0;
+            readNanos = t2 - t1;
+            copyNanos = t3 - t2;
+        }
+        if (restored.getStateHash() != state.getStateHash()) {
+            throw new IllegalStateException("Restored snapshot differs from the game");
+        }
+        System.out.printf("snapshot %d bytes (%.2f bits per segment); a full copy holds about %d bytes%n",
+                state.getSnapshotBytes(), 8.0 * state.getSnapshotBytes() / state.getLength(), 4L * side * side);
+        System.out.printf("write %.2f us, restore %.2f us, copyFrom %.2f us%n",
+                writeNanos / 1e3 / iterations, readNanos / 1e3 / iterations, copyNanos / 1e3 / iterations);
+
+        // Play the original and the restored game on side by side; each has its own solver,
+        // since the solver keeps no state that a restore would have to carry over
+        HamiltonianPolicy restoredPolicy = new HamiltonianPolicy(side, side);
+        long snapshotTick = state.getTick();
+        long apples = 0;
+        for (int i = 0; i < continued && !state.isOver(); i++) {
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+            restored.changeDirection(restoredPolicy.chooseDirection(restored));
+            restored.update();
+            apples += state.isGrowing() ? 1 : 0;
+        }
+        System.out.printf("continued %d ticks past the snapshot, %d apples: hash %016x, restored %016x%n",
+                state.getTick() - snapshotTick, apples, state.getStateHash(), restored.getStateHash());
+        if (restored.getStateHash() != state.getStateHash() || restored.isOver() != state.isOver()) {
+            System.out.println("FAILED: the restored game diverged from the original");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package bench;
+
+import ai.Trainer;
+import ai.TrainingProgress;
+
+/**
+ * Runs the neuroevolution trainer headlessly and reports fitness and evaluation throughput per
+ * generation.
+ *
+ * Run with: java bench.TrainingBenchmark [cols] [rows] [population] [games] [generations] [threads]
+ */
+public class TrainingBenchmark {
+
+    /**
+    /* Public methods follow
+    /**/
+
+    public static void main(String[] args) {
+        int cols = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int population = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int generations = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%dx%d board, population %d, %d games per evaluation, %d threads%n",
+                cols, rows, population, games, threads);
+        try (Trainer trainer = new Trainer(cols, rows, population, games, threads, 1L)) {
+            long start = System.nanoTime();
+            TrainingProgress progress = null;
+            for (int g = 0; g < generations; g++) {
+                progress = trainer.runGeneration();
+                System.out.println(progress);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d evaluations in %.1f s: %.0f evaluations/s overall%n",
+                    progress.getEvaluations(), seconds, progress.getEvaluations() / seconds);
+        }
+    }
+}
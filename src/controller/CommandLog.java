@@ -1,28 +1,62 @@
 package controller;
 
+import engine.GameState;
+import replay.ReplayBuffer;
+import replay.ReplayFormat;
+import replay.ReplayWriter;
 import snake.Direction;
-import snake.SnakeNode;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 /**
  * The CommandLog class manages the queue of movement commands for the snake in the Snake game.
  * It stores commands that are waiting to be processed and logs commands that have been executed.
+ *
+ * Executed commands are kept in the compact replay encoding (see ReplayFormat), about one byte
+ * per command, and can be saved as a binary replay.
+ *
+ * Commands are enqueued on the JavaFX event thread and consumed by the simulation thread through
+ * a lock-free CommandQueue, so pressing a key never blocks on, or waits for, a running tick.
+ * The tick records how long each input waited in a lock-free Histogram, so it takes no lock
+ * either, however often the display reads the latencies.
  */
 public class CommandLog {
-    private Queue<Direction.Dir> commandQueue;        // Queue of commands waiting to be processed
-    private List<CommandEntry> executedCommandLog;    // List of commands that have been executed
+    public static final int DEFAULT_DEPTH = 4;  // Inputs buffered ahead of the simulation by default
+
+    private final CommandQueue commandQueue;          // Queue of commands waiting to be processed
+    private final Histogram inputLatency;             // Time from key press to the tick that applied it
+    private final ReplayBuffer executedCommandLog;    // Commands that have been executed, by tick
 
     /**
-     * Constructs a CommandLog object.
-     * Initializes the command queue and the list for storing executed commands.
+     * Constructs a CommandLog object that buffers up to DEFAULT_DEPTH inputs.
      */
     public CommandLog() {
-        commandQueue = new LinkedList<>();
-        executedCommandLog = new ArrayList<>();
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs a CommandLog object.
+     * Initializes the command queue and the buffer for storing executed commands.
+     *
+     * @param depth the most inputs that can wait for the simulation; further key presses are dropped
+     */
+    public CommandLog(int depth) {
+        this(depth, new Histogram());
+    }
+
+    /**
+     * Constructs a CommandLog object that records input latencies in a given histogram, such as
+     * the one of the game's metrics.
+     *
+     * @param depth the most inputs that can wait for the simulation; further key presses are dropped
+     * @param inputLatency the histogram to record input latencies in, in nanoseconds
+     */
+    public CommandLog(int depth, Histogram inputLatency) {
+        commandQueue = new CommandQueue(depth);
+        this.inputLatency = inputLatency;
+        executedCommandLog = new ReplayBuffer();
     }
 
     /**
@@ -54,11 +88,13 @@ public class CommandLog {
      *
      * @param direction the direction of the snake's movement input by the player
      *
-     * This method adds the inputted direction to the command queue for processing.
+     * @return true if the command was queued, false if the buffer was full and it was dropped
+     *
+     * This method adds the inputted direction to the command queue for processing. It must only
+     * be called from one thread, normally the JavaFX event thread.
      */
-    public void enqueueCommand(Direction.Dir direction) {
-        commandQueue.add(direction);
-        System.out.println("Enqueued direction: " + direction);
+    public boolean enqueueCommand(Direction.Dir direction) {
+        return commandQueue.offer(direction, System.nanoTime());
     }
 
     /**
@@ -66,41 +102,110 @@ public class CommandLog {
      * If the next direction is a reverse of the current direction, it will be discarded.
      *
      * @param currentDirection the current direction of the snake
-     * @param head the snake's head node, used to log its position
+     * @param tick the game tick the command is about to be applied on, used to log it
      * @return the next valid direction for the snake to move
      *
      * This method checks the command queue for the next valid movement command, executes it,
-     * and logs the command with the snake's current position. If no valid command is found, 
-     * the snake continues moving in its current direction.
+     * and logs the command with the tick it was applied on. If no valid command is found,
+     * the snake continues moving in its current direction. It must only be called from one
+     * thread, normally the simulation thread.
      */
-    public Direction.Dir getNextValidCommand(Direction.Dir currentDirection, SnakeNode head) {
-        while (!commandQueue.isEmpty()) {
-            Direction.Dir nextDirection = commandQueue.peek();
+    public Direction.Dir getNextValidCommand(Direction.Dir currentDirection, long tick) {
+        Direction.Dir nextDirection;
+        while ((nextDirection = commandQueue.poll()) != null) {
             if (!isReversing(currentDirection, nextDirection)) {
-                commandQueue.poll();  // Remove the command from the queue
-                // Log the executed command with the head's position at the time of execution
-                executedCommandLog.add(new CommandEntry(nextDirection, head.getX(), head.getY()));
+                // Record how long the input waited for this tick
+                inputLatency.record(System.nanoTime() - commandQueue.getLastOfferTime());
+                // Log the executed command with the tick it was applied on
+                executedCommandLog.record(tick, nextDirection);
                 return nextDirection;
-            } else {
-                // Invalid command (reversing direction), discard it
-                commandQueue.poll();
             }
+            // Invalid command (reversing direction), discard it
         }
         // No valid commands; continue moving in the current direction
         return currentDirection;
     }
 
+    /**
+     * Executes a command chosen by an autopilot rather than the keyboard.
+     * A reversal is ignored, like a player's would be.
+     *
+     * @param currentDirection the current direction of the snake
+     * @param chosenDirection the direction the autopilot chose
+     * @param tick the game tick the command is about to be applied on, used to log it
+     * @return the direction for the snake to move in
+     *
+     * Only actual turns are logged, so a replay of an autopilot game is as compact as a player's.
+     * It must only be called from one thread, normally the simulation thread.
+     */
+    public Direction.Dir logCommand(Direction.Dir currentDirection, Direction.Dir chosenDirection, long tick) {
+        if (chosenDirection == currentDirection || isReversing(currentDirection, chosenDirection)) {
+            return currentDirection;
+        }
+        executedCommandLog.record(tick, chosenDirection);
+        return chosenDirection;
+    }
+
+    /**
+     * Discards waiting and executed commands before a new game.
+     *
+     * This method must not run concurrently with getNextValidCommand().
+     */
+    public void clear() {
+        commandQueue.clear();
+        executedCommandLog.clear();
+    }
+
+    /**
+     * Gets the number of commands waiting to be processed.
+     *
+     * @return the queue depth right now
+     */
+    public int getPendingCount() {
+        return commandQueue.size();
+    }
+
+    /**
+     * Gets the time from key press to the tick that applied each command.
+     *
+     * @return the histogram of input latencies in nanoseconds, over every game so far
+     */
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Appends the executed commands to a replay file as one game.
+     *
+     * @param path the replay file or archive to append to
+     * @param state the finished game, whose size, seed and final state are recorded with the commands
+     * @throws IOException if the file cannot be written
+     */
+    public void saveReplay(Path path, GameState state) throws IOException {
+        try (ReplayWriter writer = ReplayWriter.append(path)) {
+            writer.writeGame(state.getCols(), state.getRows(), state.getGameSeed(), executedCommandLog,
+                    state.getTick(), state.getStateHash());
+        }
+    }
+
     /**
      * Prints the log of executed commands.
      *
      * This method displays the list of all commands that have been executed,
-     * including the direction and the position of the snake's head when the command was executed.
+     * including the direction and the tick on which the command was executed.
      */
     public void printExecutedCommands() {
         System.out.println("Executed Command Log:");
-        for (CommandEntry entry : executedCommandLog) {
-            System.out.println(entry);
+        ByteBuffer entries = executedCommandLog.getEntries();
+        long tick = -1;
+        while (entries.hasRemaining()) {
+            long entry = ReplayFormat.getVarint(entries);
+            tick += ReplayFormat.tickDeltaOf(entry);
+            System.out.println("Moved " + ReplayFormat.directionOf(entry) + " at tick " + tick);
         }
+        System.out.println(executedCommandLog.getCommandCount() + " commands in "
+                + executedCommandLog.getEncodedLength() + " bytes");
+        System.out.println("Input latency: " + inputLatency.getSummary().format(1e6, "ms"));
     }
 
     /**
@@ -118,17 +223,17 @@ public class CommandLog {
         commandLog.enqueueCommand(Direction.Dir.LEFT);
         commandLog.enqueueCommand(Direction.Dir.DOWN);
         commandLog.enqueueCommand(Direction.Dir.DOWN); // Will be enqueued again
+        commandLog.enqueueCommand(Direction.Dir.UP);   // Dropped: the buffer holds four commands
 
-        // Simulate the snake's head node
-        SnakeNode fakeSnakeNode = new SnakeNode(5, 5);
+        // Simulate executing commands, one per tick
         Direction.Dir currentDirection = Direction.Dir.RIGHT;
+        long tick = 0;
 
-        // Simulate executing commands
         while (currentDirection != null) {
-            currentDirection = commandLog.getNextValidCommand(currentDirection, fakeSnakeNode);
+            currentDirection = commandLog.getNextValidCommand(currentDirection, tick++);
             System.out.println("Next direction: " + currentDirection);
             // Break the loop if no change in direction (for testing)
-            if (commandLog.commandQueue.isEmpty()) {
+            if (commandLog.getPendingCount() == 0) {
                 break;
             }
         }
@@ -0,0 +1,117 @@
+package controller;
+
+import snake.Direction;
+
+/**
+ * The CommandQueue class is a bounded ring buffer that passes direction commands from the
+ * JavaFX event thread to the simulation thread without locking.
+ *
+ * It is safe for exactly one producer thread (offer) and one consumer thread (poll and
+ * clear). Each slot also remembers when the command was offered, so the consumer can measure
+ * how long an input waited before a tick picked it up. Nothing is allocated after construction.
+ */
+public class CommandQueue {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    private final byte[] directions;   // Direction ordinal of each slot
+    private final long[] offerTimes;   // System.nanoTime() at which each slot was offered
+    private final int mask;            // Capacity rounded up to a power of two, minus one
+    private final int depth;           // Most commands held at once
+    private volatile long head;        // Next slot to read; written only by the consumer
+    private volatile long tail;        // Next slot to write; written only by the producer
+    private long lastOfferTime;        // Offer time of the command last polled (consumer side)
+
+    /**
+     * Constructs a CommandQueue.
+     *
+     * @param depth the most commands that can wait at once; further inputs are dropped
+     * @throws IllegalArgumentException if the depth is not positive
+     */
+    public CommandQueue(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Input buffer depth must be positive: " + depth);
+        }
+        int capacity = Integer.highestOneBit(depth);
+        if (capacity < depth) {
+            capacity <<= 1;
+        }
+        this.directions = new byte[capacity];
+        this.offerTimes = new long[capacity];
+        this.mask = capacity - 1;
+        this.depth = depth;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Adds a command at the back of the queue. Called only by the producer thread.
+     *
+     * @param direction the direction to enqueue
+     * @param now the current System.nanoTime()
+     * @return true if the command was queued, false if the queue was full and it was dropped
+     */
+    public boolean offer(Direction.Dir direction, long now) {
+        long t = tail;
+        if (t - head >= depth) {
+            return false;
+        }
+        int slot = (int) t & mask;
+        directions[slot] = (byte) direction.ordinal();
+        offerTimes[slot] = now;
+        tail = t + 1;  // Volatile write publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * Removes the command at the front of the queue. Called only by the consumer thread.
+     *
+     * @return the removed command, or null if the queue is empty
+     */
+    public Direction.Dir poll() {
+        long h = head;
+        if (h == tail) {
+            return null;
+        }
+        int slot = (int) h & mask;
+        Direction.Dir direction = DIRECTIONS[directions[slot]];
+        lastOfferTime = offerTimes[slot];
+        head = h + 1;  // Volatile write hands the slot back to the producer
+        return direction;
+    }
+
+    /**
+     * Gets when the command last returned by poll() was offered.
+     *
+     * @return the System.nanoTime() passed to offer() for that command
+     */
+    public long getLastOfferTime() {
+        return lastOfferTime;
+    }
+
+    /**
+     * Discards every waiting command. Called only by the consumer thread, or while no consumer is running.
+     */
+    public void clear() {
+        head = tail;
+    }
+
+    /**
+     * Gets the number of commands waiting.
+     *
+     * @return the number of queued commands, from 0 to the depth
+     */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * Gets the configured depth.
+     *
+     * @return the most commands that can wait at once
+     */
+    public int getDepth() {
+        return depth;
+    }
+}
@@ -1,42 +1,81 @@
 package controller;
 
 import snake.Direction;
-import snake.SnakeNode;
 import arena.Arena;
+import ai.Trainer;
+import ai.TrainingProgress;
+import engine.GameState;
+import engine.Policy;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.scene.input.KeyEvent;
-import javafx.util.Duration;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * The GameController class manages the Snake game logic, including handling user input,
  * controlling the snake's movements, and managing the game loop.
+ *
+ * Simulation ticks run at a fixed rate on a GameLoop thread, while an AnimationTimer redraws
+ * the arena on the JavaFX thread at the display's refresh rate. Both sides lock the arena's
+ * GameState, so a frame never sees a half-finished tick. An autopilot plans outside the lock,
+ * on a copy of the game that is kept in step with it, so a slow search never holds up a frame.
  */
 public class GameController {
-    private Arena arena;                // The arena where the snake moves
-    private Timeline timeline;          // The game loop timeline
-    private boolean isRunning;          // Indicates if the game is currently running
-    private CommandLog commandLog;      // Logs commands and tracks the snake's movement
-    private boolean keyProcessed;       // Prevents multiple key inputs in the same frame
+    public static final double DEFAULT_TICKS_PER_SECOND = 1000.0 / 300.0;  // One tick every 300ms
+    private static final int MAX_TRAINING_SIDE = 32;        // Larger boards are trained on a 32-cell side
+    private static final int TRAINING_POPULATION = 200;     // Genomes per training generation
+    private static final int TRAINING_GAMES = 4;            // Games per genome per generation
+
+    private final Arena arena;          // The arena where the snake moves
+    private final Object lock;          // Guards the game state between the simulation and the FX thread
+    private final GameLoop loop;        // Runs simulation ticks on its own thread
+    private final AnimationTimer renderTimer;  // Redraws the arena once per display frame
+    private final RateMeter frameRate = new RateMeter();  // Measured frames per second
+    private final GameMetrics metrics = new GameMetrics();  // Tick, frame and input metrics, off until enabled
+    private final CommandLog commandLog;  // Buffers key presses for the simulation and logs executed commands
+    private volatile boolean isRunning; // Indicates if the game is currently running
+    private volatile Path replayFile;   // Replay archive each finished game is appended to, or null
+    private volatile Policy autopilot;  // Steers the snake instead of the keyboard, or null
+    private volatile boolean planningStale = true;  // Set when the planning copy no longer follows the game
+    private GameState planning;         // Copy of the game the autopilot plans on; only used on the simulation thread
+    private volatile Trainer trainer;   // The running or last training run, or null
+    private Thread trainingThread;      // Runs the trainer, off the JavaFX thread
 
     /**
-     * Constructs a GameController object that manages the Snake game.
-     * 
+     * Constructs a GameController object that ticks at the classic speed of one move every 300ms.
+     *
      * @param arena the game arena where the snake moves
-     * 
-     * This constructor initializes the game timeline and prepares the game controller to handle
-     * game state and user input.
      */
     public GameController(Arena arena) {
+        this(arena, DEFAULT_TICKS_PER_SECOND, CommandLog.DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs a GameController object that manages the Snake game.
+     *
+     * @param arena the game arena where the snake moves
+     * @param ticksPerSecond the simulation rate, or GameLoop.UNTHROTTLED to tick as fast as possible
+     * @param inputDepth how many key presses may wait for the simulation before further ones are dropped
+     *
+     * This constructor prepares the simulation loop and starts redrawing the arena every frame.
+     */
+    public GameController(Arena arena, double ticksPerSecond, int inputDepth) {
         this.arena = arena;
+        this.lock = arena.getState();
         this.isRunning = false;
-        this.commandLog = new CommandLog();
-        this.keyProcessed = false;
+        this.commandLog = new CommandLog(inputDepth, metrics.getInputLatency());
+        this.loop = new GameLoop(this::gameLoop, ticksPerSecond);
 
-        // Initialize the game timeline (animation loop)
-        timeline = new Timeline(new KeyFrame(Duration.millis(300), e -> gameLoop()));
-        timeline.setCycleCount(Timeline.INDEFINITE);
+        // Redraw at the display rate, independently of the tick rate
+        renderTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                render();
+            }
+        };
+        renderTimer.start();
     }
 
     /**
@@ -45,25 +84,53 @@ public class GameController {
 
     /**
      * The main game loop that handles the snake's movement, collisions, and game state updates.
-     * 
-     * This method is repeatedly called by the timeline, controlling the game's flow,
+     *
+     * This method is called once per tick on the simulation thread, controlling the game's flow,
      * processing input commands, and checking for win or loss conditions.
      */
     private void gameLoop() {
         if (!isRunning) return; // Exit if the game is not running
 
-        keyProcessed = false;  // Reset flag to allow new key presses
+        // Only read the clocks while metrics are on
+        boolean measuring = metrics.isEnabled();
+        long start = measuring ? System.nanoTime() : 0L;
+        long allocated = measuring ? metrics.getThreadAllocatedBytes() : 0L;
+        if (measuring) {
+            metrics.recordQueueDepth(commandLog.getPendingCount());
+        }
+
+        // Ask the autopilot if there is one, before taking the lock, so frames are drawn while it plans
+        Policy pilot = autopilot;
+        Direction.Dir planned = pilot != null ? pilot.chooseDirection(planningCopy()) : null;
 
-        // Get the current direction of the snake
-        Direction.Dir currentDirection = arena.getCurrentDirection();
-        SnakeNode headNode = arena.getSnakeHead();
+        Direction.Dir newDirection;
+        synchronized (lock) {
+            // Get the current direction of the snake
+            Direction.Dir currentDirection = arena.getCurrentDirection();
 
-        // Fetch the next valid command from the command log
-        Direction.Dir newDirection = commandLog.getNextValidCommand(currentDirection, headNode);
+            // Take the autopilot's move, otherwise fetch the next valid command from the command log
+            newDirection = planned != null
+                    ? commandLog.logCommand(currentDirection, planned, arena.getState().getTick())
+                    : commandLog.getNextValidCommand(currentDirection, arena.getState().getTick());
+
+            // Update the snake's direction and the arena's state
+            arena.changeSnakeDirection(newDirection);
+            arena.update();
+            if (measuring && arena.getState().isGrowing()) {
+                metrics.recordApple();
+            }
+        }
 
-        // Update the snake's direction and the arena's state
-        arena.changeSnakeDirection(newDirection);
-        arena.update();
+        // Games are deterministic, so making the same move keeps the planning copy equal to the game
+        if (planned != null) {
+            planning.changeDirection(newDirection);
+            planning.update();
+        } else {
+            planningStale = true;
+        }
+        if (measuring) {
+            metrics.recordTick(start, allocated);
+        }
 
         // Check for collisions (end game if collision occurs)
         if (arena.checkCollisions()) {
@@ -75,69 +142,192 @@ public class GameController {
         }
     }
 
+    /**
+     * Gets the copy of the game the autopilot plans on, copying the game again if the copy has
+     * stopped following it. Called on the simulation thread.
+     *
+     * Only the simulation thread changes the game while it runs, and it makes every move on
+     * the copy too, so the whole game is copied only when a game starts or the autopilot is
+     * switched on.
+     */
+    private GameState planningCopy() {
+        GameState state = arena.getState();
+        if (planning == null) {
+            planning = new GameState(state.getCols(), state.getRows(), 0L);
+            planningStale = true;
+        }
+        if (planningStale) {
+            planningStale = false;
+            synchronized (lock) {
+                planning.copyFrom(state);
+            }
+        }
+        return planning;
+    }
+
+    /**
+     * Draws one frame of the arena on the JavaFX thread.
+     *
+     * The head is interpolated by how far the simulation is into the next tick, so movement
+     * looks smooth even when ticks are much slower than the display.
+     */
+    private void render() {
+        long now = System.nanoTime();
+        double alpha = loop.getInterpolation(now);
+        synchronized (lock) {
+            arena.render(alpha);
+        }
+        frameRate.record(System.nanoTime());
+        metrics.recordFrame(now);
+    }
+
+    /**
+     * Appends the finished game to the replay file, if one was set.
+     */
+    private void saveReplay() {
+        Path file = replayFile;
+        if (file == null) {
+            return;
+        }
+        try {
+            synchronized (lock) {
+                commandLog.saveReplay(file, arena.getState());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save replay to " + file + ": " + e.getMessage());
+        }
+    }
+
     /**
     /* Public methods follow
     /**/
 
     /**
      * Starts the Snake game and resets the game state.
-     * 
+     *
      * If the game is not already running, this method starts the game, resets the command log,
-     * and begins the game timeline (animation loop).
+     * and starts the simulation loop.
      */
     public void startGame() {
         if (!isRunning) {
+            synchronized (lock) {
+                commandLog.clear();  // Reset the command log
+                arena.resetGame();  // Reset the arena state
+                planningStale = true;  // The autopilot's copy is of the last game
+                Policy pilot = autopilot;
+                if (pilot != null) {
+                    pilot.reset(arena.getState());
+                }
+            }
             isRunning = true;
-            commandLog = new CommandLog();  // Reset the command log
-            keyProcessed = false;
-            arena.resetGame();  // Reset the arena state
-            timeline.play();  // Start the game loop
+            loop.start();  // Start the game loop
         }
     }
 
     /**
      * Stops the Snake game and prints the game result and command log.
-     * 
+     *
      * @param output the game outcome message ("Game Over" or "You Win!")
-     * 
-     * This method stops the game timeline, prints the result, and displays the log of all commands executed.
+     *
+     * This method stops the simulation loop, prints the result, displays the log of all commands executed,
+     * and appends the game to the replay file if one was set.
      */
     public void stopGame(String output) {
         if (isRunning) {
-            timeline.stop();  // Stop the game loop
-            isRunning = false;
+            loop.stop();  // Stop the game loop
             printGameOutput(output);  // Print game outcome
             commandLog.printExecutedCommands();  // Print the executed command log
+            saveReplay();
+            isRunning = false;  // Only now may a new game reset the state and the log
+        }
+    }
+
+    /**
+     * Starts evolving snake networks in the background, or stops a run already in progress.
+     *
+     * Training plays headless games on its own board and threads, never touching the arena's
+     * game, so the UI stays responsive. Boards larger than 32 cells a side are trained on a
+     * 32-cell side, since the networks see only the cells around the head.
+     * Progress can be polled with getTrainingProgress().
+     */
+    public void startTraining() {
+        if (trainingThread != null && trainingThread.isAlive()) {
+            trainer.requestStop();
+            return;
         }
+        GameState state = arena.getState();
+        int cols = Math.min(state.getCols(), MAX_TRAINING_SIDE);
+        int rows = Math.min(state.getRows(), MAX_TRAINING_SIDE);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);  // Leave a core for the UI
+        Trainer run = new Trainer(cols, rows, TRAINING_POPULATION, TRAINING_GAMES, threads, System.nanoTime());
+        trainer = run;
+        trainingThread = new Thread(() -> {
+            try {
+                run.train(Long.MAX_VALUE);
+            } finally {
+                run.close();
+            }
+        }, "snake-trainer");
+        trainingThread.setDaemon(true);
+        trainingThread.start();
+    }
+
+    /**
+     * Gets the latest snapshot of the training run.
+     *
+     * @return the progress after the last completed generation, or null if none has completed
+     */
+    public TrainingProgress getTrainingProgress() {
+        Trainer run = trainer;
+        return run == null ? null : run.getProgress();
+    }
+
+    /**
+     * Sets an autopilot that steers the snake instead of the keyboard.
+     *
+     * @param autopilot the policy to ask for a direction every tick, or null to hand control back to the keyboard
+     *
+     * The policy is called on the simulation thread once per tick, with a copy of the game
+     * that it may read but not change. It plans without the game lock, so frames keep being
+     * drawn, but the tick waits for it, so it should plan within one tick. Key presses are
+     * ignored while an autopilot is set.
+     */
+    public void setAutopilot(Policy autopilot) {
+        this.autopilot = autopilot;
+    }
+
+    /**
+     * Sets a replay file that every finished game is appended to.
+     *
+     * @param replayFile the replay archive to write, or null to stop recording
+     */
+    public void setReplayFile(Path replayFile) {
+        this.replayFile = replayFile;
     }
 
     /**
      * Handles key press events from the user to control the snake.
-     * 
+     *
      * @param event the key event triggered by the user input
-     * 
+     *
      * This method listens for directional input (UP, DOWN, LEFT, RIGHT) and enqueues commands
-     * to change the snake's movement direction accordingly. Each key press is processed only once per frame.
+     * to change the snake's movement direction accordingly. Commands wait in a bounded lock-free
+     * buffer, one per tick, so quick key sequences are kept instead of dropped; presses beyond
+     * the buffer depth are ignored. It never takes the game lock, so input is not held up by a tick.
      */
     public void handleKeyPress(KeyEvent event) {
-        if (keyProcessed) return;  // Ignore if the key has already been processed in this frame
-
         switch (event.getCode()) {
             case UP:
                 commandLog.enqueueCommand(Direction.Dir.UP);
-                keyProcessed = true;
                 break;
             case DOWN:
                 commandLog.enqueueCommand(Direction.Dir.DOWN);
-                keyProcessed = true;
                 break;
             case LEFT:
                 commandLog.enqueueCommand(Direction.Dir.LEFT);
-                keyProcessed = true;
                 break;
             case RIGHT:
                 commandLog.enqueueCommand(Direction.Dir.RIGHT);
-                keyProcessed = true;
                 break;
             default:
                 break;
@@ -146,12 +336,48 @@ public class GameController {
 
     /**
      * Prints the game outcome to the console.
-     * 
+     *
      * @param output the message to be printed (e.g., "Game Over" or "Congratulations, You Win!")
-     * 
+     *
      * This method is used to print the result of the game to the console.
      */
     public void printGameOutput(String output) {
         System.out.println(output);
     }
+
+    /**
+     * Gets the measured simulation rate.
+     *
+     * @return simulation ticks per second over the last second
+     */
+    public double getTicksPerSecond() {
+        return loop.getTicksPerSecond();
+    }
+
+    /**
+     * Gets the measured display rate.
+     *
+     * @return frames drawn per second over the last second
+     */
+    public double getFramesPerSecond() {
+        return frameRate.getPerSecond();
+    }
+
+    /**
+     * Gets the time from key press to the tick that applied each command.
+     *
+     * @return the histogram of input latencies in nanoseconds, over every game so far
+     */
+    public Histogram getInputLatency() {
+        return commandLog.getInputLatency();
+    }
+
+    /**
+     * Gets the game's tick, frame and input metrics, which are off until enabled.
+     *
+     * @return the metrics, for enabling, taking snapshots or registering with JMX
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -0,0 +1,143 @@
+package controller;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The GameLoop class runs simulation ticks at a fixed rate on its own thread, independent of
+ * how often the screen is redrawn.
+ *
+ * Ticks are scheduled on a fixed timestep: if the thread falls behind it runs the missed ticks
+ * back to back (up to a limit) to catch up. In unthrottled mode it runs ticks as fast as the CPU
+ * allows. Renderers can ask how far the simulation is into the next tick to interpolate.
+ */
+public class GameLoop {
+    public static final double UNTHROTTLED = 0.0;  // Tick rate meaning "as fast as possible"
+    private static final int MAX_CATCH_UP_TICKS = 5;  // Most missed ticks run back to back before skipping ahead
+
+    private final Runnable tick;          // One simulation step
+    private final long tickNanos;         // Length of a tick, or 0 when unthrottled
+    private final RateMeter tickRate = new RateMeter();  // Measured ticks per second
+    private volatile boolean running;     // Cleared to stop the loop
+    private volatile long nextTickTime;   // When the next tick is due
+    private Thread thread;                // The simulation thread while running
+
+    /**
+     * Constructs a GameLoop.
+     *
+     * @param tick the simulation step to run each tick
+     * @param ticksPerSecond how many ticks to run per second, or UNTHROTTLED
+     */
+    public GameLoop(Runnable tick, double ticksPerSecond) {
+        this.tick = tick;
+        this.tickNanos = ticksPerSecond > 0 ? Math.round(1e9 / ticksPerSecond) : 0L;
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * The body of the simulation thread.
+     */
+    private void run() {
+        long next = System.nanoTime();
+        nextTickTime = next;
+        while (running) {
+            if (tickNanos == 0) {
+                tick.run();
+                tickRate.record(System.nanoTime());
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+
+            // Run every tick that is due, catching up after a stall
+            int ran = 0;
+            while (running && now >= next && ran < MAX_CATCH_UP_TICKS) {
+                tick.run();
+                tickRate.record(System.nanoTime());
+                next += tickNanos;
+                ran++;
+            }
+            if (now - next >= tickNanos) {
+                next = now;  // Too far behind; skip the remaining ticks rather than spiral
+            }
+            nextTickTime = next;
+        }
+    }
+
+    /**
+     * Waits for a previously stopped simulation thread to finish.
+     */
+    private void joinPrevious() {
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Starts the simulation thread. Does nothing if the loop is already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        joinPrevious();
+        running = true;
+        tickRate.reset();
+        thread = new Thread(this::run, "snake-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Asks the simulation thread to stop after its current tick. Safe to call from within a tick.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Checks whether the loop is running.
+     *
+     * @return true between start() and stop()
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets how far the simulation is into the current tick, for interpolating the display.
+     *
+     * @param now the current System.nanoTime()
+     * @return a fraction from 0 (a tick just ran) to 1 (the next tick is due); always 0 when unthrottled
+     */
+    public double getInterpolation(long now) {
+        if (tickNanos == 0 || !running) {
+            return 0.0;
+        }
+        double alpha = 1.0 - (double) (nextTickTime - now) / tickNanos;
+        return Math.max(0.0, Math.min(1.0, alpha));
+    }
+
+    /**
+     * Gets the measured simulation rate.
+     *
+     * @return simulation ticks per second over the last second
+     */
+    public double getTicksPerSecond() {
+        return tickRate.getPerSecond();
+    }
+}
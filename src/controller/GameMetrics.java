@@ -0,0 +1,281 @@
+package controller;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The GameMetrics class records how the game is running, tick by tick and frame by frame:
+ * how long ticks and frames take, how long inputs wait, how deep the input queue is, how much
+ * each tick allocates and how quickly apples are eaten.
+ *
+ * Metrics are off by default. While they are off every record method returns after reading
+ * one volatile flag, and callers check isEnabled() before reading the clock, so the game pays
+ * next to nothing for them. Input latencies are the exception: the CommandLog records them in
+ * getInputLatency() all the time, once per applied key press, and the game shows them. While they are on, values go into lock-free histograms, and a
+ * reporter thread takes a MetricsSnapshot of each period, passes it to the listeners and keeps
+ * it for JMX. Any thread may record; the simulation thread records ticks and the JavaFX
+ * thread records frames.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    public static final String OBJECT_NAME = "snake:type=GameMetrics";  // JMX name used by register()
+    public static final long DEFAULT_PERIOD_MILLIS = 5_000L;  // Snapshot every five seconds by default
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();  // Null if allocations cannot be counted
+
+    private final Histogram tickTime = new Histogram();        // Nanoseconds per simulation tick
+    private final Histogram renderTime = new Histogram();      // Nanoseconds per drawn frame
+    private final Histogram inputLatency = new Histogram();    // Nanoseconds from key press to the tick that applied it
+    private final long[] inputMarks = Histogram.newMarks();    // Input latency counts seen by the last snapshot; guarded by this
+    private final Histogram queueDepth = new Histogram();      // Commands waiting at the start of each tick
+    private final Histogram allocatedBytes = new Histogram();  // Bytes allocated by the simulation thread per tick
+    private final AtomicLong apples = new AtomicLong();        // Apples eaten in the current interval
+    private final List<Consumer<MetricsSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean enabled;            // Whether values are being recorded
+    private volatile long periodMillis = DEFAULT_PERIOD_MILLIS;  // Time between periodic snapshots
+    private volatile MetricsSnapshot latest;     // The last periodic snapshot, or null
+    private long intervalStart;                  // When the current interval began; guarded by this
+    private ScheduledExecutorService reporter;   // Takes the periodic snapshots while enabled; guarded by this
+    private ScheduledFuture<?> reporting;        // The scheduled snapshot task; guarded by this
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Gets the JVM's per-thread allocation counter, if it has one and it is switched on.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes a snapshot for the current period and hands it to the listeners.
+     */
+    private void report() {
+        MetricsSnapshot snapshot = snapshot();
+        latest = snapshot;
+        for (Consumer<MetricsSnapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Metrics listener failed: " + e);  // Keep reporting to the others
+            }
+        }
+    }
+
+    /**
+     * Schedules the periodic snapshots, replacing any already scheduled. Must hold this.
+     */
+    private void scheduleReports() {
+        if (reporting != null) {
+            reporting.cancel(false);
+        }
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "snake-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long period = periodMillis;
+        reporting = reporter.scheduleAtFixedRate(this::report, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Checks whether metrics are being recorded. Callers should check this before reading the
+     * clock for a measurement, so disabled metrics cost no clock reads.
+     *
+     * @return true if recording is on
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches recording on or off. Switching it on discards anything left from earlier and
+     * starts a new interval; switching it off stops the periodic snapshots.
+     *
+     * @param enabled true to record and take a snapshot every period, false to stop
+     */
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled == this.enabled) {
+            return;
+        }
+        if (enabled) {
+            snapshot();  // Discard values recorded before, and start the interval now
+            this.enabled = true;
+            scheduleReports();
+        } else {
+            this.enabled = false;
+            reporting.cancel(false);
+            reporting = null;
+        }
+    }
+
+    /**
+     * Gets how often a snapshot is taken while recording.
+     *
+     * @return the reporting period in milliseconds
+     */
+    @Override
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Sets how often a snapshot is taken while recording, rescheduling the snapshots if
+     * recording is on.
+     *
+     * @param periodMillis the reporting period in milliseconds, at least 1
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    @Override
+    public synchronized void setPeriodMillis(long periodMillis) {
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("Invalid metrics period: " + periodMillis + "ms");
+        }
+        this.periodMillis = periodMillis;
+        if (enabled) {
+            scheduleReports();
+        }
+    }
+
+    /**
+     * Gets the latest periodic snapshot.
+     *
+     * @return the summary of the last completed period, or null if none has completed
+     */
+    @Override
+    public MetricsSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Adds a listener that receives every periodic snapshot, on the reporter thread.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Consumer<MetricsSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addListener().
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Consumer<MetricsSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Summarizes everything recorded since the previous snapshot and starts a new interval.
+     * The periodic snapshots call this too, so calling it directly shortens the current period.
+     *
+     * @return the summary of the interval that just ended
+     */
+    public synchronized MetricsSnapshot snapshot() {
+        long now = System.nanoTime();
+        double seconds = intervalStart == 0 ? 0.0 : (now - intervalStart) / 1e9;
+        intervalStart = now;
+        return new MetricsSnapshot(seconds, tickTime.drain(), renderTime.drain(), inputLatency.getSummarySince(inputMarks),
+                queueDepth.drain(), allocatedBytes.drain(), apples.getAndSet(0));
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under OBJECT_NAME.
+     *
+     * @throws JMException if the name is taken, for example by another game in the same JVM
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Gets the bytes the current thread has allocated so far, for measuring a tick.
+     *
+     * @return the running total of allocated bytes, or -1 if the JVM cannot count them
+     */
+    public long getThreadAllocatedBytes() {
+        return THREADS == null ? -1L : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records one simulation tick that started at the given time.
+     *
+     * @param startNanos System.nanoTime() when the tick started
+     * @param allocatedBefore getThreadAllocatedBytes() when the tick started, on the same thread
+     */
+    public void recordTick(long startNanos, long allocatedBefore) {
+        if (!enabled) {
+            return;
+        }
+        tickTime.record(System.nanoTime() - startNanos);
+        if (allocatedBefore >= 0) {
+            allocatedBytes.record(getThreadAllocatedBytes() - allocatedBefore);
+        }
+    }
+
+    /**
+     * Records one frame that started drawing at the given time.
+     *
+     * @param startNanos System.nanoTime() when the frame started
+     */
+    public void recordFrame(long startNanos) {
+        if (enabled) {
+            renderTime.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Gets the histogram of how long commands waited between the key press and the tick that
+     * applied them. It records whether or not metrics are on; snapshots cover only their interval.
+     *
+     * @return the input latencies in nanoseconds, for the CommandLog to record in
+     */
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Records how many commands are waiting at the start of a tick.
+     *
+     * @param depth the number of waiting commands
+     */
+    public void recordQueueDepth(int depth) {
+        if (enabled) {
+            queueDepth.record(depth);
+        }
+    }
+
+    /**
+     * Records that the snake ate an apple.
+     */
+    public void recordApple() {
+        if (enabled) {
+            apples.incrementAndGet();
+        }
+    }
+}
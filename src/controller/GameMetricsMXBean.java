@@ -0,0 +1,44 @@
+package controller;
+
+/**
+ * The GameMetricsMXBean interface is the JMX view of GameMetrics, registered under
+ * GameMetrics.OBJECT_NAME. Tools such as JConsole can switch recording on and off, change
+ * the reporting period and read the latest snapshot, whose histograms appear as composite data.
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * Checks whether metrics are being recorded.
+     *
+     * @return true if recording is on
+     */
+    boolean isEnabled();
+
+    /**
+     * Switches recording on or off.
+     *
+     * @param enabled true to record and take a snapshot every period, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets how often a snapshot is taken while recording.
+     *
+     * @return the reporting period in milliseconds
+     */
+    long getPeriodMillis();
+
+    /**
+     * Sets how often a snapshot is taken while recording.
+     *
+     * @param periodMillis the reporting period in milliseconds, at least 1
+     */
+    void setPeriodMillis(long periodMillis);
+
+    /**
+     * Gets the latest periodic snapshot.
+     *
+     * @return the summary of the last completed period, or null if none has completed
+     */
+    MetricsSnapshot getLatest();
+}
@@ -0,0 +1,256 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Histogram class counts recorded values, such as tick durations in nanoseconds, so their
+ * percentiles can be read later, in the manner of HdrHistogram.
+ *
+ * Values below 128 get a bucket each. Above that, every power of two is split into 64 equal
+ * buckets, so a reported value is never more than 1/64 (about 1.6%) above the true one, over
+ * the whole range of a long, in a fixed 3712 buckets. Recording is a single atomic increment:
+ * any number of threads may record at once, without locks and without allocating. Reading
+ * takes the counts bucket by bucket, so a value recorded during a read lands in that read or
+ * the next one and is never lost.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;  // Values below this are counted exactly
+    private static final int HALF_SHIFT = SUB_BUCKET_BITS - 1;    // Log2 of the buckets per power of two above that
+    private static final int BUCKETS = ((63 - SUB_BUCKET_BITS) << HALF_SHIFT) + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);  // Values recorded in each bucket
+    private final long[] scratch = new long[BUCKETS];  // Counts taken by the current read
+
+    /**
+     * The Summary class holds the percentiles of a histogram at the time it was read.
+     * Every value is the highest value of its bucket.
+     */
+    public static final class Summary {
+        private final long count;   // Values summarized
+        private final double mean;  // Mean of the values, from their buckets
+        private final long p50;     // Median
+        private final long p90;     // 90th percentile
+        private final long p99;     // 99th percentile
+        private final long p999;    // 99.9th percentile
+        private final long max;     // Largest value
+
+        private Summary(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        /**
+         * Gets the number of values summarized.
+         *
+         * @return the value count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the mean of the values.
+         *
+         * @return the mean
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Gets the median value.
+         *
+         * @return the 50th percentile
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * Gets the 90th percentile value.
+         *
+         * @return the 90th percentile
+         */
+        public long getP90() {
+            return p90;
+        }
+
+        /**
+         * Gets the 99th percentile value.
+         *
+         * @return the 99th percentile
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * Gets the 99.9th percentile value.
+         *
+         * @return the 99.9th percentile
+         */
+        public long getP999() {
+            return p999;
+        }
+
+        /**
+         * Gets the largest value.
+         *
+         * @return the maximum
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Describes the percentiles in a unit.
+         *
+         * @param scale the number of recorded units in one displayed unit, e.g. 1e6 to show nanoseconds as ms
+         * @param unit the name of the displayed unit
+         * @return a one-line summary of the percentiles and the number of samples
+         */
+        public String format(double scale, String unit) {
+            return String.format("p50 %.2f %s, p90 %.2f %s, p99 %.2f %s, p99.9 %.2f %s, max %.2f %s (%d samples)",
+                    p50 / scale, unit, p90 / scale, unit, p99 / scale, unit, p999 / scale, unit, max / scale, unit, count);
+        }
+
+        @Override
+        public String toString() {
+            return format(1.0, "");
+        }
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Finds the bucket of a value; negative values count as zero.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_SHIFT;  // Keeps the top SUB_BUCKET_BITS bits
+        return (shift << HALF_SHIFT) + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the highest value counted in a bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> HALF_SHIFT) - 1;
+        long lowest = (long) ((bucket & ((1 << HALF_SHIFT) - 1)) + (1 << HALF_SHIFT)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Computes the summary of the counts in the scratch array.
+     */
+    private Summary summarize() {
+        long total = 0;
+        double sum = 0;
+        int highest = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = scratch[i];
+            if (n != 0) {
+                total += n;
+                sum += (double) n * highestValueOf(i);
+                highest = i;
+            }
+        }
+        if (total == 0) {
+            return new Summary(0, 0.0, 0, 0, 0, 0, 0);
+        }
+        long[] ranks = {rankOf(50, total), rankOf(90, total), rankOf(99, total), rankOf(99.9, total)};
+        long[] values = new long[ranks.length];
+        long seen = 0;
+        int next = 0;
+        for (int i = 0; i <= highest && next < ranks.length; i++) {
+            seen += scratch[i];
+            while (next < ranks.length && seen >= ranks[next]) {
+                values[next++] = highestValueOf(i);
+            }
+        }
+        return new Summary(total, sum / total, values[0], values[1], values[2], values[3], highestValueOf(highest));
+    }
+
+    /**
+     * Gets the number of values at or below a percentile, at least 1.
+     */
+    private static long rankOf(double percentile, long total) {
+        return Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Records one value.
+     *
+     * @param value the value, such as a duration in nanoseconds; negative values count as zero
+     */
+    public void record(long value) {
+        counts.getAndIncrement(bucketOf(value));
+    }
+
+    /**
+     * Summarizes every value recorded since the last drain, without clearing them.
+     *
+     * @return the percentiles of the recorded values
+     */
+    public synchronized Summary getSummary() {
+        for (int i = 0; i < BUCKETS; i++) {
+            scratch[i] = counts.get(i);
+        }
+        return summarize();
+    }
+
+    /**
+     * Creates the marks for getSummarySince(), at which nothing has been seen yet.
+     *
+     * @return the marks, one count per bucket
+     */
+    public static long[] newMarks() {
+        return new long[BUCKETS];
+    }
+
+    /**
+     * Summarizes the values recorded since the previous call with the same marks, without
+     * clearing them, so one reader can follow intervals while others read the totals.
+     *
+     * @param marks the counts seen by the previous call, from newMarks(); updated to the counts now
+     * @return the percentiles of the values recorded since the previous call
+     */
+    public synchronized Summary getSummarySince(long[] marks) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            scratch[i] = count - marks[i];
+            marks[i] = count;
+        }
+        return summarize();
+    }
+
+    /**
+     * Summarizes every value recorded since the last drain and clears them, so the next
+     * drain covers only what is recorded from now on.
+     *
+     * @return the percentiles of the values recorded over the interval
+     */
+    public synchronized Summary drain() {
+        for (int i = 0; i < BUCKETS; i++) {
+            scratch[i] = counts.get(i) == 0 ? 0 : counts.getAndSet(i, 0);
+        }
+        return summarize();
+    }
+}
@@ -0,0 +1,138 @@
+package controller;
+
+/**
+ * The MetricsSnapshot class is an immutable summary of one interval of GameMetrics: the
+ * percentiles of everything recorded since the previous snapshot, and the rates over the
+ * interval. It can be kept or passed to any thread.
+ */
+public class MetricsSnapshot {
+    private final double intervalSeconds;             // Length of the interval summarized
+    private final Histogram.Summary tickTime;         // Time each simulation tick took, in nanoseconds
+    private final Histogram.Summary renderTime;       // Time each frame took to draw, in nanoseconds
+    private final Histogram.Summary inputLatency;     // Time from key press to the tick that applied it, in nanoseconds
+    private final Histogram.Summary queueDepth;       // Commands waiting at the start of each tick
+    private final Histogram.Summary allocatedBytes;   // Bytes the simulation thread allocated in each tick
+    private final long apples;                        // Apples eaten during the interval
+
+    /**
+     * Constructs a MetricsSnapshot.
+     *
+     * @param intervalSeconds the length of the interval summarized, in seconds
+     * @param tickTime the simulation tick durations, in nanoseconds
+     * @param renderTime the frame drawing durations, in nanoseconds
+     * @param inputLatency the latencies from key press to the tick that applied it, in nanoseconds
+     * @param queueDepth the number of commands waiting at the start of each tick
+     * @param allocatedBytes the bytes allocated by the simulation thread in each tick
+     * @param apples the number of apples eaten during the interval
+     */
+    public MetricsSnapshot(double intervalSeconds, Histogram.Summary tickTime, Histogram.Summary renderTime,
+                           Histogram.Summary inputLatency, Histogram.Summary queueDepth,
+                           Histogram.Summary allocatedBytes, long apples) {
+        this.intervalSeconds = intervalSeconds;
+        this.tickTime = tickTime;
+        this.renderTime = renderTime;
+        this.inputLatency = inputLatency;
+        this.queueDepth = queueDepth;
+        this.allocatedBytes = allocatedBytes;
+        this.apples = apples;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the length of the interval this snapshot summarizes.
+     *
+     * @return the interval in seconds
+     */
+    public double getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * Gets how long simulation ticks took, including waiting for the game lock and the autopilot.
+     *
+     * @return the tick durations in nanoseconds
+     */
+    public Histogram.Summary getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Gets how long frames took to draw, including waiting for the game lock.
+     *
+     * @return the frame durations in nanoseconds
+     */
+    public Histogram.Summary getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * Gets the time from key press to the tick that applied each command.
+     *
+     * @return the input latencies in nanoseconds
+     */
+    public Histogram.Summary getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Gets how many commands were waiting at the start of each tick.
+     *
+     * @return the input queue depths
+     */
+    public Histogram.Summary getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Gets how many bytes the simulation thread allocated in each tick.
+     *
+     * @return the bytes per tick, or an empty summary if the JVM cannot count allocations
+     */
+    public Histogram.Summary getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Gets the simulation rate over the interval.
+     *
+     * @return ticks per second
+     */
+    public double getTicksPerSecond() {
+        return intervalSeconds > 0 ? tickTime.getCount() / intervalSeconds : 0.0;
+    }
+
+    /**
+     * Gets the display rate over the interval.
+     *
+     * @return frames per second
+     */
+    public double getFramesPerSecond() {
+        return intervalSeconds > 0 ? renderTime.getCount() / intervalSeconds : 0.0;
+    }
+
+    /**
+     * Gets how quickly apples were eaten over the interval.
+     *
+     * @return apples per minute
+     */
+    public double getApplesPerMinute() {
+        return intervalSeconds > 0 ? apples * 60.0 / intervalSeconds : 0.0;
+    }
+
+    /**
+     * Describes the snapshot over several lines, one per metric.
+     *
+     * @return a readable summary of the interval
+     */
+    @Override
+    public String toString() {
+        return String.format("Metrics over %.1f s: %.1f ticks/s, %.1f frames/s, %.1f apples/min%n"
+                        + "  tick:   %s%n  render: %s%n  input:  %s%n  queue:  %s%n  alloc:  %s",
+                intervalSeconds, getTicksPerSecond(), getFramesPerSecond(), getApplesPerMinute(),
+                tickTime.format(1e3, "us"), renderTime.format(1e6, "ms"), inputLatency.format(1e6, "ms"),
+                queueDepth.format(1.0, "cmds"), allocatedBytes.format(1.0, "B"));
+    }
+}
@@ -0,0 +1,53 @@
+package controller;
+
+/**
+ * The RateMeter class measures how often an event happens per second, such as simulation ticks
+ * or rendered frames. One thread records events while any thread may read the latest rate.
+ */
+public class RateMeter {
+    private static final long WINDOW_NANOS = 1_000_000_000L;  // Length of a measuring window
+
+    private long windowStart = System.nanoTime();  // Start of the current window
+    private long windowCount;                      // Events recorded in the current window
+    private volatile double perSecond;             // Rate over the last completed window
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Records one event at the given time.
+     *
+     * @param now the current System.nanoTime()
+     *
+     * The published rate is refreshed once a full window has passed, so recording an event
+     * costs only a counter increment and a comparison.
+     */
+    public void record(long now) {
+        windowCount++;
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            perSecond = windowCount * 1e9 / elapsed;
+            windowStart = now;
+            windowCount = 0;
+        }
+    }
+
+    /**
+     * Clears the meter, for example when the game restarts.
+     */
+    public void reset() {
+        windowStart = System.nanoTime();
+        windowCount = 0;
+        perSecond = 0.0;
+    }
+
+    /**
+     * Gets the rate measured over the last completed window.
+     *
+     * @return the number of events per second
+     */
+    public double getPerSecond() {
+        return perSecond;
+    }
+}
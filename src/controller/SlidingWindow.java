@@ -1,66 +1,209 @@
 package controller;
 
 import snake.Direction;
+import snake.SnakeLinkedList;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
+/**
+ * The SlidingWindow class remembers the snake's most recent moves and keeps them one-hot
+ * encoded for a network.
+ *
+ * Moves live in a fixed-capacity ring of primitives: a byte per direction and an int per
+ * position, packed by SnakeLinkedList.pack(). The encoding is kept up to date as moves are
+ * added, in a buffer that holds the ring twice over: every move is written at its slot and
+ * again one window further on, so the window, oldest move first, is always one contiguous
+ * range of the buffer. Adding a move and reading the encoding are both O(1) and allocate
+ * nothing.
+ */
 public class SlidingWindow {
-    private final int windowSize = 10;  // Fixed size of the sliding window
-    private LinkedList<MoveEntry> moves;
+    public static final int DEFAULT_WINDOW_SIZE = 10;  // Moves remembered by default
+    public static final int ENCODING_WIDTH = 3;        // Floats per move: LEFT, RIGHT, FORWARD
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
 
+    private final int windowSize;       // Number of moves remembered
+    private final byte[] directions;    // Direction ordinal of each move, by ring slot
+    private final int[] positions;      // Packed head position of each move, by ring slot
+    private final float[] encoding;     // One-hot encoding of each move, by ring slot, stored twice over
+    private int next;                   // Ring slot the next move is written to
+    private int count;                  // Number of moves remembered, up to windowSize
+
+    /**
+     * Constructs a SlidingWindow that remembers the last 10 moves.
+     */
     public SlidingWindow() {
-        moves = new LinkedList<>();
+        this(DEFAULT_WINDOW_SIZE);
     }
 
-    public void addMove(Direction.Dir direction, int x, int y) {
-        if (moves.size() >= windowSize) {
-            moves.removeFirst();  // Remove the oldest move
+    /**
+     * Constructs a SlidingWindow.
+     *
+     * @param windowSize the number of moves to remember, at least 1
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    public SlidingWindow(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
         }
-        moves.addLast(new MoveEntry(direction, x, y));  // Add the new move
+        this.windowSize = windowSize;
+        this.directions = new byte[windowSize];
+        this.positions = new int[windowSize];
+        this.encoding = new float[2 * windowSize * ENCODING_WIDTH];
     }
 
-    public LinkedList<MoveEntry> getMoves() {
-        return new LinkedList<>(moves);  // Return a copy
-    }
+    /**
+    /* Private methods follow
+    /**/
 
-    public double[] getEncodedMoves() {
-        double[] encodedMoves = new double[windowSize * 3];  // 3 options: LEFT, RIGHT, FORWARD
+    /**
+     * Writes the encoding of a direction at a ring slot and at its mirror one window further on.
+     */
+    private void encode(int slot, Direction.Dir direction) {
+        int offset = slot * ENCODING_WIDTH;
+        int mirror = offset + windowSize * ENCODING_WIDTH;
+        float left = direction == Direction.Dir.LEFT ? 1f : 0f;
+        float right = direction == Direction.Dir.RIGHT ? 1f : 0f;
+        float forward = direction == Direction.Dir.UP || direction == Direction.Dir.DOWN ? 1f : 0f;
+        encoding[offset] = left;
+        encoding[offset + 1] = right;
+        encoding[offset + 2] = forward;
+        encoding[mirror] = left;
+        encoding[mirror + 1] = right;
+        encoding[mirror + 2] = forward;
+    }
 
-        int index = 0;
-        for (MoveEntry move : moves) {
-            double[] encodedDirection = encodeDirection(move.getDirection());
-            System.arraycopy(encodedDirection, 0, encodedMoves, index, 3);
-            index += 3;
+    /**
+     * Finds the ring slot of a move, counting from the oldest.
+     */
+    private int slotOf(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + count);
         }
+        int slot = getOldestSlot() + index;
+        return slot < windowSize ? slot : slot - windowSize;
+    }
 
-        // Pad remaining slots with zeros if necessary
-        while (index < encodedMoves.length) {
-            encodedMoves[index++] = 0.0;
-        }
+    /**
+     * Finds the ring slot of the oldest move.
+     */
+    private int getOldestSlot() {
+        return count < windowSize ? 0 : next;
+    }
 
-        return encodedMoves;
-    }
-
-    private double[] encodeDirection(Direction.Dir direction) {
-        double[] encoding = new double[3];  // LEFT, RIGHT, FORWARD
-        switch (direction) {
-            case LEFT:
-                encoding[0] = 1.0;
-                break;
-            case RIGHT:
-                encoding[1] = 1.0;
-                break;
-            case UP:
-            case DOWN:
-                encoding[2] = 1.0;
-                break;
-            default:
-                break;
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Adds a move, forgetting the oldest one if the window is full.
+     *
+     * @param direction the direction moved in
+     * @param x the head column after the move
+     * @param y the head row after the move
+     */
+    public void addMove(Direction.Dir direction, int x, int y) {
+        directions[next] = (byte) direction.ordinal();
+        positions[next] = SnakeLinkedList.pack(x, y);
+        encode(next, direction);
+        next = next + 1 == windowSize ? 0 : next + 1;
+        if (count < windowSize) {
+            count++;
         }
+    }
+
+    /**
+     * Gets the buffer holding the encoded window. The window is the getEncodingLength() floats
+     * starting at getEncodingOffset(): three per move, oldest first, followed by zeros until
+     * the window has filled up. The buffer changes as moves are added.
+     *
+     * @return the encoding buffer, which must not be modified
+     */
+    public float[] getEncoding() {
         return encoding;
     }
 
+    /**
+     * Gets where the encoded window starts in the encoding buffer.
+     *
+     * @return the index of the oldest move's first float
+     */
+    public int getEncodingOffset() {
+        return getOldestSlot() * ENCODING_WIDTH;
+    }
+
+    /**
+     * Gets the length of the encoded window.
+     *
+     * @return windowSize * ENCODING_WIDTH
+     */
+    public int getEncodingLength() {
+        return windowSize * ENCODING_WIDTH;
+    }
+
+    /**
+     * Copies the encoded window into a caller-supplied buffer, such as a network's input.
+     *
+     * @param out the array to copy getEncodingLength() floats to
+     * @param offset index of the first float in out
+     */
+    public void copyEncodedMoves(float[] out, int offset) {
+        System.arraycopy(encoding, getEncodingOffset(), out, offset, getEncodingLength());
+    }
+
+    /**
+     * Gets the direction of a remembered move.
+     *
+     * @param index the move, from 0 for the oldest to size() - 1 for the newest
+     * @return the direction moved in
+     */
+    public Direction.Dir getDirection(int index) {
+        return DIRECTIONS[directions[slotOf(index)]];
+    }
+
+    /**
+     * Gets the head column after a remembered move.
+     *
+     * @param index the move, from 0 for the oldest to size() - 1 for the newest
+     * @return the column
+     */
+    public int getX(int index) {
+        return SnakeLinkedList.unpackX(positions[slotOf(index)]);
+    }
+
+    /**
+     * Gets the head row after a remembered move.
+     *
+     * @param index the move, from 0 for the oldest to size() - 1 for the newest
+     * @return the row
+     */
+    public int getY(int index) {
+        return SnakeLinkedList.unpackY(positions[slotOf(index)]);
+    }
+
+    /**
+     * Gets the number of remembered moves.
+     *
+     * @return the move count, at most getWindowSize()
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the number of moves the window remembers.
+     *
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Forgets every move.
+     */
     public void clear() {
-        moves.clear();
+        next = 0;
+        count = 0;
+        Arrays.fill(encoding, 0f);
     }
 }
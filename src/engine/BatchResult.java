@@ -0,0 +1,184 @@
+package engine;
+
+/**
+ * The BatchResult class aggregates the results of many games: score, final length, ticks
+ * survived and how each game ended. Each worker fills its own BatchResult without locking,
+ * and the results are merged once the batch is done.
+ *
+ * The score of a game is the number of apples eaten, which is the final length minus one.
+ */
+public class BatchResult {
+    private static final GameOutcome[] OUTCOMES = GameOutcome.values();
+
+    private final long[] outcomeCounts = new long[OUTCOMES.length];  // Games ended by each outcome
+    private long games;        // Games recorded
+    private long totalScore;   // Sum of the scores
+    private long maxScore;     // Best single score
+    private long totalLength;  // Sum of the final lengths
+    private long totalTicks;   // Sum of the ticks survived
+    private long maxTicks;     // Longest single game
+    private long elapsedNanos; // Wall-clock time of the batch, set by the runner
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Records one finished game.
+     *
+     * @param state the game as it ended
+     * @param outcome how it ended
+     */
+    public void record(GameState state, GameOutcome outcome) {
+        long score = state.getLength() - 1;
+        games++;
+        totalScore += score;
+        maxScore = Math.max(maxScore, score);
+        totalLength += state.getLength();
+        totalTicks += state.getTick();
+        maxTicks = Math.max(maxTicks, state.getTick());
+        outcomeCounts[outcome.ordinal()]++;
+    }
+
+    /**
+     * Adds another result's games to this one.
+     *
+     * @param other the result to merge in
+     */
+    public void merge(BatchResult other) {
+        games += other.games;
+        totalScore += other.totalScore;
+        maxScore = Math.max(maxScore, other.maxScore);
+        totalLength += other.totalLength;
+        totalTicks += other.totalTicks;
+        maxTicks = Math.max(maxTicks, other.maxTicks);
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] += other.outcomeCounts[i];
+        }
+    }
+
+    /**
+     * Sets how long the batch took to run.
+     *
+     * @param elapsedNanos the wall-clock time in nanoseconds
+     */
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of games recorded.
+     *
+     * @return the game count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the total score of all games.
+     *
+     * @return the number of apples eaten across the batch
+     */
+    public long getTotalScore() {
+        return totalScore;
+    }
+
+    /**
+     * Gets the best score of any game.
+     *
+     * @return the most apples eaten in one game
+     */
+    public long getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * Gets the total ticks played.
+     *
+     * @return the sum of every game's ticks
+     */
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    /**
+     * Gets the longest game.
+     *
+     * @return the most ticks any game lasted
+     */
+    public long getMaxTicks() {
+        return maxTicks;
+    }
+
+    /**
+     * Gets how long the batch took to run.
+     *
+     * @return the wall-clock time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of games that ended a given way.
+     *
+     * @param outcome the outcome to count
+     * @return the number of games with that outcome
+     */
+    public long getOutcomeCount(GameOutcome outcome) {
+        return outcomeCounts[outcome.ordinal()];
+    }
+
+    /**
+     * Gets the mean score per game.
+     *
+     * @return the average number of apples eaten, or 0 if no games were recorded
+     */
+    public double getMeanScore() {
+        return games == 0 ? 0.0 : (double) totalScore / games;
+    }
+
+    /**
+     * Gets the mean final length per game.
+     *
+     * @return the average final length, or 0 if no games were recorded
+     */
+    public double getMeanLength() {
+        return games == 0 ? 0.0 : (double) totalLength / games;
+    }
+
+    /**
+     * Gets the mean number of ticks survived per game.
+     *
+     * @return the average game length in ticks, or 0 if no games were recorded
+     */
+    public double getMeanTicks() {
+        return games == 0 ? 0.0 : (double) totalTicks / games;
+    }
+
+    /**
+     * Gets the throughput of the batch.
+     *
+     * @return games per second, or 0 if no time was recorded
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Describes the batch in one line.
+     *
+     * @return the game count, mean and best score, mean length and ticks, and outcome counts
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format(
+                "%d games: score mean %.2f max %d, length mean %.2f, ticks mean %.1f max %d,",
+                games, getMeanScore(), maxScore, getMeanLength(), getMeanTicks(), maxTicks));
+        for (GameOutcome outcome : OUTCOMES) {
+            text.append(' ').append(outcome).append(' ').append(outcomeCounts[outcome.ordinal()]);
+        }
+        return text.toString();
+    }
+}
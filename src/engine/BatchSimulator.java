@@ -0,0 +1,180 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The BatchSimulator class plays large numbers of independent headless games across cores
+ * and aggregates their results, for evaluating policies.
+ *
+ * Each worker thread owns one preallocated GameState and one Policy and reuses them for every
+ * game it plays, so a batch allocates nothing per game. Workers claim games in small chunks
+ * from a shared counter, which keeps the cores busy even when game lengths vary widely.
+ * Game i is always played with the same seed, derived from the batch seed, so a batch gives
+ * the same results whatever the number of threads.
+ */
+public class BatchSimulator implements AutoCloseable {
+    private static final int CHUNK_GAMES = 16;  // Games a worker claims at a time
+
+    private final int cols;            // Number of columns of every board
+    private final int rows;            // Number of rows of every board
+    private final int threads;         // Number of worker threads
+    private final long starvationTicks;  // Ticks without eating before a game is ended
+    private final ForkJoinPool pool;   // Runs the workers
+
+    /**
+     * Constructs a BatchSimulator that starves a snake after twice the board's cell count of
+     * ticks without eating.
+     *
+     * @param cols the number of columns of every board
+     * @param rows the number of rows of every board
+     * @param threads the number of worker threads
+     */
+    public BatchSimulator(int cols, int rows, int threads) {
+        this(cols, rows, threads, 2L * cols * rows);
+    }
+
+    /**
+     * Constructs a BatchSimulator.
+     *
+     * @param cols the number of columns of every board
+     * @param rows the number of rows of every board
+     * @param threads the number of worker threads, at least 1
+     * @param starvationTicks ticks without eating after which a game ends as STARVATION;
+     *                        this also stops policies that circle forever
+     * @throws IllegalArgumentException if threads or starvationTicks is not positive
+     */
+    public BatchSimulator(int cols, int rows, int threads, long starvationTicks) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (starvationTicks < 1) {
+            throw new IllegalArgumentException("Starvation limit must be positive: " + starvationTicks);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.threads = threads;
+        this.starvationTicks = starvationTicks;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Derives the seed of one game of a batch, independently of which worker plays it.
+     */
+    private static long gameSeed(long batchSeed, long game) {
+        return SplitMix64.mix(batchSeed + (game + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Plays games claimed from the shared counter until none are left.
+     */
+    private BatchResult work(Policy policy, long games, long batchSeed, AtomicLong nextGame) {
+        GameState state = new GameState(cols, rows, batchSeed);
+        BatchResult result = new BatchResult();
+        long first;
+        while ((first = nextGame.getAndAdd(CHUNK_GAMES)) < games) {
+            long last = Math.min(games, first + CHUNK_GAMES);
+            for (long game = first; game < last; game++) {
+                state.reset(gameSeed(batchSeed, game));
+                result.record(state, playGame(state, policy, starvationTicks));
+            }
+        }
+        return result;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Plays a game that has just been reset to the end with a policy.
+     *
+     * @param state the reset game to play
+     * @param policy the policy choosing every move
+     * @param starvationTicks ticks without eating after which the game ends as STARVATION
+     * @return how the game ended
+     */
+    public static GameOutcome playGame(GameState state, Policy policy, long starvationTicks) {
+        policy.reset(state);
+        int length = state.getLength();
+        long lastMeal = 0;
+        while (true) {
+            state.changeDirection(policy.chooseDirection(state));
+            state.update();
+            if (state.isWallCollision()) {
+                return GameOutcome.WALL;
+            }
+            if (state.isSelfCollision()) {
+                return GameOutcome.SELF;
+            }
+            if (state.checkWinCondition()) {
+                return GameOutcome.WIN;
+            }
+            if (state.getLength() != length) {
+                length = state.getLength();
+                lastMeal = state.getTick();
+            } else if (state.getTick() - lastMeal >= starvationTicks) {
+                return GameOutcome.STARVATION;
+            }
+        }
+    }
+
+    /**
+     * Plays a batch of games and aggregates their results.
+     *
+     * @param games the number of games to play
+     * @param batchSeed the seed every game's seed is derived from
+     * @param policies creates one policy per worker thread
+     * @return the combined results, with the elapsed time set
+     * @throws IllegalStateException if a worker fails
+     */
+    public BatchResult run(long games, long batchSeed, Supplier<? extends Policy> policies) {
+        long start = System.nanoTime();
+        AtomicLong nextGame = new AtomicLong();
+        List<Future<BatchResult>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Policy policy = policies.get();
+            workers.add(pool.submit(() -> work(policy, games, batchSeed, nextGame)));
+        }
+
+        BatchResult total = new BatchResult();
+        try {
+            for (Future<BatchResult> worker : workers) {
+                total.merge(worker.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the batch", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A batch worker failed", e.getCause());
+        }
+        total.setElapsedNanos(System.nanoTime() - start);
+        return total;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     *
+     * @return the parallelism of the batch
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Shuts the worker threads down.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
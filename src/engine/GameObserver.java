@@ -0,0 +1,22 @@
+package engine;
+
+/**
+ * The GameObserver interface is implemented by anything that wants to follow a GameState
+ * as it is played, such as a renderer. The simulation never depends on an observer being present.
+ */
+public interface GameObserver {
+
+    /**
+     * Called after the game has been reset to its starting position.
+     *
+     * @param state the game that was reset
+     */
+    void gameReset(GameState state);
+
+    /**
+     * Called after the game has advanced by one tick.
+     *
+     * @param state the game that was stepped
+     */
+    void gameStepped(GameState state);
+}
@@ -0,0 +1,11 @@
+package engine;
+
+/**
+ * The GameOutcome enum records how a game ended.
+ */
+public enum GameOutcome {
+    WALL,        // The head left the board
+    SELF,        // The head ran into the body
+    STARVATION,  // Too many ticks passed without eating, or the game hit its tick limit
+    WIN          // The snake filled the board
+}
@@ -0,0 +1,672 @@
+package engine;
+
+import snake.SnakeLinkedList;
+import snake.Direction;
+import apple.Apple;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GameState class is the headless simulation core of the Snake game. It holds the snake,
+ * the apple, the occupancy of the board and the collision and win logic, and has no dependency
+ * on JavaFX, so games can be stepped on a server without a display.
+ *
+ * Stepping a game allocates nothing, and a GameState can be reset and reused for any number of games.
+ * Renderers follow the game by registering a GameObserver.
+ *
+ * Games are deterministic: apple placement draws from a SplitMix64 generator reseeded at the
+ * start of every game, so a game seed and the sequence of directions reproduce a game exactly.
+ */
+public class GameState {
+    public static final int MAX_SIZE = 32767;  // Largest side length, limited by the packed 16-bit snake cells
+    public static final int SNAPSHOT_MAGIC = 0x534B4E53;  // "SNKS" in little-endian byte order
+    public static final short SNAPSHOT_VERSION = 1;       // Layout version written to every snapshot
+    public static final int SNAPSHOT_HEADER_BYTES = 60;   // Snapshot bytes before the body
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int JOURNAL_TICKS = 4096;  // Ticks after restoreFrom() that the next restoreFrom() can undo cheaply
+
+    private final int cols;                 // Number of columns in the board
+    private final int rows;                 // Number of rows in the board
+    private final int totalCells;           // Total number of cells in the board
+    private final SnakeLinkedList snake;    // The snake's body, direction and growth
+    private final OccupancyGrid occupancy;  // Cells covered by the snake
+    private final Apple apple = new Apple(0, 0);  // The current apple, moved rather than replaced
+    private final SplitMix64 seeds;         // Draws a seed for each new game from the state's seed
+    private final SplitMix64 random = new SplitMix64(0L);  // Apple placement, reseeded at the start of every game
+    private final List<GameObserver> observers = new ArrayList<>();  // Observers notified of every change
+    private long gameSeed;                  // Seed of the game currently being played
+    private boolean hasApple;               // False only once the snake covers the whole board
+    private boolean selfCollision;          // Set when the head moved onto an occupied cell
+    private long tick;                      // Number of steps taken in the current game
+    private int vacatedCell = -1;           // Cell the tail left on the last step, or -1
+    private int previousAppleCell = -1;     // Cell the apple was on before the last step, or -1
+    private long version;                   // Counts changes other than turns, so copies can tell this game has moved on
+    private GameState journalSource;        // Game last passed to restoreFrom(), or null
+    private long journalVersion;            // Version of journalSource when it was copied
+    private int[] touchedCells;             // Cells whose occupancy changed since then
+    private int touchedCount = -1;          // Entries in touchedCells, or -1 if changes are not being journaled
+
+    /**
+     * Constructs a GameState for a board of the given size.
+     *
+     * @param cols the number of columns in the board, from 1 to MAX_SIZE
+     * @param rows the number of rows in the board, from 1 to MAX_SIZE
+     * @param seed the seed from which every game's apple placement is derived
+     *
+     * This constructor preallocates everything the game needs and starts the first game.
+     * All per-cell storage is in primitive arrays (about 4 bytes per cell), so boards of
+     * thousands of cells on a side are practical.
+     * Each call to reset() draws the next game seed from this seed, so the same seed and the
+     * same inputs always produce the same sequence of games.
+     */
+    public GameState(int cols, int rows, long seed) {
+        if (cols < 1 || rows < 1 || cols > MAX_SIZE || rows > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 1x1 and "
+                    + MAX_SIZE + "x" + MAX_SIZE + ": " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.totalCells = cols * rows;
+        this.snake = new SnakeLinkedList(cols / 2, rows / 2, totalCells + 1);
+        this.occupancy = new OccupancyGrid(cols, rows);
+        this.seeds = new SplitMix64(seed);
+        reset();
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Updates the occupancy grid after the snake has moved one step.
+     *
+     * @param tail the packed cell of the tail before the move
+     * @param grew true if the move kept the tail in place
+     *
+     * The vacated tail cell is released before the new head is placed, so moving into the cell
+     * the tail just left is not a collision. A head landing on a cell that is still occupied is
+     * recorded as a self-collision; a head outside the board is left for the wall check.
+     */
+    private void updateOccupancy(int tail, boolean grew) {
+        vacatedCell = -1;
+        if (!grew) {
+            int cell = occupancy.cellOf(SnakeLinkedList.unpackX(tail), SnakeLinkedList.unpackY(tail));
+            occupancy.clear(cell);
+            vacatedCell = cell;
+            touch(cell);
+        }
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        if (occupancy.isInside(headX, headY)) {
+            int head = occupancy.cellOf(headX, headY);
+            if (occupancy.isOccupied(head)) {
+                selfCollision = true;
+            }
+            occupancy.set(head);
+            touch(head);
+        }
+    }
+
+    /**
+     * Journals a cell whose occupancy changed, if changes are being journaled for restoreFrom().
+     */
+    private void touch(int cell) {
+        if (touchedCount >= 0) {
+            if (touchedCount == touchedCells.length) {
+                touchedCount = -1;  // Too much has changed; the next restore copies everything
+            } else {
+                touchedCells[touchedCount++] = cell;
+            }
+        }
+    }
+
+    /**
+     * Checks that another game is on a board of the same size, so it can be copied.
+     */
+    private void checkSameSize(GameState other) {
+        if (other.cols != cols || other.rows != rows) {
+            throw new IllegalArgumentException("Cannot copy a " + other.cols + "x" + other.rows
+                    + " game into a " + cols + "x" + rows + " one");
+        }
+    }
+
+    /**
+     * Copies everything but the snake and the occupancy from another game.
+     */
+    private void copyScalarsFrom(GameState other) {
+        apple.setPosition(other.apple.getX(), other.apple.getY());
+        seeds.setState(other.seeds.getState());
+        random.setState(other.random.getState());
+        gameSeed = other.gameSeed;
+        hasApple = other.hasApple;
+        selfCollision = other.selfCollision;
+        tick = other.tick;
+        vacatedCell = other.vacatedCell;
+        previousAppleCell = other.previousAppleCell;
+    }
+
+    /**
+     * Checks if the snake's head is on the apple.
+     *
+     * @return true if the snake's head shares the apple's position, otherwise false
+     */
+    private boolean checkAppleCollision() {
+        return hasApple && snake.getHeadX() == apple.getX() && snake.getHeadY() == apple.getY();
+    }
+
+    /**
+     * Moves the apple to a uniformly random free cell. If no free cell is left the board has no apple.
+     *
+     * One draw picks the rank of the cell among the free cells in cell order, so where the
+     * apple lands depends only on the generator and on which cells are free, and a game
+     * restored from a snapshot places the same apples as the original.
+     */
+    private void generateApple() {
+        int free = occupancy.getFreeCount();
+        hasApple = free > 0;
+        if (hasApple) {
+            int cell = occupancy.findFree(random.nextInt(free));
+            apple.setPosition(cell % cols, cell / cols);
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Starts a new game with the next seed drawn from this state's seed.
+     */
+    public void reset() {
+        reset(seeds.nextLong());
+    }
+
+    /**
+     * Starts a new game with the given game seed.
+     *
+     * @param seed the seed for this game's apple placement
+     *
+     * This method places the snake back at the center of the board, clears the board and
+     * generates the first apple. It reuses all existing storage.
+     */
+    public void reset(long seed) {
+        gameSeed = seed;
+        random.setState(seed);
+        version++;
+        journalSource = null;
+        touchedCount = -1;
+        snake.reset(cols / 2, rows / 2);
+        int head = occupancy.cellOf(snake.getHeadX(), snake.getHeadY());
+        occupancy.clearAll();
+        occupancy.set(head);
+        selfCollision = false;
+        tick = 0;
+        vacatedCell = -1;
+        previousAppleCell = -1;
+        generateApple();
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).gameReset(this);
+        }
+    }
+
+    /**
+     * Advances the game by one tick, moving the snake and checking for the apple.
+     *
+     * If the snake eats the apple, it grows and a new apple is generated, unless the snake
+     * already fills the board. Collisions are reported by checkCollisions() afterwards.
+     */
+    public void update() {
+        version++;
+        int tail = snake.getTail();
+        boolean growing = snake.isGrowing();
+        previousAppleCell = getAppleCell();
+        snake.move();
+        tick++;
+        updateOccupancy(tail, growing);
+        if (checkAppleCollision()) {
+            snake.grow();
+
+            // Only generate a new apple if the player hasn't won yet
+            if (snake.getLength() != totalCells) {
+                generateApple();
+            }
+        }
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).gameStepped(this);
+        }
+    }
+
+    /**
+     * Makes this state an exact copy of another game on a board of the same size, including
+     * the random number generators, so both continue identically from here.
+     *
+     * @param other the game to copy
+     * @throws IllegalArgumentException if the boards differ in size
+     *
+     * Every part of the state is copied with flat array copies and nothing is allocated.
+     * Observers are not copied; this state's observers are told the game was reset.
+     */
+    public void copyFrom(GameState other) {
+        checkSameSize(other);
+        snake.copyFrom(other.snake);
+        occupancy.copyFrom(other.occupancy);
+        copyScalarsFrom(other);
+        version++;
+        journalSource = null;
+        touchedCount = -1;
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).gameReset(this);
+        }
+    }
+
+    /**
+     * Makes this state an exact copy of another game again, for running many simulations
+     * from the same starting point, such as search rollouts.
+     *
+     * @param other the game to copy
+     * @throws IllegalArgumentException if the boards differ in size
+     *
+     * The first call copies the whole game, like copyFrom(), and from then on this state
+     * journals the cells each tick changes. The next call with the same game
+     * rewrites only those, so restoring costs time proportional to the ticks played since
+     * rather than to the size of the board. The whole game is copied again after 4096 ticks,
+     * after a call with another game, after this state is reset or copied, and once the other
+     * game has changed. The first call allocates the journal; later calls allocate nothing.
+     * Observers are not copied; this state's observers are told the game was reset.
+     */
+    public void restoreFrom(GameState other) {
+        if (other == journalSource && other.version == journalVersion && touchedCount >= 0) {
+            for (int i = 0; i < touchedCount; i++) {
+                occupancy.copyCellFrom(other.occupancy, touchedCells[i]);
+            }
+            snake.restoreFrom(other.snake, tick - other.tick);
+        } else {
+            checkSameSize(other);
+            snake.copyFrom(other.snake);
+            occupancy.copyFrom(other.occupancy);
+            if (touchedCells == null) {
+                touchedCells = new int[2 * JOURNAL_TICKS];  // At most two cells per tick
+            }
+            journalSource = other;
+            journalVersion = other.version;
+        }
+        copyScalarsFrom(other);
+        version++;
+        touchedCount = 0;
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).gameReset(this);
+        }
+    }
+
+    /**
+     * Writes a compact snapshot of the game at the buffer's position.
+     *
+     * @param out a little-endian buffer with at least getSnapshotBytes() remaining
+     *
+     * A snapshot holds everything the game continues from: a 60-byte header with the board
+     * size, tick, direction, pending growth, collision flag, apple, both random generators
+     * and the cells changed by the last step, followed by the body as 2-bit steps from the
+     * tail to the head (see SnakeLinkedList.putBody()). A 10,000-segment snake fits in about
+     * 2.6KB. Writing takes time proportional to the length of the snake and allocates nothing.
+     *
+     * Snapshots are for keeping many game states cheaply, such as a rewind history. To reset
+     * a scratch game to the same position over and over, as a search does, restoreFrom() is faster.
+     */
+    public void writeSnapshot(ByteBuffer out) {
+        int flags = snake.getCurrentDirection().ordinal()
+                | (snake.isGrowing() ? 4 : 0) | (hasApple ? 8 : 0) | (selfCollision ? 16 : 0);
+        out.putInt(SNAPSHOT_MAGIC);
+        out.putShort(SNAPSHOT_VERSION);
+        out.putShort((short) flags);
+        out.putInt(cols);
+        out.putInt(rows);
+        out.putLong(tick);
+        out.putLong(gameSeed);
+        out.putLong(seeds.getState());
+        out.putLong(random.getState());
+        out.putInt(apple.getY() * cols + apple.getX());
+        out.putInt(vacatedCell);
+        out.putInt(previousAppleCell);
+        snake.putBody(out);
+    }
+
+    /**
+     * Replaces this game with one written by writeSnapshot(), reading from the buffer's position.
+     *
+     * @param in a little-endian buffer positioned at a snapshot of a game on a board of this size
+     * @throws IllegalArgumentException if the buffer does not hold such a snapshot
+     *
+     * The occupancy grid is rebuilt from the body, which takes time proportional to the size
+     * of the board divided by 64 plus the length of the snake, and allocates nothing. Apple
+     * placement depends only on the occupancy and the random generators, which are restored
+     * exactly, so the restored game continues exactly as the original would have: the same
+     * inputs give the same apples and the same getStateHash() from then on.
+     * Observers are told the game was reset.
+     */
+    public void readSnapshot(ByteBuffer in) {
+        int magic = in.getInt();
+        short layout = in.getShort();
+        int flags = in.getShort();
+        int snapshotCols = in.getInt();
+        int snapshotRows = in.getInt();
+        if (magic != SNAPSHOT_MAGIC || layout != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Not a version " + SNAPSHOT_VERSION + " game snapshot: magic "
+                    + Integer.toHexString(magic) + ", version " + layout);
+        }
+        if (snapshotCols != cols || snapshotRows != rows) {
+            throw new IllegalArgumentException("Cannot restore a " + snapshotCols + "x" + snapshotRows
+                    + " snapshot into a " + cols + "x" + rows + " game");
+        }
+        tick = in.getLong();
+        gameSeed = in.getLong();
+        seeds.setState(in.getLong());
+        random.setState(in.getLong());
+        int appleCell = in.getInt();
+        apple.setPosition(appleCell % cols, appleCell / cols);
+        vacatedCell = in.getInt();
+        previousAppleCell = in.getInt();
+        hasApple = (flags & 8) != 0;
+        selfCollision = (flags & 16) != 0;
+        snake.getBody(in, DIRECTIONS[flags & 3], (flags & 4) != 0);
+
+        occupancy.clearAll();
+        for (int i = 0; i < snake.getLength(); i++) {
+            int segment = snake.getSegment(i);
+            int x = SnakeLinkedList.unpackX(segment);
+            int y = SnakeLinkedList.unpackY(segment);
+            if (occupancy.isInside(x, y)) {  // A head that ran into a wall is off the board
+                occupancy.set(occupancy.cellOf(x, y));
+            }
+        }
+        version++;
+        journalSource = null;
+        touchedCount = -1;
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).gameReset(this);
+        }
+    }
+
+    /**
+     * Gets the number of bytes writeSnapshot() writes for the game as it is now.
+     *
+     * @return the snapshot size, 68 bytes plus a quarter byte per segment after the first
+     */
+    public int getSnapshotBytes() {
+        return SNAPSHOT_HEADER_BYTES + snake.getBodyBytes();
+    }
+
+    /**
+     * Gets the most bytes writeSnapshot() can write on this board, with the snake filling it.
+     *
+     * @return the largest snapshot size
+     */
+    public int getMaxSnapshotBytes() {
+        return SNAPSHOT_HEADER_BYTES + 8 + (totalCells + 2) / 4;
+    }
+
+    /**
+     * Changes the snake's direction, ignoring a reversal.
+     *
+     * @param direction the new direction to set for the snake
+     */
+    public void changeDirection(Direction.Dir direction) {
+        snake.changeDirection(direction);
+    }
+
+    /**
+     * Checks if the snake has collided with a wall or itself.
+     *
+     * @return true if a collision occurred, otherwise false
+     *
+     * Both checks are constant time: the wall check looks at the head's position and the
+     * self-collision was recorded by the occupancy grid when the head moved.
+     */
+    public boolean checkCollisions() {
+        return isWallCollision() || selfCollision;
+    }
+
+    /**
+     * Checks if the snake's head has left the board.
+     *
+     * @return true if the head is outside the board, otherwise false
+     */
+    public boolean isWallCollision() {
+        return !occupancy.isInside(snake.getHeadX(), snake.getHeadY());
+    }
+
+    /**
+     * Checks if the snake's head has run into its own body.
+     *
+     * @return true if the head moved onto a cell the body already covered, otherwise false
+     */
+    public boolean isSelfCollision() {
+        return selfCollision;
+    }
+
+    /**
+     * Checks if the player has won by filling the entire board with the snake.
+     *
+     * @return true if the snake occupies all cells, otherwise false
+     */
+    public boolean checkWinCondition() {
+        return snake.getLength() == totalCells;
+    }
+
+    /**
+     * Checks if the game has ended, either by a collision or by a win.
+     *
+     * @return true if the game is over, otherwise false
+     */
+    public boolean isOver() {
+        return checkCollisions() || checkWinCondition();
+    }
+
+    /**
+     * Registers an observer to be notified when the game is reset or stepped.
+     *
+     * @param observer the observer to add
+     */
+    public void addObserver(GameObserver observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * Removes a previously registered observer.
+     *
+     * @param observer the observer to remove
+     */
+    public void removeObserver(GameObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Gets the number of columns in the board.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of rows in the board.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of cells in the board.
+     *
+     * @return the number of cells
+     */
+    public int getTotalCells() {
+        return totalCells;
+    }
+
+    /**
+     * Gets the snake's current direction.
+     *
+     * @return the current direction of the snake
+     */
+    public Direction.Dir getCurrentDirection() {
+        return snake.getCurrentDirection();
+    }
+
+    /**
+     * Gets the x-coordinate of the snake's head.
+     *
+     * @return the column of the head, which is outside the board after a wall collision
+     */
+    public int getHeadX() {
+        return snake.getHeadX();
+    }
+
+    /**
+     * Gets the y-coordinate of the snake's head.
+     *
+     * @return the row of the head, which is outside the board after a wall collision
+     */
+    public int getHeadY() {
+        return snake.getHeadY();
+    }
+
+    /**
+     * Gets the current length of the snake.
+     *
+     * @return the number of segments in the snake's body
+     */
+    public int getLength() {
+        return snake.getLength();
+    }
+
+    /**
+     * Checks whether the snake grows on its next step, because it has just eaten.
+     *
+     * @return true if the tail stays in place on the next step
+     */
+    public boolean isGrowing() {
+        return snake.isGrowing();
+    }
+
+    /**
+     * Gets the packed cell of a body segment.
+     *
+     * @param segment the segment index, where 0 is the head and getLength() - 1 is the tail
+     * @return the packed cell of that segment, decoded with SnakeLinkedList.unpackX/unpackY
+     */
+    public int getSegment(int segment) {
+        return snake.getSegment(segment);
+    }
+
+    /**
+     * Checks whether there is an apple on the board.
+     *
+     * @return false only once the snake has filled the board
+     */
+    public boolean hasApple() {
+        return hasApple;
+    }
+
+    /**
+     * Gets the x-coordinate of the apple.
+     *
+     * @return the column of the apple
+     */
+    public int getAppleX() {
+        return apple.getX();
+    }
+
+    /**
+     * Gets the y-coordinate of the apple.
+     *
+     * @return the row of the apple
+     */
+    public int getAppleY() {
+        return apple.getY();
+    }
+
+    /**
+     * Gets the cell index of the apple.
+     *
+     * @return the apple's cell (y * cols + x), or -1 if there is no apple
+     */
+    public int getAppleCell() {
+        return hasApple ? apple.getY() * cols + apple.getX() : -1;
+    }
+
+    /**
+     * Gets the cell the tail vacated on the last step.
+     *
+     * @return the vacated cell index, or -1 if the snake grew or the game was just reset
+     *
+     * Together with the head and the apple cells, this is everything that changed on the
+     * last step, which lets renderers repaint only those cells.
+     */
+    public int getVacatedCell() {
+        return vacatedCell;
+    }
+
+    /**
+     * Gets the cell the apple was on before the last step.
+     *
+     * @return the previous apple cell index, or -1 if there was none
+     */
+    public int getPreviousAppleCell() {
+        return previousAppleCell;
+    }
+
+    /**
+     * Gets the occupancy grid of the board. Callers must treat it as read-only.
+     *
+     * @return the grid of cells covered by the snake
+     */
+    public OccupancyGrid getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Gets the seed of the game currently being played.
+     *
+     * @return the seed apple placement was reset with; together with the inputs it reproduces the game
+     */
+    public long getGameSeed() {
+        return gameSeed;
+    }
+
+    /**
+     * Computes a hash of the game's state, for checking that a replayed game ended exactly
+     * as it was recorded.
+     *
+     * @return a 64-bit hash of the tick, the snake's body and direction, the apple and the
+     * apple generator; equal games always give equal hashes
+     *
+     * This method walks the snake's body, so it takes time proportional to its length.
+     */
+    public long getStateHash() {
+        long hash = tick;
+        hash = hash * 0x9E3779B97F4A7C15L + snake.getLength();
+        hash = hash * 0x9E3779B97F4A7C15L + snake.getCurrentDirection().ordinal();
+        hash = hash * 0x9E3779B97F4A7C15L + getAppleCell();
+        hash = hash * 0x9E3779B97F4A7C15L + random.getState();
+        for (int i = 0; i < snake.getLength(); i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + snake.getSegment(i);
+        }
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Gets the number of ticks played in the current game.
+     *
+     * @return the tick counter, reset to 0 by reset()
+     */
+    public long getTick() {
+        return tick;
+    }
+}
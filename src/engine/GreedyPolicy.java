@@ -0,0 +1,44 @@
+package engine;
+
+import snake.Direction;
+
+/**
+ * The GreedyPolicy class moves towards the apple along the shortest Manhattan distance,
+ * avoiding walls and the body one step ahead. It is a cheap baseline for benchmarks.
+ */
+public class GreedyPolicy implements Policy {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Chooses the free neighbouring cell closest to the apple, or keeps going straight if
+     * every neighbour is blocked.
+     *
+     * @param state the game to move in
+     * @return the direction to move in
+     */
+    @Override
+    public Direction.Dir chooseDirection(GameState state) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        int headX = state.getHeadX();
+        int headY = state.getHeadY();
+        Direction.Dir best = state.getCurrentDirection();
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction.Dir dir : DIRECTIONS) {
+            int x = headX + dir.dx();
+            int y = headY + dir.dy();
+            if (!occupancy.isInside(x, y) || occupancy.isOccupied(x, y)) {
+                continue;
+            }
+            int distance = Math.abs(x - state.getAppleX()) + Math.abs(y - state.getAppleY());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = dir;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,209 @@
+package engine;
+
+import snake.Direction;
+import snake.SnakeLinkedList;
+
+/**
+ * The HamiltonianPolicy class solves the game by following a Hamiltonian cycle, a closed path
+ * that visits every cell of the board once. A snake that only ever follows the cycle always
+ * has free cells ahead of its head and is certain to fill the board.
+ *
+ * The cycle is built once for the board: along the top row, back and forth across the other
+ * rows, and up the first column. Every cell stores its position on the cycle, so whether a
+ * move is safe is a question of arithmetic on cycle positions.
+ *
+ * Following the cycle alone takes about half a lap per apple, so the snake also takes
+ * shortcuts: it may step onto any free neighbour further along the cycle, short of the tail
+ * and short of the apple. The body then always lies between the tail and the head in cycle
+ * order, but the skipped cells are left free behind the head. While such holes remain, the
+ * tail is closer than the free cells suggest, and a run of apples straight ahead could bring
+ * the head onto a tail that is not moving. The snake only grows after eating, though, and the
+ * only apple that can be eaten next is the one on the board. So a shortcut is taken only if
+ * the tail will have passed every skipped cell by the time the head reaches that apple: the
+ * head must land at least as many cycle steps before the apple as the tail needs moves to
+ * reach the landing cell, which is the length of the snake including pending growth. When
+ * the snake next grows no holes are left, so every free cell lies ahead of the head, and a
+ * snake that follows the cycle with no holes can only meet its tail on a full board. The
+ * check is a few subtractions, and each tick costs the same four lookups whatever the size of
+ * the board.
+ *
+ * The policy relies on the body's cycle order, so it must steer a game from its start.
+ */
+public class HamiltonianPolicy implements Policy {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    private final int cols;          // Number of columns of the board
+    private final int rows;          // Number of rows of the board
+    private final int cells;         // Number of cells, and the length of the cycle
+    private final int[] cycleIndex;  // Position of each cell on the cycle
+    private final int[] cycleCell;   // Cell at each position of the cycle
+    private final boolean shortcuts; // Whether the snake may leave the cycle towards the apple
+
+    /**
+     * Constructs a HamiltonianPolicy that takes shortcuts and builds the cycle for a board.
+     *
+     * @param cols the number of columns of the board, at least 2
+     * @param rows the number of rows of the board, at least 2
+     * @throws IllegalArgumentException if no Hamiltonian cycle exists for the board
+     */
+    public HamiltonianPolicy(int cols, int rows) {
+        this(cols, rows, true);
+    }
+
+    /**
+     * Constructs a HamiltonianPolicy and builds the cycle for a board.
+     *
+     * @param cols the number of columns of the board, at least 2
+     * @param rows the number of rows of the board, at least 2
+     * @param shortcuts true to take shortcuts towards the apple, false to follow the cycle strictly
+     * @throws IllegalArgumentException if the board is smaller than 2x2, or if both sides are
+     *         odd, in which case no Hamiltonian cycle exists
+     */
+    public HamiltonianPolicy(int cols, int rows, boolean shortcuts) {
+        if (cols < 2 || rows < 2 || (cols % 2 != 0 && rows % 2 != 0)) {
+            throw new IllegalArgumentException("A Hamiltonian cycle needs a board of at least 2x2 "
+                    + "with an even side: " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.cells = cols * rows;
+        this.cycleIndex = new int[cells];
+        this.cycleCell = new int[cells];
+        this.shortcuts = shortcuts;
+        buildCycle();
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Lays the cycle out over the board. With an even number of rows it runs right along the
+     * top row, snakes back and forth over the other rows without the first column, and returns
+     * up the first column; with an odd number of rows the same layout is transposed.
+     */
+    private void buildCycle() {
+        boolean transposed = rows % 2 != 0;
+        int across = transposed ? rows : cols;  // Length of a lane, along the top edge of the layout
+        int down = transposed ? cols : rows;    // Number of lanes, which is even
+        int position = 0;
+        for (int a = 0; a < across; a++) {
+            position = place(position, a, 0, transposed);
+        }
+        for (int d = 1; d < down; d++) {
+            for (int i = 1; i < across; i++) {
+                position = place(position, d % 2 == 0 ? i : across - i, d, transposed);
+            }
+        }
+        for (int d = down - 1; d >= 1; d--) {
+            position = place(position, 0, d, transposed);
+        }
+    }
+
+    /**
+     * Puts a cell of the layout at the next position of the cycle.
+     */
+    private int place(int position, int a, int d, boolean transposed) {
+        int cell = transposed ? a * cols + d : d * cols + a;
+        cycleIndex[cell] = position;
+        cycleCell[position] = cell;
+        return position + 1;
+    }
+
+    /**
+     * Counts the cycle steps from one position forward to another.
+     */
+    private int stepsBetween(int from, int to) {
+        int steps = to - from;
+        return steps < 0 ? steps + cells : steps;
+    }
+
+    /**
+     * Finds the direction from a cell to a neighbouring one.
+     */
+    private Direction.Dir directionTo(int from, int to) {
+        int dx = to % cols - from % cols;
+        int dy = to / cols - from / cols;
+        Direction.Dir dir = Direction.Dir.of(dx, dy);
+        if (dir == null) {
+            throw new IllegalStateException("Cells " + from + " and " + to + " are not neighbours");
+        }
+        return dir;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Chooses the neighbour furthest along the cycle that stays short of the tail and far
+     * enough short of the apple for the tail to clear the skipped cells first, or the next
+     * cell of the cycle if there is no such shortcut.
+     *
+     * @param state the game to move in, on a board of the size this policy was made for
+     * @return the direction to move in
+     */
+    @Override
+    public Direction.Dir chooseDirection(GameState state) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        int headX = state.getHeadX();
+        int headY = state.getHeadY();
+        int head = occupancy.cellOf(headX, headY);
+        int position = cycleIndex[head];
+        int length = state.getLength();
+
+        // Cycle steps ahead of the head to the tail. A lone head has the board ahead, but must
+        // not land just before its own cell, where a growing snake could only go on by reversing
+        int gap = cells - 1;
+        if (length > 1) {
+            int tail = state.getSegment(length - 1);
+            gap = stepsBetween(position, cycleIndex[occupancy.cellOf(SnakeLinkedList.unpackX(tail), SnakeLinkedList.unpackY(tail))]);
+        }
+        int apple = state.getAppleCell();
+        int toApple = apple >= 0 ? stepsBetween(position, cycleIndex[apple]) : 1;
+        int reach = 1;
+        if (shortcuts) {
+            // After the move the body has length + growth segments, so the tail needs one
+            // fewer moves than that to reach the landing cell and clear every skipped cell.
+            // It moves on every tick until the apple is eaten, so land at least that many
+            // steps before the apple, and before the tail
+            int segments = length + (state.isGrowing() ? 1 : 0);
+            reach = Math.min(toApple - (segments - 1), gap - 1);
+        }
+
+        // The next cell of the cycle is the default, unless it is behind a lone head
+        Direction.Dir heading = state.getCurrentDirection();
+        int next = cycleCell[position + 1 == cells ? 0 : position + 1];
+        int best = next;
+        int bestSteps = 1;
+        if (next % cols == headX - heading.dx() && next / cols == headY - heading.dy()) {
+            bestSteps = 0;
+        }
+        for (Direction.Dir dir : DIRECTIONS) {
+            int x = headX + dir.dx();
+            int y = headY + dir.dy();
+            if (!occupancy.isInside(x, y) || occupancy.isOccupied(x, y)
+                    || (x == headX - heading.dx() && y == headY - heading.dy())) {
+                continue;
+            }
+            int cell = occupancy.cellOf(x, y);
+            int steps = stepsBetween(position, cycleIndex[cell]);
+            if (steps > bestSteps && (steps <= reach || bestSteps == 0)) {
+                best = cell;
+                bestSteps = steps;
+            }
+        }
+        return directionTo(head, best);
+    }
+
+    /**
+     * Gets the position of a cell on the cycle.
+     *
+     * @param x the column of the cell
+     * @param y the row of the cell
+     * @return the number of steps from the start of the cycle to the cell
+     */
+    public int getCycleIndex(int x, int y) {
+        return cycleIndex[y * cols + x];
+    }
+}
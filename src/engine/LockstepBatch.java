@@ -0,0 +1,415 @@
+package engine;
+
+import snake.Direction;
+import snake.SnakeLinkedList;
+
+import java.util.Arrays;
+
+/**
+ * The LockstepBatch class holds K games on boards of the same size in structure-of-arrays
+ * form and advances all of them one tick per call.
+ *
+ * Every per-game field (head position, direction, length, growth, apple, generator state,
+ * tick) is a primitive array indexed by game, and the bodies, occupancy bitsets and occupied
+ * block counts of all games are packed into single flat arrays. A step first turns every
+ * snake and computes its new head in one branch-free pass over the arrays, then applies the
+ * scattered body, occupancy and apple updates game by game. This is also the layout batched
+ * network inference wants: one row per game.
+ *
+ * The gain over stepping K GameState objects is modest, because most of a step is the
+ * scattered per-game updates that both layouts share, not the head computation that the
+ * arrays make cheap. LockstepBenchmark measures it.
+ *
+ * Each game follows exactly the same rules and random draws as a GameState reset with the
+ * same seed, so the two can be checked against each other with getStateHash().
+ */
+public class LockstepBatch {
+    private static final byte RIGHT = (byte) Direction.Dir.RIGHT.ordinal();
+    private static final byte ALIVE = -1;           // Outcome value of a game still in progress
+    private static final GameOutcome[] OUTCOMES = GameOutcome.values();
+
+    private final int games;           // Number of games in the batch
+    private final int cols;            // Number of columns of every board
+    private final int rows;            // Number of rows of every board
+    private final int totalCells;      // Cells per board
+    private final int capacity;        // Body slots per game
+    private final int words;           // Occupancy words per game
+    private final int blocks;          // Counted blocks of occupancy per game, as in OccupancyGrid
+    private final long starvationTicks;  // Ticks without eating before a game ends
+
+    private final int[] headX;         // Head column of each game
+    private final int[] headY;         // Head row of each game
+    private final int[] nextX;         // Head column after the step being computed
+    private final int[] nextY;         // Head row after the step being computed
+    private final byte[] direction;    // Direction ordinal of each game
+    private final int[] length;        // Snake length of each game
+    private final boolean[] growing;   // Whether each snake grows on its next move
+    private final int[] headIndex;     // Body ring slot of each game's head
+    private final int[] appleCell;     // Apple cell of each game, or -1
+    private final long[] rngState;     // Apple generator state of each game
+    private final long[] tick;         // Ticks played by each game
+    private final long[] lastMeal;     // Tick each game last ate on
+    private final byte[] outcome;      // GameOutcome ordinal of each finished game, or ALIVE
+    private final int[] bodies;        // Body rings of all games, capacity slots each, holding cell indices
+    private final long[] occupancy;    // Occupancy bitsets of all games, words each
+    private final int[] blockCounts;   // OccupancyGrid count trees of all games, blocks each
+    private final int[] freeCount;     // Number of free cells of each game
+    private final SplitMix64 rng = new SplitMix64(0L);  // Scratch generator loaded with one game's state at a time
+
+    /**
+     * Constructs a LockstepBatch and resets every game.
+     *
+     * @param games the number of games K
+     * @param cols the number of columns of every board
+     * @param rows the number of rows of every board
+     * @param seed the seed game i's first seed is derived from
+     * @param starvationTicks ticks without eating after which a game ends as STARVATION
+     * @throws IllegalArgumentException if the sizes are out of range or the batch would be too large
+     */
+    public LockstepBatch(int games, int cols, int rows, long seed, long starvationTicks) {
+        if (games < 1 || cols < 1 || rows < 1 || cols > GameState.MAX_SIZE || rows > GameState.MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid batch of " + games + " games on " + cols + "x" + rows);
+        }
+        if ((long) games * (cols * rows + 1) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Batch too large: " + games + " games of " + cols * rows + " cells");
+        }
+        this.games = games;
+        this.cols = cols;
+        this.rows = rows;
+        this.totalCells = cols * rows;
+        this.capacity = totalCells + 1;
+        this.words = (totalCells + 63) >>> 6;
+        this.blocks = OccupancyGrid.blocksFor(totalCells);
+        this.starvationTicks = starvationTicks;
+        headX = new int[games];
+        headY = new int[games];
+        nextX = new int[games];
+        nextY = new int[games];
+        direction = new byte[games];
+        length = new int[games];
+        growing = new boolean[games];
+        headIndex = new int[games];
+        appleCell = new int[games];
+        rngState = new long[games];
+        tick = new long[games];
+        lastMeal = new long[games];
+        outcome = new byte[games];
+        bodies = new int[games * capacity];
+        occupancy = new long[games * words];
+        blockCounts = new int[games * blocks];
+        freeCount = new int[games];
+        for (int game = 0; game < games; game++) {
+            reset(game, SplitMix64.mix(seed + (game + 1) * 0x9E3779B97F4A7C15L));
+        }
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private boolean isOccupied(int game, int cell) {
+        return (occupancy[game * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Marks a free cell of a game as occupied.
+     */
+    private void setOccupied(int game, int cell) {
+        occupancy[game * words + (cell >>> 6)] |= 1L << cell;
+        OccupancyGrid.addToBlock(blockCounts, game * blocks, blocks, cell >>> (6 + OccupancyGrid.BLOCK_SHIFT), 1);
+        freeCount[game]--;
+    }
+
+    /**
+     * Marks an occupied cell of a game as free.
+     */
+    private void clearOccupied(int game, int cell) {
+        occupancy[game * words + (cell >>> 6)] &= ~(1L << cell);
+        OccupancyGrid.addToBlock(blockCounts, game * blocks, blocks, cell >>> (6 + OccupancyGrid.BLOCK_SHIFT), -1);
+        freeCount[game]++;
+    }
+
+    /**
+     * Moves a game's apple to a uniformly random free cell, drawing from its own generator.
+     */
+    private void generateApple(int game) {
+        int size = freeCount[game];
+        if (size == 0) {
+            appleCell[game] = -1;
+            return;
+        }
+        rng.setState(rngState[game]);
+        appleCell[game] = OccupancyGrid.findFree(occupancy, game * words, blockCounts, game * blocks, blocks,
+                rng.nextInt(size));
+        rngState[game] = rng.getState();
+    }
+
+    /**
+     * Finishes a game with an outcome.
+     */
+    private void finish(int game, GameOutcome result) {
+        outcome[game] = (byte) result.ordinal();
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Starts a new game in one slot of the batch, as GameState.reset(seed) would.
+     *
+     * @param game the game index
+     * @param seed the seed for this game's apple placement
+     */
+    public void reset(int game, long seed) {
+        int startX = cols / 2;
+        int startY = rows / 2;
+        int head = startY * cols + startX;
+        headX[game] = startX;
+        headY[game] = startY;
+        direction[game] = RIGHT;
+        length[game] = 1;
+        growing[game] = false;
+        headIndex[game] = 0;
+        bodies[game * capacity] = head;
+        tick[game] = 0;
+        lastMeal[game] = 0;
+        outcome[game] = ALIVE;
+        rngState[game] = seed;
+        Arrays.fill(occupancy, game * words, (game + 1) * words, 0L);
+        Arrays.fill(blockCounts, game * blocks, (game + 1) * blocks, 0);
+        freeCount[game] = totalCells;
+        setOccupied(game, head);
+        generateApple(game);
+    }
+
+    /**
+     * Advances every game still in progress by one tick.
+     *
+     * @param actions the direction ordinal each game turns to, one per game; reversals are ignored
+     *
+     * Games that end on this tick record their outcome and are left alone by later steps until
+     * they are reset.
+     */
+    public void step(byte[] actions) {
+        // Turn and compute every new head in one pass over the arrays, with arithmetic instead
+        // of branches or table lookups
+        for (int game = 0; game < games; game++) {
+            int current = direction[game];
+            int wanted = actions[game];
+            // All ones to keep the current direction: on a reversal, where the ordinals differ only
+            // in bit 0 (UP/DOWN, LEFT/RIGHT), or once the game is over
+            int keep = ((((current ^ wanted) ^ 1) - 1) | -(outcome[game] - ALIVE)) >> 31;
+            int dir = wanted ^ ((current ^ wanted) & keep);
+            direction[game] = (byte) dir;
+            int sign = ((dir & 1) << 1) - 1;  // -1 for UP and LEFT, 1 for DOWN and RIGHT
+            int horizontal = dir >> 1;         // 1 for LEFT and RIGHT, 0 for UP and DOWN
+            nextX[game] = headX[game] + sign * horizontal;
+            nextY[game] = headY[game] + sign * (1 - horizontal);
+        }
+
+        // Apply the body, occupancy and apple changes game by game
+        for (int game = 0; game < games; game++) {
+            if (outcome[game] != ALIVE) {
+                continue;
+            }
+            int x = nextX[game];
+            int y = nextY[game];
+            int bodyBase = game * capacity;
+            boolean grew = growing[game];
+            int tailSlot = headIndex[game] - (length[game] - 1);
+            int tail = bodies[bodyBase + (tailSlot < 0 ? tailSlot + capacity : tailSlot)];
+            if (grew) {
+                length[game]++;
+                growing[game] = false;
+            }
+            headX[game] = x;
+            headY[game] = y;
+            tick[game]++;
+            if (!grew) {
+                clearOccupied(game, tail);
+            }
+            int slot = headIndex[game] + 1 == capacity ? 0 : headIndex[game] + 1;
+            headIndex[game] = slot;
+            if (x < 0 || x >= cols || y < 0 || y >= rows) {
+                bodies[bodyBase + slot] = -1;  // Off the board; the head is read from headX/headY
+                finish(game, GameOutcome.WALL);
+                continue;
+            }
+            int head = y * cols + x;
+            bodies[bodyBase + slot] = head;
+            if (isOccupied(game, head)) {
+                finish(game, GameOutcome.SELF);
+                continue;
+            }
+            setOccupied(game, head);
+            if (head == appleCell[game]) {
+                growing[game] = true;
+                if (length[game] != totalCells) {
+                    generateApple(game);
+                }
+            }
+            if (length[game] == totalCells) {
+                finish(game, GameOutcome.WIN);
+            } else if (grew) {
+                lastMeal[game] = tick[game];
+            } else if (tick[game] - lastMeal[game] >= starvationTicks) {
+                finish(game, GameOutcome.STARVATION);
+            }
+        }
+    }
+
+    /**
+     * Computes the same hash as GameState.getStateHash() would for one game, for checking the
+     * batch against independent games.
+     *
+     * @param game the game index
+     * @return the 64-bit state hash
+     */
+    public long getStateHash(int game) {
+        long hash = tick[game];
+        hash = hash * 0x9E3779B97F4A7C15L + length[game];
+        hash = hash * 0x9E3779B97F4A7C15L + direction[game];
+        hash = hash * 0x9E3779B97F4A7C15L + appleCell[game];
+        hash = hash * 0x9E3779B97F4A7C15L + rngState[game];
+        hash = hash * 0x9E3779B97F4A7C15L + SnakeLinkedList.pack(headX[game], headY[game]);
+        for (int i = 1; i < length[game]; i++) {
+            int slot = headIndex[game] - i;
+            int cell = bodies[game * capacity + (slot < 0 ? slot + capacity : slot)];
+            hash = hash * 0x9E3779B97F4A7C15L + SnakeLinkedList.pack(cell % cols, cell / cols);
+        }
+        hash ^= hash >>> 31;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Gets the number of games in the batch.
+     *
+     * @return K
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Gets the number of columns of every board.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of rows of every board.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Checks whether a game is still in progress.
+     *
+     * @param game the game index
+     * @return true until the game ends
+     */
+    public boolean isAlive(int game) {
+        return outcome[game] == ALIVE;
+    }
+
+    /**
+     * Gets how a game ended.
+     *
+     * @param game the game index
+     * @return the outcome, or null if the game is still in progress
+     */
+    public GameOutcome getOutcome(int game) {
+        return outcome[game] == ALIVE ? null : OUTCOMES[outcome[game]];
+    }
+
+    /**
+     * Gets the head column of a game.
+     *
+     * @param game the game index
+     * @return the column of the head, outside the board after a wall collision
+     */
+    public int getHeadX(int game) {
+        return headX[game];
+    }
+
+    /**
+     * Gets the head row of a game.
+     *
+     * @param game the game index
+     * @return the row of the head, outside the board after a wall collision
+     */
+    public int getHeadY(int game) {
+        return headY[game];
+    }
+
+    /**
+     * Gets the direction of a game.
+     *
+     * @param game the game index
+     * @return the direction ordinal, as in Direction.Dir
+     */
+    public int getDirection(int game) {
+        return direction[game];
+    }
+
+    /**
+     * Gets the snake length of a game.
+     *
+     * @param game the game index
+     * @return the number of segments
+     */
+    public int getLength(int game) {
+        return length[game];
+    }
+
+    /**
+     * Gets the apple cell of a game.
+     *
+     * @param game the game index
+     * @return the apple's cell (y * cols + x), or -1 if there is no apple
+     */
+    public int getAppleCell(int game) {
+        return appleCell[game];
+    }
+
+    /**
+     * Gets the ticks played by a game.
+     *
+     * @param game the game index
+     * @return the tick counter, reset to 0 by reset()
+     */
+    public long getTick(int game) {
+        return tick[game];
+    }
+
+    /**
+     * Checks whether a position is on the board.
+     *
+     * @param x the column
+     * @param y the row
+     * @return true if the position is inside every board of the batch
+     */
+    public boolean isInside(int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows;
+    }
+
+    /**
+     * Checks whether a cell of a game's board is covered by its snake.
+     *
+     * @param game the game index
+     * @param x the column, which may be outside the board
+     * @param y the row, which may be outside the board
+     * @return true if the position is on the board and occupied
+     */
+    public boolean isOccupied(int game, int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows && isOccupied(game, y * cols + x);
+    }
+}
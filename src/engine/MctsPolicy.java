@@ -0,0 +1,351 @@
+package engine;
+
+import snake.Direction;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The MctsPolicy class chooses moves with Monte Carlo tree search, running simulated games
+ * from the current position on several threads within a time budget per move.
+ *
+ * The search is root-parallel: every worker thread grows its own tree from its own copy of
+ * the game, and when the budget runs out the visit counts of the three moves at the root,
+ * turning left, going straight and turning right, are added up over the workers and the
+ * most visited move is played. Trees are never shared, so workers need no locking.
+ * The calling thread runs the first worker itself, and the others run on long-lived helper
+ * threads that are woken for each move and park in between, so choosing a move allocates
+ * nothing.
+ *
+ * Each iteration walks down the tree by UCB1, adds the children of the node it ends on,
+ * and finishes the game with a short rollout that moves at random but never straight into
+ * a wall or the body, and towards the apple half of the time. A simulation scores half a
+ * point for surviving to the end of the rollout and up to half a point for apples, with
+ * apples eaten sooner worth more. Simulations restore their game from the worker's copy with
+ * GameState.restoreFrom(), which only undoes what the last simulation changed, so an
+ * iteration costs time proportional to its length rather than to the size of the board.
+ * Trees live in preallocated arrays and are cleared rather than rebuilt for every move.
+ */
+public class MctsPolicy implements Policy, AutoCloseable {
+    public static final long DEFAULT_MOVE_BUDGET_NANOS = 20_000_000L;  // 20ms per move
+    private static final int MOVES = 3;               // Children per node: left, straight, right
+    private static final int MAX_NODES = 1 << 16;     // Tree nodes per worker
+    private static final int ROLLOUT_TICKS = 50;      // Ticks played after leaving the tree
+    private static final double EXPLORATION = 0.7;    // UCB1 exploration constant, for rewards between 0 and 1
+    private static final double DISCOUNT = 0.9;       // Value of an apple per tick it is eaten later
+
+    private final Worker[] workers;     // One per thread, each with its own tree and games
+    private final Thread[] helpers;     // Run workers 1 and up; the calling thread runs worker 0
+    private final AtomicInteger pending = new AtomicInteger();  // Helpers still searching the current move
+    private final long moveBudgetNanos; // Time each move may take
+    private final long[] rootVisits = new long[MOVES];  // Visits of each root move, summed over the workers
+    private long iterations;            // Simulations run for the last move, over all workers
+    private volatile long generation;   // Counts the moves started; helpers wake when it changes
+    private volatile boolean closed;    // Set by close() to stop the helpers
+    private volatile Thread caller;     // Thread waiting in chooseDirection() for the helpers
+    private volatile Throwable failure; // First failure of a helper during the current move, or null
+    private GameState searched;         // The game being searched, published to the helpers by generation
+    private long deadline;              // When the current move's search ends, published like searched
+
+    /**
+     * Grows one search tree on one worker thread.
+     */
+    private static final class Worker {
+        private final GameState root;   // The position searched from
+        private final GameState game;   // The simulated game, restored from root every iteration
+        private final SplitMix64 random;
+        private final int[] children = new int[MAX_NODES];   // First child of each node, or 0 if it has none
+        private final int[] visits = new int[MAX_NODES];     // Simulations through each node
+        private final double[] rewards = new double[MAX_NODES];  // Total reward of those simulations
+        private final int[] path = new int[MAX_NODES];       // Nodes visited by the current iteration
+        private int nodes;              // Nodes in use
+        private long iterations;        // Simulations run for the current move
+
+        Worker(int cols, int rows, long seed) {
+            this.root = new GameState(cols, rows, seed);
+            this.game = new GameState(cols, rows, seed);
+            this.random = new SplitMix64(seed);
+        }
+
+        /**
+         * Searches the position until the deadline passes.
+         */
+        void search(GameState state, long deadline) {
+            root.copyFrom(state);
+            nodes = 1;
+            children[0] = 0;
+            visits[0] = 0;
+            rewards[0] = 0;
+            iterations = 0;
+            do {
+                iterate();
+                iterations++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * Runs one simulation: selection, expansion, rollout and backpropagation.
+         */
+        private void iterate() {
+            game.restoreFrom(root);
+            int depth = 0;
+            int node = 0;
+            path[depth++] = node;
+            double food = 0;
+            double value = 1;
+            while (children[node] != 0 && !game.isOver()) {
+                int move = select(node);
+                node = children[node] + move;
+                path[depth++] = node;
+                value *= DISCOUNT;
+                food += step(move) ? value : 0;
+            }
+            if (!game.isOver() && (visits[node] > 0 || node == 0) && nodes + MOVES <= MAX_NODES) {
+                int first = nodes;
+                for (int i = 0; i < MOVES; i++) {
+                    children[first + i] = 0;
+                    visits[first + i] = 0;
+                    rewards[first + i] = 0;
+                }
+                children[node] = first;
+                nodes += MOVES;
+                int move = random.nextInt(MOVES);
+                node = first + move;
+                path[depth++] = node;
+                value *= DISCOUNT;
+                food += step(move) ? value : 0;
+            }
+            for (int t = 0; t < ROLLOUT_TICKS && !game.isOver(); t++) {
+                value *= DISCOUNT;
+                food += step(rolloutMove()) ? value : 0;
+            }
+            double reward = (game.checkCollisions() ? 0 : 0.5) + 0.5 * Math.min(1, food);
+            for (int i = 0; i < depth; i++) {
+                visits[path[i]]++;
+                rewards[path[i]] += reward;
+            }
+        }
+
+        /**
+         * Picks the child of a node with the highest upper confidence bound, trying unvisited children first.
+         */
+        private int select(int node) {
+            int first = children[node];
+            double logVisits = Math.log(Math.max(1, visits[node]));
+            int best = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < MOVES; move++) {
+                int child = first + move;
+                if (visits[child] == 0) {
+                    return move;
+                }
+                double score = rewards[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Picks a rollout move that does not run straight into a wall or the body, heading
+         * for the apple half of the time.
+         */
+        private int rolloutMove() {
+            Direction.Dir heading = game.getCurrentDirection();
+            int headX = game.getHeadX();
+            int headY = game.getHeadY();
+            OccupancyGrid occupancy = game.getOccupancy();
+            int safe = 0;
+            int choice = -1;
+            int closest = -1;
+            int closestDistance = Integer.MAX_VALUE;
+            for (int move = 0; move < MOVES; move++) {
+                Direction.Dir dir = turn(heading, move);
+                int x = headX + dir.dx();
+                int y = headY + dir.dy();
+                if (!occupancy.isInside(x, y) || occupancy.isOccupied(x, y)) {
+                    continue;
+                }
+                if (random.nextInt(++safe) == 0) {
+                    choice = move;  // Reservoir sampling picks a safe move uniformly
+                }
+                int distance = Math.abs(x - game.getAppleX()) + Math.abs(y - game.getAppleY());
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closest = move;
+                }
+            }
+            if (choice < 0) {
+                return 1;  // Trapped; go straight
+            }
+            return game.hasApple() && (random.nextLong() & 1L) == 0 ? closest : choice;
+        }
+
+        /**
+         * Plays a move in the simulated game.
+         *
+         * @return true if the snake ate the apple
+         */
+        private boolean step(int move) {
+            game.changeDirection(turn(game.getCurrentDirection(), move));
+            game.update();
+            return game.isGrowing();
+        }
+    }
+
+    /**
+     * Constructs an MctsPolicy.
+     *
+     * @param cols the number of columns of the board
+     * @param rows the number of rows of the board
+     * @param threads the number of worker threads, each growing its own tree, at least 1
+     * @param moveBudgetNanos the time to search each move for, in nanoseconds, at least 1
+     * @param seed the seed of the rollouts' random moves
+     * @throws IllegalArgumentException if threads or moveBudgetNanos is not positive
+     */
+    public MctsPolicy(int cols, int rows, int threads, long moveBudgetNanos, long seed) {
+        if (threads < 1 || moveBudgetNanos < 1) {
+            throw new IllegalArgumentException("Invalid search setup: threads " + threads
+                    + ", move budget " + moveBudgetNanos + "ns");
+        }
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(cols, rows, SplitMix64.mix(seed + i));
+        }
+        this.moveBudgetNanos = moveBudgetNanos;
+        this.helpers = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Worker worker = workers[i + 1];
+            helpers[i] = new Thread(() -> help(worker), "snake-mcts-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Turns a direction by a move: 0 turns left, 1 goes straight and 2 turns right.
+     */
+    private static Direction.Dir turn(Direction.Dir heading, int move) {
+        return move == 0 ? heading.left() : move == 1 ? heading : heading.right();
+    }
+
+    /**
+     * The body of a helper thread: parks until a move is started, searches it with its worker,
+     * and wakes the caller once the last helper is done. Returns once the policy is closed.
+     */
+    private void help(Worker worker) {
+        long seen = 0;
+        while (true) {
+            long current = generation;
+            while (current == seen && !closed) {
+                LockSupport.park(this);
+                current = generation;
+            }
+            if (closed) {
+                return;
+            }
+            seen = current;
+            try {
+                worker.search(searched, deadline);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            if (pending.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Searches the position on every worker until the move budget runs out, then chooses the
+     * move visited most over all the trees.
+     *
+     * @param state the game to move in, on a board of the size this policy was made for;
+     *        it is only read, by all the workers at once, while they copy it
+     * @return the direction to move in
+     * @throws IllegalStateException if the policy is closed or a worker failed
+     *
+     * Only one thread may choose a move at a time. Nothing is allocated.
+     */
+    @Override
+    public Direction.Dir chooseDirection(GameState state) {
+        if (closed) {
+            throw new IllegalStateException("The search has been closed");
+        }
+        searched = state;
+        deadline = System.nanoTime() + moveBudgetNanos;
+        caller = Thread.currentThread();
+        failure = null;
+        pending.set(helpers.length);
+        generation++;  // The volatile write publishes the fields above to the helpers
+        for (Thread helper : helpers) {
+            LockSupport.unpark(helper);
+        }
+        try {
+            workers[0].search(state, deadline);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        while (pending.get() != 0) {  // The helpers stop at the deadline, so this wait is short
+            LockSupport.park(this);
+            interrupted |= Thread.interrupted();
+        }
+        searched = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("A search worker failed", failure);
+        }
+
+        iterations = 0;
+        for (int move = 0; move < MOVES; move++) {
+            rootVisits[move] = 0;
+        }
+        for (Worker worker : workers) {
+            iterations += worker.iterations;
+            int first = worker.children[0];
+            for (int move = 0; first != 0 && move < MOVES; move++) {
+                rootVisits[move] += worker.visits[first + move];
+            }
+        }
+        int best = 1;
+        for (int move = 0; move < MOVES; move++) {
+            if (rootVisits[move] > rootVisits[best]) {
+                best = move;
+            }
+        }
+        return turn(state.getCurrentDirection(), best);
+    }
+
+    /**
+     * Gets the number of simulations run for the last move, over all workers.
+     *
+     * @return the iteration count
+     */
+    public long getLastIterations() {
+        return iterations;
+    }
+
+    /**
+     * Shuts the helper threads down. They finish the move they are searching, if any, first.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread helper : helpers) {
+            LockSupport.unpark(helper);
+        }
+    }
+}
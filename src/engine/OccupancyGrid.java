@@ -0,0 +1,273 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * The OccupancyGrid class is a bitset over the cells of the arena, indexed by y * cols + x,
+ * recording which cells are currently covered by the snake.
+ * It lets collision and "is the snake here" queries run in constant time instead of
+ * walking the snake's body.
+ *
+ * The grid also keeps a Fenwick tree of the occupied cells in each block of 1024, so
+ * findFree() can pick the n-th free cell in cell order in time logarithmic in the size of the
+ * board. The result depends only on which cells are occupied, never on the order they were
+ * set and cleared in, so a game rebuilt from a snapshot places its apples exactly where the
+ * original does. The tree is kept by static methods over flat arrays, which LockstepBatch
+ * shares for the occupancy of all its games.
+ */
+public class OccupancyGrid {
+    static final int BLOCK_SHIFT = 4;  // Words per counted block, as a power of two (16 words, 1024 cells)
+
+    private final int cols;       // Number of columns in the grid
+    private final int rows;       // Number of rows in the grid
+    private final long[] bits;    // One bit per cell, 64 cells per word
+    private final int[] counts;   // Fenwick tree of the occupied cells per block; node i at index i - 1
+    private int occupied;         // Occupied cells in the whole grid
+
+    /**
+     * Constructs an empty OccupancyGrid for a grid of the given size.
+     *
+     * @param cols the number of columns in the grid
+     * @param rows the number of rows in the grid
+     */
+    public OccupancyGrid(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.bits = new long[(cols * rows + 63) >>> 6];
+        this.counts = new int[blocksFor(cols * rows)];
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Copies the tree nodes that count a block from another tree of the same size.
+     */
+    private static void copyBlockFrom(int[] counts, int[] other, int block) {
+        for (int node = block + 1; node <= counts.length; node += node & -node) {
+            counts[node - 1] = other[node - 1];
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Gets the number of counted blocks of 1024 cells a grid of the given size needs.
+     *
+     * @param cellCount the number of cells, at least 1
+     * @return the number of blocks, and the length of the count tree
+     */
+    static int blocksFor(int cellCount) {
+        return ((((cellCount + 63) >>> 6) - 1) >>> BLOCK_SHIFT) + 1;
+    }
+
+    /**
+     * Adds to the occupied count of one block in a count tree.
+     *
+     * @param counts the array holding the tree
+     * @param base the index of the tree's first node in counts
+     * @param blocks the number of blocks the tree counts
+     * @param block the block whose count changes
+     * @param delta the change in its occupied cells
+     */
+    static void addToBlock(int[] counts, int base, int blocks, int block, int delta) {
+        for (int node = block + 1; node <= blocks; node += node & -node) {
+            counts[base + node - 1] += delta;
+        }
+    }
+
+    /**
+     * Finds the free cell with the given rank in a bitset with a count tree.
+     *
+     * @param bits the array holding the bitset
+     * @param wordBase the index of the bitset's first word in bits
+     * @param counts the array holding the tree
+     * @param base the index of the tree's first node in counts
+     * @param blocks the number of blocks the tree counts
+     * @param rank the number of free cells before the one wanted, less than the free cells of the bitset
+     * @return the cell index, relative to the start of the bitset
+     *
+     * The tree is descended from its largest power-of-two node, skipping every range of blocks
+     * that holds no more than rank free cells, and then at most 16 words of the block found are
+     * counted, so this takes time proportional to the logarithm of the number of cells.
+     * Cells past the end of the last word count as free, which is harmless since they all come
+     * after the real free cells.
+     */
+    static int findFree(long[] bits, int wordBase, int[] counts, int base, int blocks, int rank) {
+        int block = 0;
+        for (int step = Integer.highestOneBit(blocks); step > 0; step >>>= 1) {
+            int node = block + step;
+            if (node <= blocks) {
+                int free = (step << (6 + BLOCK_SHIFT)) - counts[base + node - 1];
+                if (rank >= free) {
+                    rank -= free;
+                    block = node;
+                }
+            }
+        }
+        int word = wordBase + (block << BLOCK_SHIFT);
+        long free = ~bits[word];
+        int wordFree = Long.bitCount(free);
+        while (rank >= wordFree) {
+            rank -= wordFree;
+            free = ~bits[++word];
+            wordFree = Long.bitCount(free);
+        }
+        for (int i = 0; i < rank; i++) {
+            free &= free - 1;  // Drop the lowest free cell
+        }
+        return ((word - wordBase) << 6) + Long.numberOfTrailingZeros(free);
+    }
+
+    /**
+     * Makes this grid an exact copy of another grid of the same size.
+     *
+     * @param other the grid to copy
+     */
+    public void copyFrom(OccupancyGrid other) {
+        System.arraycopy(other.bits, 0, bits, 0, bits.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        occupied = other.occupied;
+    }
+
+    /**
+     * Copies the state of one cell, and the cells sharing its word, from another grid of the same size.
+     * The counts are copied too, so once every cell that differs has been copied the grids are equal.
+     *
+     * @param other the grid to copy from
+     * @param cell the cell index
+     */
+    public void copyCellFrom(OccupancyGrid other, int cell) {
+        int word = cell >>> 6;
+        bits[word] = other.bits[word];
+        copyBlockFrom(counts, other.counts, word >>> BLOCK_SHIFT);
+        occupied = other.occupied;
+    }
+
+    /**
+     * Converts a grid position into a cell index.
+     *
+     * @param x the x-coordinate (column) of the position
+     * @param y the y-coordinate (row) of the position
+     * @return the cell index y * cols + x
+     */
+    public int cellOf(int x, int y) {
+        return y * cols + x;
+    }
+
+    /**
+     * Checks whether a position lies inside the grid.
+     *
+     * @param x the x-coordinate (column) of the position
+     * @param y the y-coordinate (row) of the position
+     * @return true if the position is on the grid, otherwise false
+     */
+    public boolean isInside(int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows;
+    }
+
+    /**
+     * Checks whether a cell is occupied.
+     *
+     * @param cell the cell index
+     * @return true if the cell is marked as occupied, otherwise false
+     */
+    public boolean isOccupied(int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Checks whether a position is occupied. Positions outside the grid are never occupied.
+     *
+     * @param x the x-coordinate (column) of the position
+     * @param y the y-coordinate (row) of the position
+     * @return true if the position is on the grid and marked as occupied, otherwise false
+     */
+    public boolean isOccupied(int x, int y) {
+        return isInside(x, y) && isOccupied(cellOf(x, y));
+    }
+
+    /**
+     * Marks a cell as occupied.
+     *
+     * @param cell the cell index
+     */
+    public void set(int cell) {
+        int word = cell >>> 6;
+        long old = bits[word];
+        int added = (int) ((~old >>> cell) & 1L);  // 1 unless the cell was already occupied
+        bits[word] = old | (1L << cell);
+        if (added != 0) {
+            addToBlock(counts, 0, counts.length, word >>> BLOCK_SHIFT, 1);
+            occupied++;
+        }
+    }
+
+    /**
+     * Marks a cell as free.
+     *
+     * @param cell the cell index
+     */
+    public void clear(int cell) {
+        int word = cell >>> 6;
+        long old = bits[word];
+        int removed = (int) ((old >>> cell) & 1L);  // 1 unless the cell was already free
+        bits[word] = old & ~(1L << cell);
+        if (removed != 0) {
+            addToBlock(counts, 0, counts.length, word >>> BLOCK_SHIFT, -1);
+            occupied--;
+        }
+    }
+
+    /**
+     * Marks every cell as free.
+     */
+    public void clearAll() {
+        Arrays.fill(bits, 0L);
+        Arrays.fill(counts, 0);
+        occupied = 0;
+    }
+
+    /**
+     * Gets the number of free cells.
+     *
+     * @return the cells of the grid that are not occupied
+     */
+    public int getFreeCount() {
+        return cols * rows - occupied;
+    }
+
+    /**
+     * Finds the free cell with the given rank, counting free cells in ascending cell order.
+     *
+     * @param rank the number of free cells before the one wanted, from 0 to getFreeCount() - 1
+     * @return the cell index
+     *
+     * This method takes time proportional to the logarithm of the number of cells and
+     * allocates nothing.
+     */
+    public int findFree(int rank) {
+        return findFree(bits, 0, counts, 0, counts.length, rank);
+    }
+
+    /**
+     * Gets the number of columns in the grid.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of rows in the grid.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,625 @@
+package engine;
+
+import snake.Direction;
+import snake.SnakeLinkedList;
+
+import java.util.Arrays;
+
+/**
+ * The PathfindingPolicy class is an autopilot that plans a path to the apple every tick and
+ * only takes a step if it can still reach its own tail afterwards.
+ *
+ * Paths are found with A* under the Manhattan heuristic. On a grid with unit steps a
+ * neighbour's estimate is either the same as its parent's or two more, so the open set is
+ * just two stacks, one per estimate, rather than a heap. Each search runs from both ends at
+ * once, one cell at a time from each, and ends when the two meet or when either end has
+ * explored every cell it can reach. A search is exact, never giving up early, and one that
+ * fails costs at most twice the smaller of the two regions, so a tail shut in a small pocket
+ * is not found out by flooding the rest of the board.
+ *
+ * The tail check runs the same search from the cell the head would move to, on the board as
+ * it would be after the step; a snake that can always reach its tail can always follow it,
+ * so it never traps itself. Eating holds the tail still for a step, and the next apple may
+ * appear right in front of the head and hold it for another, so the snake prefers to eat
+ * only where it can reach its tail by at least two steps afterwards. When the apple is
+ * unreachable or unsafe the snake follows its tail instead, then takes any other step that
+ * is safe with that margin, then any step that is safe without it, and as a last resort it
+ * moves towards the neighbour with the most room.
+ *
+ * Consecutive ticks mostly ask the same questions, so the policy keeps what it found. The
+ * route to the apple is followed for as long as the head keeps to it, since the cells ahead
+ * stay free; it is searched for again only when a new apple appears or the head leaves it.
+ * The path the last tail check found is kept as a trail: free cells leading to the tail,
+ * extended by each cell the tail leaves and cut where the head steps onto it. Reaching any
+ * cell of the trail is reaching the tail, so a check usually ends within a few cells of the
+ * head instead of going around the body.
+ *
+ * All search state lives in int arrays sized to the board and allocated once. Visited cells
+ * are marked with a search number rather than cleared, so a search costs only the cells it
+ * explores and nothing is allocated per tick.
+ */
+public class PathfindingPolicy implements Policy {
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int NO_TRAIL = Integer.MAX_VALUE;  // Trail position no search may end on
+    private static final int PATH_STEPS_PER_CHECK = 8;      // Forward cells a short path search expands per backward cell
+
+    private final int cols;           // Number of columns of the board
+    private final int rows;           // Number of rows of the board
+    private final int cells;          // Number of cells of the board
+    private final int[] visited;      // Search number that last reached each cell
+    private final int[] parent;       // Cell each cell was reached from in the last search
+    private final End forward;        // The end of a search that starts at its start cell
+    private final End backward;       // The end of a search that starts at its goal
+    private int search;               // Number of the current search; its backward end uses search + 1
+    private int start;                // Start cell of the last search
+    private int goal;                 // Goal cell of the last search
+    private int meeting;              // Cell of the forward end where the last successful search met
+    private int crossing;             // Cell of the backward end or the trail where it met
+    private boolean onTrail;          // Whether the last successful search met the trail
+    private boolean searched;         // Whether the last safe step was shown safe by a search
+    private final int[] trail;        // Free cells leading to trailGoal, as a ring from trailFirst
+    private final int[] trailSlot;    // Slot of each cell in trail, valid only while the slot holds it
+    private int trailFirst;           // Slot of the trail cell farthest from the tail
+    private int trailSize;            // Number of cells on the trail
+    private int trailGoal;            // Tail cell the trail leads to
+    private long trailTick = -2;      // Tick of the game when the trail was last brought up to date
+    private final int[] route;        // Cells of the last path found to the apple, from the head then
+    private int routeLength;          // Number of cells on the route
+    private int routeAt;              // Index on the route of the cell the head was on
+    private int routeApple = -1;      // Apple cell the route leads to, or -1 for none
+    private long routeTick = -2;      // Tick of the game when the route was last followed
+    private long explored;            // Cells explored by all searches, for profiling
+
+    /**
+     * One end of a bidirectional search: A* towards the cell the other end started from,
+     * with its open set kept as two stacks.
+     */
+    private final class End {
+        private int[] frontier;       // Open cells with the lowest estimate, used as a stack
+        private int[] deferred;       // Open cells estimated two steps longer, used as a stack
+        private int open;             // Number of cells in frontier
+        private int later;            // Number of cells in deferred
+        private int mark;             // Search number this end marks its cells with
+        private int other;            // Search number the other end marks its cells with
+        private int targetX;          // Column of the cell the other end started from
+        private int targetY;          // Row of the cell the other end started from
+        private int trailFrom;        // First trail position this end may end on, or NO_TRAIL
+        private boolean shortest;     // Whether to expand contour by contour, as A* does, or greedily
+        private int current;          // Cell being expanded when this end met the other
+        private int touched;          // Cell of the other end, or of the trail, it met
+
+        End(int cells) {
+            this.frontier = new int[cells];
+            this.deferred = new int[cells];
+        }
+
+        /**
+         * Starts this end at a cell, heading for the cell the other end starts from.
+         */
+        void begin(int cell, int mark, int other, int target, int trailFrom, boolean shortest) {
+            this.mark = mark;
+            this.other = other;
+            this.targetX = target % cols;
+            this.targetY = target / cols;
+            this.trailFrom = trailFrom;
+            this.shortest = shortest;
+            visited[cell] = mark;
+            parent[cell] = -1;
+            frontier[0] = cell;
+            open = 1;
+            later = 0;
+        }
+
+        /**
+         * Checks whether this end has explored every cell it can reach.
+         */
+        boolean isExhausted() {
+            return open == 0;
+        }
+
+        /**
+         * Expands the most promising open cell.
+         *
+         * @return true if the cell is next to a cell of the other end or of the trail,
+         *         recorded in current and touched
+         */
+        boolean expand(OccupancyGrid occupancy, int freed, int blocked) {
+            int cell = frontier[--open];
+            explored++;
+            int x = cell % cols;
+            int y = cell / cols;
+            int estimate = Math.abs(x - targetX) + Math.abs(y - targetY);
+            for (Direction.Dir dir : DIRECTIONS) {
+                int nx = x + dir.dx();
+                int ny = y + dir.dy();
+                if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+                    continue;
+                }
+                int next = ny * cols + nx;
+                if (next == blocked) {
+                    continue;
+                }
+                if (visited[next] == other || trailPosition(next) >= trailFrom) {
+                    current = cell;
+                    touched = next;
+                    return true;
+                }
+                if (visited[next] == mark || !isFree(occupancy, next, freed)) {
+                    continue;
+                }
+                visited[next] = mark;
+                parent[next] = cell;
+                if (Math.abs(nx - targetX) + Math.abs(ny - targetY) < estimate) {
+                    frontier[open++] = next;
+                } else {
+                    deferred[later++] = next;
+                }
+            }
+            if (open == 0 && later > 0) {
+                if (shortest) {
+                    int[] swap = frontier;
+                    frontier = deferred;
+                    deferred = swap;
+                    open = later;
+                    later = 0;
+                } else {
+                    frontier[open++] = deferred[--later];  // Back off to the latest detour only
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Constructs a PathfindingPolicy for boards of one size.
+     *
+     * @param cols the number of columns of the board
+     * @param rows the number of rows of the board
+     */
+    public PathfindingPolicy(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.cells = cols * rows;
+        this.visited = new int[cells];
+        this.parent = new int[cells];
+        this.forward = new End(cells);
+        this.backward = new End(cells);
+        this.trail = new int[cells];
+        this.trailSlot = new int[cells];
+        this.route = new int[cells];
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Starts a new search, so every cell counts as unvisited. Each search takes two numbers,
+     * one per end.
+     */
+    private void nextSearch() {
+        search += 2;
+        if (search < 0) {
+            Arrays.fill(visited, 0);  // The search number wrapped around
+            search = 2;
+        }
+    }
+
+    /**
+     * Checks whether two cells are side by side.
+     */
+    private boolean isNextTo(int a, int b) {
+        return Math.abs(a % cols - b % cols) + Math.abs(a / cols - b / cols) == 1;
+    }
+
+    /**
+     * Checks whether the snake could move onto a cell, given which cells are occupied.
+     */
+    private static boolean isFree(OccupancyGrid occupancy, int cell, int freed) {
+        return cell == freed || !occupancy.isOccupied(cell);
+    }
+
+    /**
+     * Finds a cell on the trail.
+     *
+     * @return the number of trail cells before it, or -1 if the cell is not on the trail
+     */
+    private int trailPosition(int cell) {
+        int slot = trailSlot[cell];
+        int position = slot - trailFirst;
+        if (position < 0) {
+            position += cells;
+        }
+        return position < trailSize && trail[slot] == cell ? position : -1;
+    }
+
+    /**
+     * Adds a cell to the far end of the trail from the tail.
+     */
+    private void addToTrailFront(int cell) {
+        trailFirst = trailFirst == 0 ? cells - 1 : trailFirst - 1;
+        trail[trailFirst] = cell;
+        trailSlot[cell] = trailFirst;
+        trailSize++;
+    }
+
+    /**
+     * Adds a cell to the tail end of the trail.
+     */
+    private void addToTrailBack(int cell) {
+        int slot = trailFirst + trailSize;
+        if (slot >= cells) {
+            slot -= cells;
+        }
+        trail[slot] = cell;
+        trailSlot[cell] = slot;
+        trailSize++;
+    }
+
+    /**
+     * Removes the given number of cells from the far end of the trail.
+     */
+    private void cutTrail(int count) {
+        trailFirst += count;
+        if (trailFirst >= cells) {
+            trailFirst -= cells;
+        }
+        trailSize -= count;
+    }
+
+    /**
+     * Brings the trail up to date with the step the game took since the last call: the cell
+     * the tail left joins the trail, and the cells up to where the head stepped on it leave.
+     * If the game did not just take one step, or the trail no longer leads to the tail, it is
+     * dropped.
+     */
+    private void followTrail(GameState state, int head, int tailCell) {
+        if (state.getTick() == trailTick + 1) {
+            int vacated = state.getVacatedCell();
+            if (vacated >= 0 && vacated == trailGoal) {
+                addToTrailBack(vacated);
+                trailGoal = tailCell;
+            }
+            int position = trailPosition(head);
+            if (position >= 0) {
+                cutTrail(position + 1);
+            }
+        }
+        if (state.getTick() != trailTick + 1 || trailGoal != tailCell) {
+            trailSize = 0;
+            trailGoal = tailCell;
+        }
+        trailTick = state.getTick();
+    }
+
+    /**
+     * Makes the path the last tail search found the trail, as it will be once the head has
+     * stepped onto the given cell.
+     */
+    private void takeTrail(int step) {
+        if (onTrail) {
+            cutTrail(trailPosition(crossing));
+        } else {
+            trailSize = 0;
+            for (int cell = crossing; cell != goal; cell = parent[cell]) {
+                addToTrailBack(cell);
+            }
+            trailGoal = goal;
+        }
+        for (int cell = meeting; cell != step; cell = parent[cell]) {
+            addToTrailFront(cell);
+            if (cell == start) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Searches for a path between two different cells from both ends, filling parent along
+     * the way and recording where the ends met. For a short path each end runs A*; a search
+     * for the tail may instead end on the trail, and since any path will do there, each end
+     * heads greedily for the other and only turns away when it must, which finds out whether
+     * the tail can be reached with far fewer cells around obstacles.
+     *
+     * @param start the cell to search from
+     * @param goal the cell to reach, which may be occupied, like the tail
+     * @param occupancy the occupied cells
+     * @param freed an occupied cell to treat as free, or -1
+     * @param blocked a free cell to treat as occupied, or -1
+     * @param trailFrom the first trail position the search may end on, or NO_TRAIL to search
+     *                  for a short path to the goal itself
+     * @return true if the goal was reached, false once either end has explored every cell it can reach
+     */
+    private boolean findPath(int start, int goal, OccupancyGrid occupancy, int freed, int blocked,
+                             int trailFrom) {
+        if (goal == blocked) {
+            return false;
+        }
+        this.start = start;
+        this.goal = goal;
+        nextSearch();
+        boolean shortest = trailFrom == NO_TRAIL;
+        // Head for the nearest cell that ends the search: the trail starts next to the head
+        int aim = trailFrom < trailSize ? trail[(trailFirst + trailFrom) % cells] : goal;
+        forward.begin(start, search, search + 1, aim, trailFrom, shortest);
+        backward.begin(goal, search + 1, search, start, NO_TRAIL, shortest);
+        int stepsPerCheck = shortest ? PATH_STEPS_PER_CHECK : 1;
+        while (!forward.isExhausted() && !backward.isExhausted()) {
+            for (int i = 0; i < stepsPerCheck && !forward.isExhausted(); i++) {
+                if (forward.expand(occupancy, freed, blocked)) {
+                    meeting = forward.current;
+                    crossing = forward.touched;
+                    onTrail = visited[crossing] != search + 1;
+                    return true;
+                }
+            }
+            if (backward.expand(occupancy, freed, blocked)) {
+                meeting = backward.touched;
+                crossing = backward.current;
+                onTrail = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next step towards the apple. The route found on an earlier tick is followed
+     * while the head keeps to it, and searched for again otherwise.
+     *
+     * @return the cell to step onto, or -1 if the apple cannot be reached
+     */
+    private int stepToApple(GameState state, int head, int apple, OccupancyGrid occupancy, int freedTail,
+                            int behind) {
+        if (apple == routeApple && state.getTick() == routeTick + 1 && routeAt + 2 < routeLength
+                && head == route[routeAt + 1]) {
+            routeAt++;
+        } else if (findPath(head, apple, occupancy, freedTail, behind, NO_TRAIL)) {
+            // The forward end's parents lead back to the head, the backward end's to the apple
+            routeLength = 0;
+            for (int cell = meeting; cell != -1; cell = parent[cell]) {
+                routeLength++;
+            }
+            int index = routeLength;
+            for (int cell = meeting; cell != -1; cell = parent[cell]) {
+                route[--index] = cell;
+            }
+            for (int cell = crossing; ; cell = parent[cell]) {
+                route[routeLength++] = cell;
+                if (cell == apple) {
+                    break;
+                }
+            }
+            routeAt = 0;
+        } else {
+            routeApple = -1;
+            return -1;
+        }
+        routeApple = apple;
+        routeTick = state.getTick();
+        return route[routeAt + 1];
+    }
+
+    /**
+     * Counts the free cells reachable from a cell, stopping once the limit is reached.
+     */
+    private int countReachable(int start, OccupancyGrid occupancy, int freed, int limit) {
+        nextSearch();
+        int[] queue = forward.frontier;
+        int head = 0;
+        int tail = 0;
+        visited[start] = search;
+        queue[tail++] = start;
+        while (head < tail && tail < limit) {
+            int cell = queue[head++];
+            explored++;
+            int x = cell % cols;
+            int y = cell / cols;
+            for (Direction.Dir dir : DIRECTIONS) {
+                int nx = x + dir.dx();
+                int ny = y + dir.dy();
+                if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+                    continue;
+                }
+                int next = ny * cols + nx;
+                if (visited[next] != search && isFree(occupancy, next, freed)) {
+                    visited[next] = search;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Finds the cell after the start on the path the last successful search found, following
+     * the parents of the forward end back from where the ends met.
+     */
+    private int firstStep() {
+        if (meeting == start) {
+            return crossing;
+        }
+        int cell = meeting;
+        while (parent[cell] != start) {
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    /**
+     * Checks whether the head could still reach the tail after stepping onto a neighbouring
+     * cell, allowing for the next apple appearing in front of the head if wary.
+     */
+    private boolean isSafe(GameState state, int step, int freedTail, boolean wary) {
+        searched = false;
+        OccupancyGrid occupancy = state.getOccupancy();
+        if (!isFree(occupancy, step, freedTail)) {
+            return false;
+        }
+        int length = state.getLength();
+        if (length == 1) {
+            return true;
+        }
+        // After the step the tail is the next-to-last segment, unless the snake is growing
+        int tail = state.getSegment(freedTail < 0 ? length - 1 : length - 2);
+        int tailCell = occupancy.cellOf(SnakeLinkedList.unpackX(tail), SnakeLinkedList.unpackY(tail));
+        // The trail leads to the tail as it is now, which the step frees if the snake is not
+        // growing, so it still leads to the tail after the step; only the part of it up to
+        // the step is cut off
+        int position = trailPosition(step);
+        if (step == state.getAppleCell()) {
+            return isSafeAfterEating(step, tailCell, occupancy, freedTail, position + 1, wary);
+        }
+        if (tailCell == step || position >= 0) {
+            return true;
+        }
+        // The old head stays occupied and start cells are never revisited, so the board
+        // searched is exactly the board after the step
+        searched = findPath(step, tailCell, occupancy, freedTail, -1, 0);
+        return searched;
+    }
+
+    /**
+     * Checks whether the head could still reach the tail after eating the apple. The tail
+     * stays put on the step after eating, so some neighbour of the apple other than the tail
+     * must lead back to it. If wary, that neighbour must not be next to the tail either, in
+     * case the next apple appears on it and holds the tail for another step.
+     */
+    private boolean isSafeAfterEating(int apple, int tailCell, OccupancyGrid occupancy, int freedTail,
+                                      int trailFrom, boolean wary) {
+        int x = apple % cols;
+        int y = apple / cols;
+        for (Direction.Dir dir : DIRECTIONS) {
+            int nx = x + dir.dx();
+            int ny = y + dir.dy();
+            if (nx < 0 || nx >= cols || ny < 0 || ny >= rows) {
+                continue;
+            }
+            int next = ny * cols + nx;
+            if (next == tailCell || !isFree(occupancy, next, freedTail) || (wary && isNextTo(next, tailCell))) {
+                continue;
+            }
+            if (trailPosition(next) >= trailFrom) {
+                return true;  // The trail leads on from here
+            }
+            if (findPath(next, tailCell, occupancy, freedTail, apple, trailFrom)) {
+                searched = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a step found safe, keeping the path that showed it as the trail.
+     */
+    private Direction.Dir stepTo(int head, int step) {
+        if (searched) {
+            takeTrail(step);
+        }
+        return directionTo(head, step);
+    }
+
+    /**
+     * Finds the direction from a cell to a neighbouring one.
+     */
+    private Direction.Dir directionTo(int from, int to) {
+        int dx = to % cols - from % cols;
+        int dy = to / cols - from / cols;
+        Direction.Dir dir = Direction.Dir.of(dx, dy);
+        if (dir == null) {
+            throw new IllegalStateException("Cells " + from + " and " + to + " are not neighbours");
+        }
+        return dir;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Chooses a safe step towards the apple, or towards the tail if there is none.
+     *
+     * @param state the game to move in, on a board of the size this policy was made for
+     * @return the direction to move in
+     */
+    @Override
+    public Direction.Dir chooseDirection(GameState state) {
+        OccupancyGrid occupancy = state.getOccupancy();
+        int head = occupancy.cellOf(state.getHeadX(), state.getHeadY());
+        int length = state.getLength();
+        int tail = state.getSegment(length - 1);
+        int tailCell = occupancy.cellOf(SnakeLinkedList.unpackX(tail), SnakeLinkedList.unpackY(tail));
+        // The tail moves off its cell on this step, unless the snake is growing; at length 2
+        // the tail is also the neck, and moving onto it would be a reversal
+        int freedTail = state.isGrowing() || length <= 2 ? -1 : tailCell;
+        followTrail(state, head, tailCell);
+
+        // Reversing is never allowed, even when the snake is a single segment
+        Direction.Dir heading = state.getCurrentDirection();
+        int behindX = state.getHeadX() - heading.dx();
+        int behindY = state.getHeadY() - heading.dy();
+        int behind = occupancy.isInside(behindX, behindY) ? occupancy.cellOf(behindX, behindY) : -1;
+
+        int apple = state.getAppleCell();
+        int toApple = apple >= 0 ? stepToApple(state, head, apple, occupancy, freedTail, behind) : -1;
+        if (toApple >= 0 && isSafe(state, toApple, freedTail, true)) {
+            return stepTo(head, toApple);
+        }
+        if (length > 1 && findPath(head, tailCell, occupancy, freedTail, behind, 0)) {
+            int step = firstStep();
+            if (isSafe(state, step, freedTail, true)) {
+                return stepTo(head, step);
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (Direction.Dir dir : DIRECTIONS) {
+                int x = state.getHeadX() + dir.dx();
+                int y = state.getHeadY() + dir.dy();
+                if (occupancy.isInside(x, y) && occupancy.cellOf(x, y) != behind
+                        && isSafe(state, occupancy.cellOf(x, y), freedTail, pass == 0)) {
+                    return stepTo(head, occupancy.cellOf(x, y));
+                }
+            }
+        }
+
+        // Trapped whichever way: head for the neighbour with the most room
+        Direction.Dir best = state.getCurrentDirection();
+        int mostRoom = 0;
+        for (Direction.Dir dir : DIRECTIONS) {
+            int x = state.getHeadX() + dir.dx();
+            int y = state.getHeadY() + dir.dy();
+            if (!occupancy.isInside(x, y) || occupancy.cellOf(x, y) == behind
+                    || !isFree(occupancy, occupancy.cellOf(x, y), freedTail)) {
+                continue;
+            }
+            int room = countReachable(occupancy.cellOf(x, y), occupancy, freedTail, length + 1);
+            if (room > mostRoom) {
+                mostRoom = room;
+                best = dir;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Forgets the route and trail kept from the last game.
+     *
+     * @param state the game that was just reset
+     */
+    @Override
+    public void reset(GameState state) {
+        trailSize = 0;
+        trailTick = -2;
+        routeApple = -1;
+    }
+
+    /**
+     * Gets the number of cells all searches so far have explored.
+     *
+     * @return the explored cell count
+     */
+    public long getExploredCells() {
+        return explored;
+    }
+}
@@ -0,0 +1,29 @@
+package engine;
+
+import snake.Direction;
+
+/**
+ * The Policy interface decides which way the snake turns each tick. It is how players other
+ * than the keyboard, such as search algorithms and trained networks, drive a GameState.
+ *
+ * A policy instance may keep scratch state between calls and is used by one thread at a time;
+ * batch runners create one instance per worker.
+ */
+public interface Policy {
+
+    /**
+     * Chooses the direction for the next tick.
+     *
+     * @param state the game to move in; it must not be modified
+     * @return the direction to move in, where a reversal is ignored like a player's would be
+     */
+    Direction.Dir chooseDirection(GameState state);
+
+    /**
+     * Called when a new game starts, so the policy can clear anything kept from the last one.
+     *
+     * @param state the game that was just reset
+     */
+    default void reset(GameState state) {
+    }
+}
@@ -0,0 +1,100 @@
+package engine;
+
+/**
+ * The SplitMix64 class is a small, fast pseudo-random number generator whose whole state is
+ * a single long. The state can be read and restored, so a game can be snapshotted and resumed
+ * with exactly the same future apple placements.
+ *
+ * Unlike java.util.Random it does no atomic updates and is not thread-safe; each GameState
+ * owns its own instance.
+ */
+public class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;  // State increment per draw
+
+    private long state;  // Advanced by GOLDEN_GAMMA on every draw
+
+    /**
+     * Constructs a generator from a seed.
+     *
+     * @param seed the initial state
+     */
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Draws the next 64 random bits.
+     *
+     * @return a uniformly distributed long
+     */
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles a value with the SplitMix64 output function, without needing a generator.
+     *
+     * @param z the value to scramble, such as a seed combined with an index
+     * @return a well-mixed 64-bit value; distinct inputs give distinct outputs
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Draws a uniformly distributed int in [0, bound).
+     *
+     * @param bound the exclusive upper bound, which must be positive
+     * @return a random int from 0 to bound - 1
+     *
+     * Powers of two take the high bits directly; other bounds reject the few draws that would
+     * bias the result, as java.util.Random does.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive: " + bound);
+        }
+        int r = (int) (nextLong() >>> 33);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = (int) (nextLong() >>> 33)) {
+            // Retry draws from the incomplete last block of the range
+        }
+        return r;
+    }
+
+    /**
+     * Draws a uniformly distributed float in [0, 1).
+     *
+     * @return a random float with 24 random bits
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Gets the generator's state.
+     *
+     * @return the state, which setState() accepts to continue the same sequence
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restores a state previously returned by getState(), or seeds the generator.
+     *
+     * @param state the new state
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
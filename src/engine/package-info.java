@@ -0,0 +1 @@
+package engine;
\ No newline at end of file
@@ -2,6 +2,9 @@ module Snake {
     requires javafx.controls;
     requires javafx.fxml;
 	requires javafx.graphics;
+	requires jdk.management;  // Per-thread allocation counters used by bench.AllocationProbe and GameMetrics
+	requires java.management;  // JMX registration of GameMetrics
 
     exports arena; // Export the arena package so JavaFX can access it
+    exports controller to java.management;  // Lets JMX read GameMetricsMXBean and its snapshots
 }
@@ -0,0 +1,80 @@
+package replay;
+
+import snake.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The ReplayBuffer class records the commands of the game in progress in the compact replay
+ * encoding, typically one byte per command, so a long game does not keep an object per move.
+ *
+ * It grows by doubling, which keeps recording allocation-free except for the rare resize.
+ */
+public class ReplayBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];  // Encoded command entries
+    private int length;          // Bytes used
+    private long lastTick = -1;  // Tick of the last recorded command
+    private long commandCount;   // Commands recorded
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Records a command applied at a tick.
+     *
+     * @param tick the game tick the command was applied on, later than the previous command's
+     * @param direction the direction applied
+     * @throws IllegalArgumentException if the tick does not advance
+     */
+    public void record(long tick, Direction.Dir direction) {
+        if (tick <= lastTick) {
+            throw new IllegalArgumentException("Replay ticks must increase: " + tick + " after " + lastTick);
+        }
+        if (length + ReplayFormat.MAX_VARINT_BYTES > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        length = ReplayFormat.putVarint(bytes, length, ReplayFormat.encodeCommand(tick - lastTick, direction));
+        lastTick = tick;
+        commandCount++;
+    }
+
+    /**
+     * Discards every recorded command, keeping the allocated storage.
+     */
+    public void clear() {
+        length = 0;
+        lastTick = -1;
+        commandCount = 0;
+    }
+
+    /**
+     * Gets the number of recorded commands.
+     *
+     * @return the command count
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Gets the size of the encoded commands.
+     *
+     * @return the number of bytes used
+     */
+    public int getEncodedLength() {
+        return length;
+    }
+
+    /**
+     * Gets a read-only view of the encoded commands, without the header or end record.
+     *
+     * @return a buffer positioned at the first entry; it is invalidated by the next record()
+     */
+    public ByteBuffer getEntries() {
+        return ByteBuffer.wrap(bytes, 0, length).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,315 @@
+package replay;
+
+import engine.GameState;
+import snake.Direction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The ReplayEngine class re-simulates a recorded game on the headless GameState, with no
+ * rendering and no timing, so it runs as fast as the simulation core allows.
+ *
+ * Because apple placement is seeded per game, the recorded seed and direction stream reproduce
+ * the game exactly; verify() checks the replay ends on the recorded tick with the recorded state
+ * hash. While stepping, the engine keeps a snapshot of the state every snapshotInterval ticks,
+ * so seek() to a late tick resumes from the nearest snapshot instead of replaying from tick 0.
+ *
+ * Snapshots are the compact encodings of GameState.writeSnapshot(), packed one after another
+ * into a single byte array, and a restored snapshot continues exactly like the original game.
+ * Their number is bounded: once maxSnapshots are kept, every other one is dropped and the
+ * interval doubles, so a game of any length keeps between maxSnapshots / 2 and maxSnapshots
+ * snapshots, spread evenly over the ticks replayed so far.
+ */
+public class ReplayEngine {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 4096;  // Ticks between snapshots by default
+    public static final int DEFAULT_MAX_SNAPSHOTS = 256;       // Most snapshots kept by default
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int MAX_SNAPSHOT_DATA = Integer.MAX_VALUE - 8;  // Largest array the JVM reliably allocates
+
+    private final int snapshotInterval;   // Ticks between snapshots at the start of each game
+    private final int maxSnapshots;       // Most snapshots kept before they are thinned
+    private final int[] snapshotOffsets;  // Start of snapshot k in snapshotData; entry snapshotCount is the end
+    private byte[] snapshotData = new byte[0];  // Snapshot k is the state at tick k * interval, back to back
+    private ByteBuffer snapshotBuffer = ByteBuffer.wrap(snapshotData).order(ByteOrder.LITTLE_ENDIAN);  // View of snapshotData
+    private long interval;                // Ticks between snapshots of the loaded game so far
+    private int snapshotCount;            // Snapshots taken of the loaded game
+    private GameState state;              // The game being replayed
+    private long[] commandTicks = new long[256];  // Tick each recorded command was applied on
+    private byte[] commandDirections = new byte[256];  // Direction ordinal of each recorded command
+    private int commandCount;             // Number of recorded commands
+    private int nextCommand;              // Index of the next command to apply
+    private int cols;                     // Board columns of the recorded game
+    private int rows;                     // Board rows of the recorded game
+    private long seed;                    // Seed of the recorded game
+    private long finalTick;               // Tick the recorded game ended on
+    private long finalHash;               // State hash the recorded game ended with
+
+    /**
+     * Constructs a ReplayEngine that snapshots every DEFAULT_SNAPSHOT_INTERVAL ticks and keeps
+     * at most DEFAULT_MAX_SNAPSHOTS snapshots.
+     */
+    public ReplayEngine() {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Constructs a ReplayEngine that keeps at most DEFAULT_MAX_SNAPSHOTS snapshots.
+     *
+     * @param snapshotInterval ticks between snapshots at the start of each game
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public ReplayEngine(int snapshotInterval) {
+        this(snapshotInterval, DEFAULT_MAX_SNAPSHOTS);
+    }
+
+    /**
+     * Constructs a ReplayEngine.
+     *
+     * @param snapshotInterval ticks between snapshots at the start of each game; smaller
+     *                         intervals seek faster but fill the snapshots sooner
+     * @param maxSnapshots the most snapshots kept, at least 2; each takes about 60 bytes plus
+     *                     a quarter byte per snake segment
+     * @throws IllegalArgumentException if the interval is not positive or maxSnapshots is below 2
+     */
+    public ReplayEngine(int snapshotInterval, int maxSnapshots) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        if (maxSnapshots < 2) {
+            throw new IllegalArgumentException("At least 2 snapshots must be kept: " + maxSnapshots);
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.maxSnapshots = maxSnapshots;
+        this.snapshotOffsets = new int[maxSnapshots + 1];
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Runs one tick: applies the command recorded for this tick, if any, then steps the game.
+     * Takes a snapshot first whenever the tick is a multiple of the interval not yet snapshotted.
+     */
+    private void step() {
+        long tick = state.getTick();
+        if (tick % interval == 0 && tick / interval == snapshotCount) {
+            takeSnapshot();
+        }
+        if (nextCommand < commandCount && commandTicks[nextCommand] == tick) {
+            state.changeDirection(DIRECTIONS[commandDirections[nextCommand]]);
+            nextCommand++;
+        }
+        state.update();
+    }
+
+    /**
+     * Appends a snapshot of the state, which is at tick snapshotCount * interval.
+     * Thins the snapshots first if there is no room for another.
+     */
+    private void takeSnapshot() {
+        int bytes = state.getSnapshotBytes();
+        if (snapshotCount == maxSnapshots || snapshotOffsets[snapshotCount] > MAX_SNAPSHOT_DATA - bytes) {
+            thinSnapshots();
+            if (state.getTick() % interval != 0) {
+                return;  // Not on the doubled interval
+            }
+        }
+        int offset = snapshotOffsets[snapshotCount];
+        if (offset + bytes > snapshotData.length) {
+            long grown = Math.max(offset + (long) bytes, 2L * snapshotData.length);
+            snapshotData = Arrays.copyOf(snapshotData, (int) Math.min(grown, MAX_SNAPSHOT_DATA));
+            snapshotBuffer = ByteBuffer.wrap(snapshotData).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        snapshotBuffer.clear().position(offset);
+        state.writeSnapshot(snapshotBuffer);
+        snapshotOffsets[++snapshotCount] = offset + bytes;
+    }
+
+    /**
+     * Drops every other snapshot, keeping those at multiples of twice the interval, and
+     * doubles the interval. The kept snapshots are moved to the front of the array in order.
+     */
+    private void thinSnapshots() {
+        int kept = (snapshotCount + 1) / 2;
+        int end = 0;
+        for (int k = 0; k < kept; k++) {
+            int start = snapshotOffsets[2 * k];
+            int length = snapshotOffsets[2 * k + 1] - start;
+            System.arraycopy(snapshotData, start, snapshotData, end, length);  // Never overlaps a kept snapshot ahead
+            snapshotOffsets[k] = end;
+            end += length;
+        }
+        snapshotOffsets[kept] = end;
+        snapshotCount = kept;
+        interval *= 2;
+    }
+
+    /**
+     * Finds the index of the first command applied on or after a tick.
+     */
+    private int commandIndexAt(long tick) {
+        int index = Arrays.binarySearch(commandTicks, 0, commandCount, tick);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Starts the loaded game over from tick 0.
+     */
+    private void restart() {
+        if (state == null || state.getCols() != cols || state.getRows() != rows) {
+            state = new GameState(cols, rows, 0L);
+        }
+        state.reset(seed);
+        nextCommand = 0;
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Loads the game the reader is positioned on, reading all its commands.
+     *
+     * @param reader a reader on which nextGame() has just returned true
+     * @throws IOException if the replay is truncated, or was recorded before version
+     *         ReplayFormat.FIRST_REPLAYABLE_VERSION with an apple placement this engine cannot reproduce
+     *
+     * The engine's storage, including the snapshot array, is reused from game to game; a new
+     * GameState is only created when the board size changes.
+     */
+    public void load(ReplayReader reader) throws IOException {
+        if (reader.getVersion() < ReplayFormat.FIRST_REPLAYABLE_VERSION) {
+            throw new IOException("Replay version " + reader.getVersion() + " was recorded with an incompatible"
+                    + " apple placement; only version " + ReplayFormat.FIRST_REPLAYABLE_VERSION + " and later can be replayed");
+        }
+        cols = reader.getCols();
+        rows = reader.getRows();
+        seed = reader.getSeed();
+        commandCount = 0;
+        while (reader.nextCommand()) {
+            if (commandCount == commandTicks.length) {
+                commandTicks = Arrays.copyOf(commandTicks, commandCount * 2);
+                commandDirections = Arrays.copyOf(commandDirections, commandCount * 2);
+            }
+            commandTicks[commandCount] = reader.getTick();
+            commandDirections[commandCount] = (byte) reader.getDirection().ordinal();
+            commandCount++;
+        }
+        finalTick = reader.getFinalTick();
+        finalHash = reader.getFinalHash();
+        snapshotCount = 0;
+        interval = snapshotInterval;
+        restart();
+    }
+
+    /**
+     * Replays the game from its current tick until it ends or reaches the recorded final tick.
+     *
+     * @return the tick the replay stopped on
+     */
+    public long runToEnd() {
+        while (state.getTick() < finalTick && !state.isOver()) {
+            step();
+        }
+        return state.getTick();
+    }
+
+    /**
+     * Replays the whole game and checks it ends exactly as recorded.
+     *
+     * @return true if the replay ends on the recorded tick with the recorded state hash
+     */
+    public boolean verify() {
+        seek(0);
+        runToEnd();
+        return state.getTick() == finalTick && state.getStateHash() == finalHash;
+    }
+
+    /**
+     * Moves the replay to a tick, as if the game had just played that many ticks.
+     *
+     * @param tick the tick to move to; values past the end of the game stop at the end
+     *
+     * Seeking restores the latest snapshot at or before the tick, unless the engine is
+     * already between that snapshot and the tick, then steps forward the remaining ticks.
+     * Snapshots are taken along the way, so later seeks into the same region are faster.
+     * Restoring a snapshot takes time proportional to the size of the board divided by 64
+     * plus the length of the snake, and allocates nothing.
+     */
+    public void seek(long tick) {
+        long target = Math.max(0, Math.min(tick, finalTick));
+        int index = (int) Math.min(target / interval, snapshotCount - 1L);
+        if (index >= 0) {
+            long snapshotTick = index * interval;
+            if (state.getTick() > target || state.getTick() < snapshotTick) {
+                snapshotBuffer.clear().position(snapshotOffsets[index]);
+                state.readSnapshot(snapshotBuffer);
+                nextCommand = commandIndexAt(snapshotTick);
+            }
+        } else if (state.getTick() > target) {
+            restart();
+        }
+        while (state.getTick() < target && !state.isOver()) {
+            step();
+        }
+    }
+
+    /**
+     * Gets the game being replayed. Callers must treat it as read-only.
+     *
+     * @return the replayed state at the current tick
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Gets the tick the recorded game ended on.
+     *
+     * @return the recorded final tick
+     */
+    public long getFinalTick() {
+        return finalTick;
+    }
+
+    /**
+     * Gets the number of commands in the recorded game.
+     *
+     * @return the command count
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Gets the number of snapshots kept so far.
+     *
+     * @return the snapshot count, at most maxSnapshots
+     */
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Gets the number of ticks between the snapshots kept so far, which doubles each time
+     * the snapshots are thinned.
+     *
+     * @return the current snapshot interval
+     */
+    public long getSnapshotInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the number of bytes the snapshots kept so far take up.
+     *
+     * @return the total size of the snapshots
+     */
+    public int getSnapshotBytes() {
+        return snapshotOffsets[snapshotCount];
+    }
+}
@@ -0,0 +1,139 @@
+package replay;
+
+import snake.Direction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The ReplayFormat class defines the binary layout of recorded games and the helpers that
+ * encode and decode it.
+ *
+ * A replay file is a sequence of games. Each game starts with a fixed little-endian header
+ * (magic, version, columns, rows, RNG seed) followed by one varint per executed command and
+ * an end record. A command is encoded as (tickDelta << 2) | direction, where the direction is
+ * its ordinal in 2 bits and tickDelta counts ticks since the previous command (the first
+ * command counts from tick -1), so it is always at least 1. Most commands fit in one byte.
+ * The end record is a 0, the number of ticks the game lasted as a varint, and (from version 2)
+ * the 8-byte GameState.getStateHash() of the final state, which lets a replay be verified.
+ * Version 3 has the same layout and marks games whose apples were placed by rank among the
+ * free cells. Games recorded with earlier versions still decode, for scanning their commands,
+ * but placed their apples differently, so ReplayEngine refuses to re-simulate them.
+ */
+public final class ReplayFormat {
+    public static final int MAGIC = 0x524B4E53;     // "SNKR" in little-endian byte order
+    public static final short VERSION = 3;          // Layout version written to every header
+    public static final short FIRST_HASHED_VERSION = 2;  // First version whose end record has a state hash
+    public static final short FIRST_REPLAYABLE_VERSION = 3;  // First version the current apple placement reproduces
+    public static final int HEADER_BYTES = 24;      // magic(4) version(2) reserved(2) cols(4) rows(4) seed(8)
+    public static final int MAX_VARINT_BYTES = 10;  // Longest encoding of a 64-bit varint
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final long END_OF_GAME = 0L;             // Entry value that marks the end record
+
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+
+    private ReplayFormat() {
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Writes a game header at the buffer's position.
+     *
+     * @param buffer a little-endian buffer with at least HEADER_BYTES remaining
+     * @param cols the number of columns on the board
+     * @param rows the number of rows on the board
+     * @param seed the seed the game was played with
+     */
+    public static void putHeader(ByteBuffer buffer, int cols, int rows, long seed) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(cols);
+        buffer.putInt(rows);
+        buffer.putLong(seed);
+    }
+
+    /**
+     * Encodes a command as a single entry value.
+     *
+     * @param tickDelta ticks since the previous command, at least 1
+     * @param direction the direction applied
+     * @return the value to write as a varint
+     */
+    public static long encodeCommand(long tickDelta, Direction.Dir direction) {
+        return (tickDelta << 2) | direction.ordinal();
+    }
+
+    /**
+     * Gets the tick delta of an encoded command.
+     *
+     * @param entry the decoded entry value
+     * @return ticks since the previous command
+     */
+    public static long tickDeltaOf(long entry) {
+        return entry >>> 2;
+    }
+
+    /**
+     * Gets the direction of an encoded command.
+     *
+     * @param entry the decoded entry value
+     * @return the direction applied
+     */
+    public static Direction.Dir directionOf(long entry) {
+        return DIRECTIONS[(int) entry & 3];
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint: seven bits per byte, low bits first.
+     *
+     * @param buffer the buffer to write to, with at least MAX_VARINT_BYTES remaining
+     * @param value the value, treated as unsigned
+     */
+    public static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint into a byte array.
+     *
+     * @param bytes the array to write to
+     * @param offset where to start writing; at least MAX_VARINT_BYTES must fit
+     * @param value the value, treated as unsigned
+     * @return the offset just past the written bytes
+     */
+    public static int putVarint(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint at the buffer's position.
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded value
+     * @throws IllegalStateException if the varint is longer than 64 bits
+     */
+    public static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in replay");
+    }
+}
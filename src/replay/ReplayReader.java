@@ -0,0 +1,244 @@
+package replay;
+
+import snake.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ReplayReader class scans a replay file or archive through memory-mapped windows.
+ *
+ * The file is mapped a window at a time rather than read onto the heap, so archives larger
+ * than memory, or than the 2 GB limit of a single mapping, can be scanned. Reading a command
+ * only updates this reader's fields and allocates nothing.
+ *
+ * Typical use:
+ * <pre>
+ *     while (reader.nextGame()) {
+ *         while (reader.nextCommand()) {
+ *             ... reader.getTick(), reader.getDirection() ...
+ *         }
+ *         ... reader.getFinalTick() ...
+ *     }
+ * </pre>
+ */
+public class ReplayReader implements Closeable {
+    private static final long WINDOW_BYTES = 1L << 26;  // 64 MB mapped at a time
+
+    private final FileChannel channel;  // The replay file
+    private final long fileSize;        // Size of the file in bytes
+    private MappedByteBuffer window;    // Currently mapped part of the file
+    private long windowStart;           // File offset of the window's first byte
+    private boolean inGame;             // Whether the current game still has commands to read
+    private int cols;                   // Board columns of the current game
+    private int rows;                   // Board rows of the current game
+    private long seed;                  // Seed of the current game
+    private short version;              // Format version of the current game
+    private long tick = -1;             // Tick of the current command
+    private Direction.Dir direction;    // Direction of the current command
+    private long finalTick = -1;        // Length of the current game, once its end record is read
+    private long finalHash;             // State hash of the current game's end, once its end record is read
+
+    /**
+     * Opens a replay file for reading.
+     *
+     * @param path the file to read
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public ReplayReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, fileSize - start));
+        window.order(ReplayFormat.ORDER);
+    }
+
+    private long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Remaps the window at the current position if fewer than the given bytes are mapped
+     * and more of the file remains.
+     */
+    private void ensureMapped(int bytes) throws IOException {
+        if (window.remaining() < bytes && windowStart + window.limit() < fileSize) {
+            map(position());
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Moves to the next game in the file, skipping any unread commands of the current one.
+     *
+     * @return true if a game was found, false at the end of the file
+     * @throws IOException if the file is truncated or is not a replay
+     */
+    public boolean nextGame() throws IOException {
+        while (inGame) {
+            nextCommand();
+        }
+        if (position() >= fileSize) {
+            return false;
+        }
+        ensureMapped(ReplayFormat.HEADER_BYTES);
+        if (window.remaining() < ReplayFormat.HEADER_BYTES) {
+            throw new IOException("Truncated replay header at offset " + position());
+        }
+        if (window.getInt() != ReplayFormat.MAGIC) {
+            throw new IOException("Not a replay file, or corrupt at offset " + (position() - 4));
+        }
+        version = window.getShort();
+        if (version < 1 || version > ReplayFormat.VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        window.getShort();  // Reserved
+        cols = window.getInt();
+        rows = window.getInt();
+        seed = window.getLong();
+        inGame = true;
+        tick = -1;
+        direction = null;
+        finalTick = -1;
+        finalHash = 0;
+        return true;
+    }
+
+    /**
+     * Moves to the next command of the current game.
+     *
+     * @return true if a command was read, false once the game's end record is reached
+     * @throws IOException if the file is truncated
+     */
+    public boolean nextCommand() throws IOException {
+        if (!inGame) {
+            return false;
+        }
+        try {
+            ensureMapped(ReplayFormat.MAX_VARINT_BYTES);
+            long entry = ReplayFormat.getVarint(window);
+            if (entry == ReplayFormat.END_OF_GAME) {
+                ensureMapped(ReplayFormat.MAX_VARINT_BYTES);
+                finalTick = ReplayFormat.getVarint(window);
+                if (hasFinalHash()) {
+                    ensureMapped(Long.BYTES);
+                    finalHash = window.getLong();
+                }
+                inGame = false;
+                return false;
+            }
+            tick += ReplayFormat.tickDeltaOf(entry);
+            direction = ReplayFormat.directionOf(entry);
+            return true;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated replay at offset " + position(), e);
+        }
+    }
+
+    /**
+     * Gets the board columns of the current game.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the board rows of the current game.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the seed of the current game.
+     *
+     * @return the seed to reset a GameState with to replay the game
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the tick the current command was applied on.
+     *
+     * @return the game tick, counted from 0
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the direction of the current command.
+     *
+     * @return the direction applied
+     */
+    public Direction.Dir getDirection() {
+        return direction;
+    }
+
+    /**
+     * Gets how many ticks the current game lasted, once all its commands have been read.
+     *
+     * @return the final tick, or -1 if the end record has not been reached yet
+     */
+    public long getFinalTick() {
+        return finalTick;
+    }
+
+    /**
+     * Gets the format version the current game was written with.
+     *
+     * @return the version from the game's header
+     */
+    public short getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the current game records the hash of its final state.
+     *
+     * @return false only for games written by version 1 of the format
+     */
+    public boolean hasFinalHash() {
+        return version >= ReplayFormat.FIRST_HASHED_VERSION;
+    }
+
+    /**
+     * Gets the hash of the current game's final state, once all its commands have been read.
+     *
+     * @return the GameState.getStateHash() recorded at the end of the game, or 0 if not recorded
+     */
+    public long getFinalHash() {
+        return finalHash;
+    }
+
+    /**
+     * Closes the file. The mapped windows are released when they are garbage collected.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,173 @@
+package replay;
+
+import snake.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ReplayWriter class streams games in the replay format to an NIO channel.
+ *
+ * Entries are staged in a direct buffer and written in large blocks, so recording a command
+ * does no I/O and allocates nothing. Several games can be written one after another to build
+ * an archive.
+ */
+public class ReplayWriter implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final WritableByteChannel channel;  // Destination of the encoded games
+    private final ByteBuffer buffer;            // Staging area for writes
+    private boolean inGame;                     // Whether a header was written without its end record
+    private long lastTick;                      // Tick of the last command in the current game
+
+    /**
+     * Constructs a ReplayWriter on an open channel.
+     *
+     * @param channel the channel to write to; it is closed by close()
+     */
+    public ReplayWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ReplayFormat.ORDER);
+    }
+
+    /**
+    /* Private methods follow
+    /**/
+
+    /**
+     * Makes room for at least the given number of bytes, writing out the buffer if needed.
+     */
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void checkInGame(boolean expected) {
+        if (inGame != expected) {
+            throw new IllegalStateException(expected ? "No game has been started" : "The previous game has not ended");
+        }
+    }
+
+    /**
+    /* Public methods follow
+    /**/
+
+    /**
+     * Opens a replay file for appending, creating it if needed.
+     *
+     * @param path the file to write
+     * @return a writer whose games follow any already in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static ReplayWriter append(Path path) throws IOException {
+        return new ReplayWriter(FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Starts a game by writing its header.
+     *
+     * @param cols the number of columns on the board
+     * @param rows the number of rows on the board
+     * @param seed the seed the game was played with
+     * @throws IOException if writing fails
+     */
+    public void beginGame(int cols, int rows, long seed) throws IOException {
+        checkInGame(false);
+        ensureRoom(ReplayFormat.HEADER_BYTES);
+        ReplayFormat.putHeader(buffer, cols, rows, seed);
+        inGame = true;
+        lastTick = -1;
+    }
+
+    /**
+     * Records a command applied at a tick of the current game.
+     *
+     * @param tick the game tick the command was applied on, later than the previous command's
+     * @param direction the direction applied
+     * @throws IOException if writing fails
+     */
+    public void record(long tick, Direction.Dir direction) throws IOException {
+        checkInGame(true);
+        if (tick <= lastTick) {
+            throw new IllegalArgumentException("Replay ticks must increase: " + tick + " after " + lastTick);
+        }
+        ensureRoom(ReplayFormat.MAX_VARINT_BYTES);
+        ReplayFormat.putVarint(buffer, ReplayFormat.encodeCommand(tick - lastTick, direction));
+        lastTick = tick;
+    }
+
+    /**
+     * Ends the current game by writing its end record.
+     *
+     * @param finalTick the number of ticks the game lasted
+     * @param finalHash the GameState.getStateHash() of the final state
+     * @throws IOException if writing fails
+     */
+    public void endGame(long finalTick, long finalHash) throws IOException {
+        checkInGame(true);
+        ensureRoom(2 * ReplayFormat.MAX_VARINT_BYTES + Long.BYTES);
+        ReplayFormat.putVarint(buffer, ReplayFormat.END_OF_GAME);
+        ReplayFormat.putVarint(buffer, finalTick);
+        buffer.putLong(finalHash);
+        inGame = false;
+    }
+
+    /**
+     * Writes a complete game whose commands were recorded in memory.
+     *
+     * @param cols the number of columns on the board
+     * @param rows the number of rows on the board
+     * @param seed the seed the game was played with
+     * @param commands the commands of the game
+     * @param finalTick the number of ticks the game lasted
+     * @param finalHash the GameState.getStateHash() of the final state
+     * @throws IOException if writing fails
+     */
+    public void writeGame(int cols, int rows, long seed, ReplayBuffer commands, long finalTick, long finalHash) throws IOException {
+        beginGame(cols, rows, seed);
+        ByteBuffer entries = commands.getEntries();
+        while (entries.hasRemaining()) {
+            ensureRoom(1);
+            int chunk = Math.min(entries.remaining(), buffer.remaining());
+            ByteBuffer slice = entries.slice();
+            slice.limit(chunk);
+            buffer.put(slice);
+            entries.position(entries.position() + chunk);
+        }
+        endGame(finalTick, finalHash);
+    }
+
+    /**
+     * Writes out everything staged so far.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the staged bytes and closes the channel.
+     *
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
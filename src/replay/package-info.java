@@ -0,0 +1 @@
+package replay;
\ No newline at end of file
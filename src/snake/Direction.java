@@ -8,9 +8,82 @@ public class Direction {
 
     /**
      * Enum representing the four possible movement directions.
+     * Each direction knows its step on the grid, with rows growing downwards, and the
+     * directions a quarter turn to its left and right.
      */
     public enum Dir {
-        UP, DOWN, LEFT, RIGHT
+        UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0);
+
+        private static final Dir[] VALUES = values();
+
+        private final int dx;  // Column step
+        private final int dy;  // Row step
+        private Dir left;      // Direction after turning left
+        private Dir right;     // Direction after turning right
+
+        static {
+            for (Dir dir : VALUES) {
+                dir.left = of(dir.dy, -dir.dx);
+                dir.right = of(-dir.dy, dir.dx);
+            }
+        }
+
+        Dir(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        /**
+         * Finds the direction of a step between neighbouring cells.
+         *
+         * @param dx the column step
+         * @param dy the row step
+         * @return the direction with that step, or null if the step is not one cell up, down, left or right
+         */
+        public static Dir of(int dx, int dy) {
+            for (Dir dir : VALUES) {
+                if (dir.dx == dx && dir.dy == dy) {
+                    return dir;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the column step of this direction.
+         *
+         * @return -1, 0 or 1
+         */
+        public int dx() {
+            return dx;
+        }
+
+        /**
+         * Gets the row step of this direction; rows grow downwards.
+         *
+         * @return -1, 0 or 1
+         */
+        public int dy() {
+            return dy;
+        }
+
+        /**
+         * Gets the direction a quarter turn to the left of this one.
+         *
+         * @return the direction after turning left
+         */
+        public Dir left() {
+            return left;
+        }
+
+        /**
+         * Gets the direction a quarter turn to the right of this one.
+         *
+         * @return the direction after turning right
+         */
+        public Dir right() {
+            return right;
+        }
     }
 
     private Dir currentDirection;  // The current direction of the snake
@@ -64,6 +137,18 @@ public class Direction {
         }
     }
 
+    /**
+     * Sets the direction of the snake unconditionally.
+     * 
+     * @param newDirection the direction to set for the snake
+     * 
+     * This method bypasses the reversal check and is used when the snake is placed back at
+     * its starting position for a new game.
+     */
+    public void reset(Dir newDirection) {
+        currentDirection = newDirection;
+    }
+
     /**
      * Gets the current movement direction of the snake.
      * 
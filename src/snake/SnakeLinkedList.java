@@ -1,31 +1,41 @@
 package snake;
 
+import java.nio.ByteBuffer;
+
 /**
- * The SnakeLinkedList class manages the linked list structure of the snake in the game.
+ * The SnakeLinkedList class manages the body of the snake in the game.
  * It handles the snake's movement, growth, and direction changes.
+ *
+ * The body is stored in a preallocated circular buffer of packed cells, ordered from
+ * tail to head, so adding a new head and dropping the tail are both constant-time
+ * operations and moving the snake allocates nothing.
  */
 public class SnakeLinkedList {
-    private SnakeNode head;          // The head node of the snake (front of the snake)
-    private SnakeNode tail;          // The tail node of the snake (end of the snake)
+    private static final Direction.Dir[] DIRECTIONS = Direction.Dir.values();
+    private static final int[] PACKED_STEP = {-1 << 16, 1 << 16, -1, 1};  // Difference of packed cells for each direction, by ordinal
+    private final int[] body;        // Circular buffer of packed (x, y) cells, tail to head
+    private int headIndex;           // Slot in the buffer holding the head cell
     private Direction direction;     // The current direction of the snake's movement
     private boolean shouldGrow = false;  // Flag to track whether the snake should grow
     private int length;              // The current length of the snake
 
     /**
      * Constructs a SnakeLinkedList with an initial position for the snake's head.
-     * 
+     *
      * @param startX the x-coordinate of the snake's initial head position
      * @param startY the y-coordinate of the snake's initial head position
-     * 
-     * This constructor initializes the snake with a single head node at the specified coordinates
-     * and sets the initial direction to the right.
-     */
-    public SnakeLinkedList(int startX, int startY) {
-        // Initialize the snake with a head segment at the given position
-        head = new SnakeNode(startX, startY);
-        tail = head;
+     * @param capacity the maximum number of segments the snake can ever hold
+     *
+     * This constructor preallocates the body buffer, places a single head segment at the
+     * specified coordinates and sets the initial direction to the right.
+     */
+    public SnakeLinkedList(int startX, int startY, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Snake capacity must be at least 1: " + capacity);
+        }
+        body = new int[capacity];
         direction = new Direction(Direction.Dir.RIGHT);  // Initialize moving to the right
-        length = 1;  // Initial length of the snake
+        reset(startX, startY);
     }
 
     /**
@@ -33,21 +43,46 @@ public class SnakeLinkedList {
     /**/
 
     /**
-     * Removes the tail of the snake to simulate movement by shrinking the snake's body.
-     * 
-     * This method traverses the snake's linked list and removes the current tail node,
-     * effectively shrinking the snake by one segment.
+     * Converts a segment index (0 is the head) into a slot of the circular buffer.
+     *
+     * @param segment the segment index, counted from the head towards the tail
+     * @return the buffer slot holding that segment
      */
-    private void removeTail() {
-        SnakeNode current = head;
-        while (current.getNext() != tail) {
-            current = current.getNext();
+    private int slotOf(int segment) {
+        int slot = headIndex - segment;
+        return slot < 0 ? slot + body.length : slot;
+    }
+
+    /**
+     * Encodes the step between two neighbouring cells as the ordinal of its direction.
+     *
+     * @throws IllegalStateException if the cells are not neighbours
+     */
+    private static int stepCode(int from, int to) {
+        int dx = unpackX(to) - unpackX(from);
+        int dy = unpackY(to) - unpackY(from);
+        Direction.Dir dir = Direction.Dir.of(dx, dy);
+        if (dir == null) {
+            throw new IllegalStateException("Segments " + from + " and " + to + " are not neighbours");
         }
-        current.setNext(null);  // Remove the tail node
-        tail = current;  // Update the new tail
+        return dir.ordinal();
+    }
 
-        // Update length
-        length--;
+    /**
+     * Appends the cells of one packed word of steps to the body, from the given slot on.
+     */
+    private int decodeSteps(long steps, int count, int slot) {
+        int cell = body[slot - 1];
+        int x = unpackX(cell);
+        int y = unpackY(cell);
+        for (int i = 0; i < count; i++) {
+            Direction.Dir dir = DIRECTIONS[(int) steps & 3];
+            x += dir.dx();
+            y += dir.dy();
+            body[slot++] = pack(x, y);
+            steps >>>= 2;
+        }
+        return slot;
     }
 
     /**
@@ -55,52 +90,218 @@ public class SnakeLinkedList {
     /**/
 
     /**
-     * Moves the snake by creating a new head node in the current direction and removing the tail node.
-     * 
-     * This method simulates the snake's movement by adding a new head node at the next position
+     * Packs an (x, y) position into a single int cell value.
+     *
+     * @param x the x-coordinate, which must fit in a signed 16-bit value
+     * @param y the y-coordinate, which must fit in a signed 16-bit value
+     * @return the packed cell
+     *
+     * Coordinates are stored as two signed 16-bit halves so that positions just outside
+     * the grid (a head that has run into a wall) can still be represented.
+     */
+    public static int pack(int x, int y) {
+        return (y << 16) | (x & 0xFFFF);
+    }
+
+    /**
+     * Extracts the x-coordinate from a packed cell.
+     *
+     * @param cell the packed cell
+     * @return the x-coordinate of the cell
+     */
+    public static int unpackX(int cell) {
+        return (short) cell;
+    }
+
+    /**
+     * Extracts the y-coordinate from a packed cell.
+     *
+     * @param cell the packed cell
+     * @return the y-coordinate of the cell
+     */
+    public static int unpackY(int cell) {
+        return cell >> 16;
+    }
+
+    /**
+     * Places the snake back at a starting position as a single segment moving right.
+     *
+     * @param startX the x-coordinate of the snake's new head position
+     * @param startY the y-coordinate of the snake's new head position
+     *
+     * This method reuses the existing body buffer, so restarting a game allocates nothing.
+     */
+    public void reset(int startX, int startY) {
+        headIndex = 0;
+        body[headIndex] = pack(startX, startY);  // Initialize the snake with a head segment
+        direction.reset(Direction.Dir.RIGHT);  // Initialize moving to the right
+        shouldGrow = false;
+        length = 1;  // Initial length of the snake
+    }
+
+    /**
+     * Makes this snake an exact copy of another, including its direction and pending growth.
+     *
+     * @param other the snake to copy, whose capacity must equal this one's
+     * @throws IllegalArgumentException if the capacities differ
+     *
+     * The body buffer is copied with a single array copy and nothing is allocated.
+     */
+    public void copyFrom(SnakeLinkedList other) {
+        if (other.body.length != body.length) {
+            throw new IllegalArgumentException("Cannot copy a snake of capacity " + other.body.length
+                    + " into one of capacity " + body.length);
+        }
+        System.arraycopy(other.body, 0, body, 0, body.length);
+        headIndex = other.headIndex;
+        direction.reset(other.direction.getCurrentDirection());
+        shouldGrow = other.shouldGrow;
+        length = other.length;
+    }
+
+    /**
+     * Makes this snake an exact copy again of the snake it was copied from, after it has made
+     * some moves of its own, by copying back only the buffer slots those moves wrote.
+     *
+     * @param other the snake last copied, unchanged since
+     * @param moves the number of moves this snake has made since the copy
+     * @throws IllegalArgumentException if the capacities differ
+     */
+    public void restoreFrom(SnakeLinkedList other, long moves) {
+        if (moves >= body.length) {
+            copyFrom(other);
+            return;
+        }
+        if (other.body.length != body.length) {
+            throw new IllegalArgumentException("Cannot copy a snake of capacity " + other.body.length
+                    + " into one of capacity " + body.length);
+        }
+        int slot = other.headIndex;
+        for (long i = 0; i < moves; i++) {
+            slot = slot + 1 == body.length ? 0 : slot + 1;
+            body[slot] = other.body[slot];
+        }
+        headIndex = other.headIndex;
+        direction.reset(other.direction.getCurrentDirection());
+        shouldGrow = other.shouldGrow;
+        length = other.length;
+    }
+
+    /**
+     * Writes the body compactly: the length, the packed tail cell, then the step from each
+     * segment to the next towards the head as a 2-bit direction ordinal, four to a byte.
+     *
+     * @param out a little-endian buffer with at least getBodyBytes() remaining
+     *
+     * Steps are packed 32 to a long, so a body of 10,000 segments takes 2.5KB and is written
+     * in about 300 long stores.
+     */
+    public void putBody(ByteBuffer out) {
+        int slot = slotOf(length - 1);
+        int cell = body[slot];
+        out.putInt(length);
+        out.putInt(cell);
+        long steps = 0;
+        int count = 0;
+        for (int i = 1; i < length; i++) {
+            slot = slot + 1 == body.length ? 0 : slot + 1;
+            int next = body[slot];
+            // Without branches: a packed difference with zero low bits is a row step, and its sign gives the way
+            int difference = next - cell;
+            int code = ((((difference & 0xFFFF) + 0xFFFF) >>> 16) << 1) | ((-difference) >>> 31);
+            if (cell + PACKED_STEP[code] != next) {
+                code = stepCode(cell, next);  // A head just off the left edge, or a broken body
+            }
+            steps |= (long) code << (count << 1);
+            cell = next;
+            if (++count == 32) {
+                out.putLong(steps);
+                steps = 0;
+                count = 0;
+            }
+        }
+        for (int written = 0; written < count; written += 4) {
+            out.put((byte) steps);
+            steps >>>= 8;
+        }
+    }
+
+    /**
+     * Replaces the body with one written by putBody(), and sets the direction and pending growth.
+     *
+     * @param in a little-endian buffer positioned at the body
+     * @param newDirection the direction the snake is moving in
+     * @param growing true if the snake grows on its next move
+     * @throws IllegalArgumentException if the body does not fit this snake's capacity
+     *
+     * The body is laid out from the tail at the start of the buffer, so decoding writes the
+     * slots in order and allocates nothing.
+     */
+    public void getBody(ByteBuffer in, Direction.Dir newDirection, boolean growing) {
+        int newLength = in.getInt();
+        if (newLength < 1 || newLength > body.length) {
+            throw new IllegalArgumentException("Snake length " + newLength + " does not fit a capacity of " + body.length);
+        }
+        body[0] = in.getInt();
+        int slot = 1;
+        int remaining = newLength - 1;
+        while (remaining >= 32) {
+            slot = decodeSteps(in.getLong(), 32, slot);
+            remaining -= 32;
+        }
+        long steps = 0;
+        for (int b = 0; b < (remaining + 3) / 4; b++) {
+            steps |= (in.get() & 0xFFL) << (b << 3);
+        }
+        decodeSteps(steps, remaining, slot);
+        headIndex = newLength - 1;
+        length = newLength;
+        direction.reset(newDirection);
+        shouldGrow = growing;
+    }
+
+    /**
+     * Gets the number of bytes putBody() writes for the current body.
+     *
+     * @return 8 bytes of length and tail plus a quarter byte per further segment
+     */
+    public int getBodyBytes() {
+        return 8 + (length + 2) / 4;
+    }
+
+    /**
+     * Moves the snake by pushing a new head cell in the current direction and dropping the tail cell.
+     *
+     * This method simulates the snake's movement by writing the next position into the body buffer
      * based on the current direction. If the snake should grow, the tail is not removed.
      */
     public void move() {
-        int newX = head.getX();
-        int newY = head.getY();
+        int head = body[headIndex];
+        int newX = unpackX(head);
+        int newY = unpackY(head);
 
         // Calculate the new head position based on the current direction
-        switch (direction.getCurrentDirection()) {
-            case UP:
-                newY--;
-                break;
-            case DOWN:
-                newY++;
-                break;
-            case LEFT:
-                newX--;
-                break;
-            case RIGHT:
-                newX++;
-                break;
-        }
-
-        // Create a new head node and attach it to the front of the snake
-        SnakeNode newHead = new SnakeNode(newX, newY);
-        newHead.setNext(head);
-        head = newHead;
+        newX += direction.getCurrentDirection().dx();
+        newY += direction.getCurrentDirection().dy();
 
-        // Remove the tail unless the snake should grow
-        if (!shouldGrow) {
-            removeTail();
-        } else {
+        if (shouldGrow) {
+            if (length == body.length) {
+                throw new IllegalStateException("Snake has outgrown its capacity of " + body.length);
+            }
+            length++;
             shouldGrow = false;  // Reset the grow flag after the snake grows
         }
+        // Without growth the new head simply takes over the slot freed by the tail
 
-        // Update the snake's length
-        length++;
+        headIndex = headIndex + 1 == body.length ? 0 : headIndex + 1;
+        body[headIndex] = pack(newX, newY);
     }
 
     /**
      * Gets the current direction of the snake's movement.
-     * 
+     *
      * @return the current direction of the snake as a Direction.Dir enum
-     * 
+     *
      * This method returns the direction in which the snake is currently moving.
      */
     public Direction.Dir getCurrentDirection() {
@@ -109,9 +310,9 @@ public class SnakeLinkedList {
 
     /**
      * Changes the direction of the snake's movement.
-     * 
+     *
      * @param newDirection the new direction to set for the snake
-     * 
+     *
      * This method changes the direction of the snake's movement, provided the new direction
      * is not a reverse of the current direction.
      */
@@ -121,29 +322,90 @@ public class SnakeLinkedList {
 
     /**
      * Sets the flag to grow the snake on the next move.
-     * 
+     *
      * This method sets a flag that will cause the snake to grow by one segment when it moves next.
      */
     public void grow() {
         shouldGrow = true;
     }
 
+    /**
+     * Checks whether the snake will grow on its next move.
+     *
+     * @return true if the next move keeps the tail in place, otherwise false
+     *
+     * Callers tracking which cells the snake covers use this to tell whether the tail cell
+     * is about to be vacated.
+     */
+    public boolean isGrowing() {
+        return shouldGrow;
+    }
+
     /**
      * Gets the head node of the snake.
-     * 
-     * @return the head node of the snake
-     * 
-     * This method returns the head of the snake, which is the front segment of the snake's body.
+     *
+     * @return a detached node holding the position of the snake's head
+     *
+     * This method returns a fresh node for the head of the snake and therefore allocates;
+     * per-tick code should prefer getHeadX() and getHeadY().
      */
     public SnakeNode getHead() {
-        return head;
+        return new SnakeNode(getHeadX(), getHeadY());
+    }
+
+    /**
+     * Gets the x-coordinate of the snake's head.
+     *
+     * @return the x-coordinate of the head segment
+     */
+    public int getHeadX() {
+        return unpackX(body[headIndex]);
+    }
+
+    /**
+     * Gets the y-coordinate of the snake's head.
+     *
+     * @return the y-coordinate of the head segment
+     */
+    public int getHeadY() {
+        return unpackY(body[headIndex]);
+    }
+
+    /**
+     * Gets the packed cell of a body segment.
+     *
+     * @param segment the segment index, where 0 is the head and getLength() - 1 is the tail
+     * @return the packed cell of that segment
+     *
+     * This method gives constant-time access to any segment without walking the body.
+     */
+    public int getSegment(int segment) {
+        return body[slotOf(segment)];
+    }
+
+    /**
+     * Gets the packed cell of the snake's tail.
+     *
+     * @return the packed cell of the last segment
+     */
+    public int getTail() {
+        return body[slotOf(length - 1)];
+    }
+
+    /**
+     * Gets the maximum number of segments the snake can hold.
+     *
+     * @return the capacity of the body buffer
+     */
+    public int getCapacity() {
+        return body.length;
     }
 
     /**
      * Gets the current length of the snake.
-     * 
+     *
      * @return the length of the snake as an integer
-     * 
+     *
      * This method returns the total number of segments that make up the snake's body.
      */
     public int getLength() {